@@ -7,17 +7,21 @@ import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.BitSet;
 import java.util.stream.Collectors;
 
 import common.Automaton;
+import common.ExecutionBudget;
 import common.Symbol;
 
 /**
@@ -32,6 +36,29 @@ public class CFG extends Automaton {
     private static final Pattern VARIABLE_PATTERN = Pattern.compile("^[A-Z][A-Za-z0-9]*$");
     private static final Pattern TERMINAL_PATTERN = Pattern.compile("^[a-z0-9]+$");
     private static final int MAX_LINES = 200;
+    /** Scratch CYK tables larger than this many words are not kept for the next call. */
+    private static final int MAX_RETAINED_SCRATCH = 1 << 20;
+    private static final ThreadLocal<long[]> CYK_SCRATCH = new ThreadLocal<>();
+
+    /**
+     * Which membership algorithm {@link #execute(String, ExecutionOptions)} runs.
+     */
+    public enum ExecutionMode {
+        /**
+         * The LL(1) parser if the grammar is LL(1), else the LR parser if it is LR(1). Other
+         * grammars use Earley if they are linear or their Chomsky normal form has more than
+         * twice as many productions, and CYK if they are already close to that form.
+         */
+        AUTO,
+        /** CYK on the Chomsky normal form of the grammar. */
+        CYK,
+        /** Earley on the grammar as written. */
+        EARLEY,
+        /** Table-driven LL(1) parser; the grammar must be LL(1). */
+        LL1,
+        /** LALR(1) tables, or canonical LR(1) tables if merging states conflicts; the grammar must be LR(1). */
+        LR1
+    }
 
     private Set<NonTerminal> variables;
     private Set<Terminal> terminals;
@@ -43,6 +70,10 @@ public class CFG extends Automaton {
     private Map<String, Terminal> terminalsByName;
     private Map<NonTerminal, List<Production>> productionsByLeft;
     private CFG cachedCNF;
+    private EarleyRecognizer earleyRecognizer;
+    private GrammarAnalysis grammarAnalysis;
+    private ExecutionMode executionMode = ExecutionMode.AUTO;
+    private ExecutionMode autoMode;
     private Set<String> terminalNames;
     private Set<String> variableNames;
     private Map<String, List<Production>> productionsByTerminal;  // "a" -> [S -> a, ...]
@@ -55,9 +86,14 @@ public class CFG extends Automaton {
     private int[][] productionResultsForPair;  // [pairKey] -> array of result NT ids
     private int[][] productionResultsForTerminal;  // [terminalIndex] -> array of result NT ids
     private int numNonTerminals;
-    private int[][] binaryProductionResults;
     private int startSymbolId;
-    private Map<String, int[]> terminalProductionResults;  // "a" -> array of result NT ids
+
+    // CYK tables; a set of non-terminals is a bit mask of cellWords longs
+    private int cellWords;
+    private long[][] terminalMasks;  // input character -> non-terminals deriving it, null if none
+    private int[] binaryPairStart;  // B -> first index of its pairs in binaryPairRight
+    private int[] binaryPairRight;  // pair -> C, for the rules A -> B C grouped by B
+    private long[] binaryPairMasks;  // pair -> mask of every A with A -> B C
 
     public CFG() {
         super(MachineType.CFG);
@@ -95,6 +131,9 @@ public class CFG extends Automaton {
         variableNames = new HashSet<>();
         terminalNames = null;
         cachedCNF = null;
+        earleyRecognizer = null;
+        grammarAnalysis = null;
+        autoMode = null;
 
         for (NonTerminal var : variables) {
             variablesByName.put(var.getName(), var);
@@ -118,12 +157,9 @@ public class CFG extends Automaton {
             startSymbolId = (sId != null) ? sId : -1;
         }
 
-        // Build array-based binary production results
-        int size = numNonTerminals * numNonTerminals;
-        binaryProductionResults = new int[size][];
-
-        // Build terminal production results
-        Map<String, List<Integer>> termResultsBuilder = new HashMap<>();
+        cellWords = Math.max(1, (numNonTerminals + 63) >>> 6);
+        Map<Character, long[]> terminalMaskBuilder = new HashMap<>();
+        TreeMap<Long, long[]> pairMaskBuilder = new TreeMap<>();
 
         for (Production prod : productions) {
             productionsByLeft.computeIfAbsent(prod.getLeft(), k -> new ArrayList<>()).add(prod);
@@ -133,8 +169,8 @@ public class CFG extends Automaton {
                 productionsByTerminal.computeIfAbsent(termName, k -> new ArrayList<>()).add(prod);
 
                 Integer resultId = nonTerminalToId.get(prod.getLeft());
-                if (resultId != null) {
-                    termResultsBuilder.computeIfAbsent(termName, k -> new ArrayList<>()).add(resultId);
+                if (resultId != null && termName.length() == 1) {
+                    setBit(terminalMaskBuilder.computeIfAbsent(termName.charAt(0), k -> new long[cellWords]), resultId);
                 }
             } else if (prod.getRight().size() == 2) {
                 Symbol first = prod.getRight().get(0);
@@ -146,33 +182,53 @@ public class CFG extends Automaton {
 
                     Integer leftId = nonTerminalToId.get(first);
                     Integer rightId = nonTerminalToId.get(second);
-                    if (leftId != null && rightId != null) {
-                        int key = leftId * numNonTerminals + rightId;
-                        Integer resultId = nonTerminalToId.get(prod.getLeft());
-
-                        if (resultId != null) {
-                            if (binaryProductionResults[key] == null) {
-                                binaryProductionResults[key] = new int[]{resultId};
-                            } else {
-                                int[] old = binaryProductionResults[key];
-                                int[] newArr = new int[old.length + 1];
-                                System.arraycopy(old, 0, newArr, 0, old.length);
-                                newArr[old.length] = resultId;
-                                binaryProductionResults[key] = newArr;
-                            }
-                        }
+                    Integer resultId = nonTerminalToId.get(prod.getLeft());
+                    if (leftId != null && rightId != null && resultId != null) {
+                        long key = (long) leftId * numNonTerminals + rightId;
+                        setBit(pairMaskBuilder.computeIfAbsent(key, k -> new long[cellWords]), resultId);
                     }
                 }
             }
         }
 
-        // Convert terminal results to arrays
-        terminalProductionResults = new HashMap<>();
-        for (Map.Entry<String, List<Integer>> entry : termResultsBuilder.entrySet()) {
-            terminalProductionResults.put(entry.getKey(), entry.getValue().stream().mapToInt(i -> i).toArray());
+        compileCykTables(terminalMaskBuilder, pairMaskBuilder);
+    }
+
+    /**
+     * Lays out the CYK rules as flat arrays: a mask per input character, and the binary rules
+     * grouped by (B, C) pair, sorted by B, each pair carrying the mask of all A with A -> B C.
+     */
+    private void compileCykTables(Map<Character, long[]> terminalMaskBuilder, TreeMap<Long, long[]> pairMaskBuilder) {
+        int maxChar = -1;
+        for (char c : terminalMaskBuilder.keySet()) {
+            maxChar = Math.max(maxChar, c);
+        }
+        terminalMasks = new long[maxChar + 1][];
+        for (Map.Entry<Character, long[]> entry : terminalMaskBuilder.entrySet()) {
+            terminalMasks[entry.getKey()] = entry.getValue();
+        }
+
+        int pairs = pairMaskBuilder.size();
+        binaryPairStart = new int[numNonTerminals + 1];
+        binaryPairRight = new int[pairs];
+        binaryPairMasks = new long[pairs * cellWords];
+        int pair = 0;
+        for (Map.Entry<Long, long[]> entry : pairMaskBuilder.entrySet()) {
+            int left = (int) (entry.getKey() / numNonTerminals);
+            binaryPairStart[left + 1]++;
+            binaryPairRight[pair] = (int) (entry.getKey() % numNonTerminals);
+            System.arraycopy(entry.getValue(), 0, binaryPairMasks, pair * cellWords, cellWords);
+            pair++;
+        }
+        for (int b = 0; b < numNonTerminals; b++) {
+            binaryPairStart[b + 1] += binaryPairStart[b];
         }
     }
 
+    private static void setBit(long[] mask, int bit) {
+        mask[bit >>> 6] |= 1L << bit;
+    }
+
     public void initializeCache() {
         this.grammarStringCache = grammarToString();
     }
@@ -203,6 +259,9 @@ public class CFG extends Automaton {
         this.productions = productions;
         this.grammarStringCache = null;  // Invalidate cache
         this.cachedCNF = null;
+        this.earleyRecognizer = null;
+        this.grammarAnalysis = null;
+        this.autoMode = null;
         initializeMaps();
     }
 
@@ -395,6 +454,16 @@ public class CFG extends Automaton {
                 .orElse(null);
     }
 
+    /**
+     * Returns an equivalent grammar in Chomsky normal form, without the empty string (which
+     * {@link #execute(String)} decides on the original grammar). The steps run in the standard
+     * START, TERM, BIN, DEL, UNIT order: long right-hand sides are split into binary ones before
+     * epsilon productions are removed, so removing them expands each production into at most
+     * four and the result stays linear in the size of this grammar. Useless variables are then
+     * removed and the rest ordered by use, which fixes their CYK bit positions.
+     *
+     * @return the CNF grammar, cached until the productions change
+     */
     public CFG toChomskyNormalForm() {
         if (cachedCNF != null) {
             return cachedCNF;
@@ -408,18 +477,91 @@ public class CFG extends Automaton {
         NonTerminal originalStart = startSymbol;
         NonTerminal newStart = generateUniqueStartSymbol(newVariables);
 
+        // START
         newVariables.add(newStart);
         newProductions.add(new Production(newStart, Arrays.asList(originalStart)));
         newStartSymbol = newStart;
 
+        // TERM and BIN
+        newProductions = convertToCNFFormat(newProductions, newVariables, newTerminals);
+        // DEL
         newProductions = eliminateEpsilonProductions(newProductions, newVariables);
+        // UNIT
         newProductions = eliminateUnitProductions(newProductions, newVariables);
-        newProductions = convertToCNFFormat(newProductions, newVariables, newTerminals);
 
-        cachedCNF = new CFG(newVariables, newTerminals, newProductions, newStartSymbol);
+        newProductions = removeUselessSymbols(newProductions, newVariables, newStartSymbol);
+        cachedCNF = new CFG(orderByUse(newVariables, newProductions), newTerminals, newProductions, newStartSymbol);
         return cachedCNF;
     }
 
+    /**
+     * Drops every production that uses a variable deriving no terminal string, then every
+     * production whose left-hand side is unreachable from the start symbol, and removes those
+     * variables. The start symbol is kept even if the language is empty.
+     */
+    private List<Production> removeUselessSymbols(List<Production> productions, Set<NonTerminal> variables,
+                                                  NonTerminal start) {
+        Set<NonTerminal> generating = new HashSet<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Production p : productions) {
+                if (!generating.contains(p.getLeft()) && p.getRight().stream().allMatch(symbol ->
+                        symbol instanceof Terminal || generating.contains(symbol))) {
+                    generating.add(p.getLeft());
+                    changed = true;
+                }
+            }
+        }
+
+        List<Production> useful = productions.stream()
+                .filter(p -> generating.contains(p.getLeft()) && p.getRight().stream()
+                        .allMatch(symbol -> symbol instanceof Terminal || generating.contains(symbol)))
+                .collect(Collectors.toList());
+
+        Set<NonTerminal> reachable = new HashSet<>();
+        reachable.add(start);
+        boolean added;
+        do {
+            added = false;
+            for (Production p : useful) {
+                if (reachable.contains(p.getLeft())) {
+                    for (Symbol s : p.getRight()) {
+                        if (s instanceof NonTerminal && reachable.add((NonTerminal) s)) {
+                            added = true;
+                        }
+                    }
+                }
+            }
+        } while (added);
+
+        variables.retainAll(reachable);
+        return useful.stream()
+                .filter(p -> reachable.contains(p.getLeft()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Orders variables by the number of times they occur in the productions, most used first.
+     * {@link #initializeMaps()} numbers variables in iteration order, so the variables CYK
+     * sets and tests most often share the first word of each cell mask.
+     */
+    private static Set<NonTerminal> orderByUse(Set<NonTerminal> variables, List<Production> productions) {
+        Map<NonTerminal, Integer> uses = new HashMap<>();
+        for (Production p : productions) {
+            uses.merge(p.getLeft(), 1, Integer::sum);
+            for (Symbol s : p.getRight()) {
+                if (s instanceof NonTerminal) {
+                    uses.merge((NonTerminal) s, 1, Integer::sum);
+                }
+            }
+        }
+        List<NonTerminal> order = new ArrayList<>(variables);
+        order.sort(Comparator.comparing((NonTerminal v) -> uses.getOrDefault(v, 0)).reversed()
+                .thenComparing(NonTerminal::getName));
+        return new LinkedHashSet<>(order);
+    }
+
     private NonTerminal generateUniqueStartSymbol(Set<NonTerminal> variables) {
         String name = "S'";
         while (variableExists(variables, name)) {
@@ -483,6 +625,10 @@ public class CFG extends Automaton {
         return nullable;
     }
 
+    /**
+     * Enumerates every way of dropping nullable symbols from a right-hand side. The pipeline
+     * calls this after binarization, so there are at most four.
+     */
     private List<List<Symbol>> generateCombinations(List<Symbol> symbols, Set<NonTerminal> nullable) {
         List<List<Symbol>> results = new ArrayList<>();
         int n = symbols.size();
@@ -591,6 +737,11 @@ public class CFG extends Automaton {
         return chains;
     }
 
+    /**
+     * Replaces terminals in right-hand sides of two or more symbols by variables deriving them
+     * (TERM) and splits right-hand sides longer than two into chains of binary productions (BIN).
+     * Empty and unit productions are kept for the later steps.
+     */
     private List<Production> convertToCNFFormat(List<Production> productions, Set<NonTerminal> variables, Set<Terminal> terminals) {
         List<Production> newProductions = new ArrayList<>();
         Map<String, NonTerminal> terminalVariables = new HashMap<>();
@@ -721,7 +872,7 @@ public class CFG extends Automaton {
 
         for (Production p : productions) {
             String key = p.getLeft().getName() + "->" +
-                    p.getRight().stream().map(Symbol::getName).collect(Collectors.joining(""));
+                    p.getRight().stream().map(Symbol::getName).collect(Collectors.joining(" "));
 
             if (!seen.contains(key)) {
                 seen.add(key);
@@ -756,6 +907,22 @@ public class CFG extends Automaton {
 
     @Override
     public ExecutionResult execute(String inputText) {
+        return execute(inputText, ExecutionOptions.FULL_TRACE);
+    }
+
+    /**
+     * Decides membership of the input. The grammar engine builds no trace, so the trace
+     * level is ignored; the CYK table fill polls the execution budget once per cell and
+     * a run that exceeds it is rejected with a WARNING. An INFO message names the parser
+     * that ran; forcing {@link ExecutionMode#LL1} or {@link ExecutionMode#LR1} on a grammar
+     * that does not qualify is an ERROR naming the first conflict.
+     *
+     * @param inputText input string
+     * @param options   execution options
+     * @return the execution result
+     */
+    @Override
+    public ExecutionResult execute(String inputText, ExecutionOptions options) {
         List<ValidationMessage> messages = new ArrayList<>();
 
         try {
@@ -769,6 +936,14 @@ public class CFG extends Automaton {
                 return new ExecutionResult(false, messages, "ERROR: No productions defined");
             }
 
+            // A forced parser the grammar does not qualify for fails every input, including the empty one
+            if (executionMode == ExecutionMode.LL1 && grammarAnalysis().getLLParser() == null) {
+                return notDeterministic("LL(1)", grammarAnalysis().getLLConflicts(), messages);
+            }
+            if (executionMode == ExecutionMode.LR1 && grammarAnalysis().getLRParser() == null) {
+                return notDeterministic("LR(1)", grammarAnalysis().getLRConflicts(), messages);
+            }
+
             if (inputText == null || inputText.isEmpty()) {
                 Set<NonTerminal> nullable = findNullableVariables(this.productions);
                 boolean accepted = nullable.contains(this.startSymbol);
@@ -784,7 +959,34 @@ public class CFG extends Automaton {
                 }
             }
 
-            boolean accepted = cachedCNF.cykParse(inputText);
+            ExecutionMode mode = selectedMode();
+            ExecutionBudget budget = ExecutionBudget.start(options);
+            boolean accepted;
+            String parser;
+            switch (mode) {
+                case LL1:
+                    accepted = grammarAnalysis().getLLParser().recognize(inputText, budget);
+                    parser = "LL(1)";
+                    break;
+                case LR1:
+                    LRParser lr = grammarAnalysis().getLRParser();
+                    accepted = lr.recognize(inputText, budget);
+                    parser = lr.getKind();
+                    break;
+                case EARLEY:
+                    accepted = earleyRecognizer().recognize(inputText, budget);
+                    parser = "Earley";
+                    break;
+                default:
+                    accepted = cachedCNF.cykParse(inputText, budget);
+                    parser = "CYK";
+                    break;
+            }
+            messages.add(new ValidationMessage("Parser: " + parser + ".", 0, ValidationMessage.ValidationMessageType.INFO));
+            if (budget.isExhausted()) {
+                messages.add(budget.toMessage());
+                return new ExecutionResult(false, messages, "");
+            }
             return new ExecutionResult(accepted, messages, "");
 
         } catch (Exception e) {
@@ -793,6 +995,80 @@ public class CFG extends Automaton {
         }
     }
 
+    private static ExecutionResult notDeterministic(String kind, List<String> conflicts,
+                                                    List<ValidationMessage> messages) {
+        String message = "Grammar is not " + kind + ": " + conflicts.get(0);
+        messages.add(new ValidationMessage(message, 0, ValidationMessage.ValidationMessageType.ERROR));
+        return new ExecutionResult(false, messages, "ERROR: " + message);
+    }
+
+    /**
+     * Selects the membership algorithm used by {@link #execute(String, ExecutionOptions)}.
+     *
+     * @param executionMode the algorithm to use; {@link ExecutionMode#AUTO} by default
+     */
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = Objects.requireNonNull(executionMode, "executionMode");
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    private ExecutionMode selectedMode() {
+        if (executionMode != ExecutionMode.AUTO) {
+            return executionMode;
+        }
+        ExecutionMode mode = autoMode;
+        if (mode == null) {
+            if (grammarAnalysis().getLLParser() != null) {
+                mode = ExecutionMode.LL1;
+            } else if (grammarAnalysis().getLRParser() != null) {
+                mode = ExecutionMode.LR1;
+            } else {
+                boolean linear = productions.stream().allMatch(p ->
+                        p.getRight().stream().filter(s -> s instanceof NonTerminal).count() <= 1);
+                boolean inflated = toChomskyNormalForm().getProductions().size() > 2 * productions.size();
+                mode = linear || inflated ? ExecutionMode.EARLEY : ExecutionMode.CYK;
+            }
+            autoMode = mode;
+        }
+        return mode;
+    }
+
+    private GrammarAnalysis grammarAnalysis() {
+        GrammarAnalysis analysis = grammarAnalysis;
+        if (analysis == null) {
+            analysis = new GrammarAnalysis(productions, startSymbol);
+            grammarAnalysis = analysis;
+        }
+        return analysis;
+    }
+
+    /**
+     * @return why the grammar is not LL(1), empty if it is
+     */
+    public List<String> getLL1Conflicts() {
+        return grammarAnalysis().getLLConflicts();
+    }
+
+    /**
+     * @return why the grammar is not LR(1), empty if it is
+     */
+    public List<String> getLR1Conflicts() {
+        return grammarAnalysis().getLRConflicts();
+    }
+
+    private EarleyRecognizer earleyRecognizer() {
+        EarleyRecognizer recognizer = earleyRecognizer;
+        if (recognizer == null) {
+            recognizer = EarleyRecognizer.compile(variables, productions, startSymbol,
+                    findNullableVariables(productions));
+            earleyRecognizer = recognizer;
+        }
+        return recognizer;
+    }
+
     private String grammarToString() {
         StringBuilder sb = new StringBuilder();
 
@@ -831,54 +1107,60 @@ public class CFG extends Automaton {
         return terminalNames;
     }
 
-    private boolean cykParse(String input) {
+    /**
+     * Runs CYK on a CNF grammar. The table is triangular: the cell for the substring of
+     * length {@code len} starting at {@code i} holds the mask of non-terminals deriving it, and
+     * all cells live in one {@code long[]} taken from a per-thread scratch buffer. A cell is
+     * filled by walking the set bits B of each left part and, for the rules A -> B C, testing
+     * bit C of the right part; the masks of all matching A are OR-ed in a word at a time.
+     */
+    private boolean cykParse(String input, ExecutionBudget budget) {
         int n = input.length();
-        if (n == 0) {
+        if (n == 0 || startSymbolId < 0) {
             return false;
         }
 
-        int numNT = numNonTerminals;
-        int arraySize = numNT * numNT;
-
-        BitSet[][] table = new BitSet[n][n];
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                table[i][j] = new BitSet(numNT);
-            }
+        int words = cellWords;
+        long cells = (long) n * (n + 1) / 2;
+        if (cells * words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Input of length " + n + " is too long for CYK");
         }
+        long[] table = cykScratch((int) (cells * words));
 
         // Phase 1: Single characters
         for (int i = 0; i < n; i++) {
-            String charStr = String.valueOf(input.charAt(i));
-            int[] results = terminalProductionResults.get(charStr);
-            if (results != null) {
-                BitSet cell = table[i][0];
-                for (int resultId : results) {
-                    cell.set(resultId);
-                }
+            char c = input.charAt(i);
+            long[] mask = c < terminalMasks.length ? terminalMasks[c] : null;
+            if (mask != null) {
+                System.arraycopy(mask, 0, table, i * words, words);
             }
         }
 
         // Phase 2: Longer substrings
         for (int len = 2; len <= n; len++) {
             for (int i = 0; i <= n - len; i++) {
-                BitSet targetCell = table[i][len - 1];
+                if (!budget.step()) {
+                    return false;
+                }
+                int target = cellIndex(n, len, i) * words;
 
                 for (int k = 1; k < len; k++) {
-                    BitSet leftCell = table[i][k - 1];
-                    BitSet rightCell = table[i + k][len - k - 1];
-
-                    if (leftCell.isEmpty() || rightCell.isEmpty()) {
+                    int left = cellIndex(n, k, i) * words;
+                    int right = cellIndex(n, len - k, i + k) * words;
+                    if (isEmpty(table, right, words)) {
                         continue;
                     }
 
-                    for (int leftId = leftCell.nextSetBit(0); leftId >= 0; leftId = leftCell.nextSetBit(leftId + 1)) {
-                        for (int rightId = rightCell.nextSetBit(0); rightId >= 0; rightId = rightCell.nextSetBit(rightId + 1)) {
-                            int key = leftId * numNT + rightId;
-                            if (key < arraySize && binaryProductionResults[key] != null) {
-                                int[] results = binaryProductionResults[key];
-                                for (int resultId : results) {
-                                    targetCell.set(resultId);
+                    for (int w = 0; w < words; w++) {
+                        for (long bits = table[left + w]; bits != 0; bits &= bits - 1) {
+                            int b = w << 6 | Long.numberOfTrailingZeros(bits);
+                            for (int pair = binaryPairStart[b]; pair < binaryPairStart[b + 1]; pair++) {
+                                int c = binaryPairRight[pair];
+                                if ((table[right + (c >>> 6)] & 1L << c) != 0) {
+                                    int mask = pair * words;
+                                    for (int x = 0; x < words; x++) {
+                                        table[target + x] |= binaryPairMasks[mask + x];
+                                    }
                                 }
                             }
                         }
@@ -887,7 +1169,41 @@ public class CFG extends Automaton {
             }
         }
 
-        return startSymbolId >= 0 && table[0][n - 1].get(startSymbolId);
+        int root = cellIndex(n, n, 0) * words;
+        return (table[root + (startSymbolId >>> 6)] & 1L << startSymbolId) != 0;
+    }
+
+    /**
+     * @return the position of the cell for the substring of length {@code len} starting at
+     *         {@code i}; cells are stored by length, then by start
+     */
+    private static int cellIndex(int n, int len, int i) {
+        return (int) ((long) (len - 1) * (2 * n - len + 2) / 2) + i;
+    }
+
+    private static boolean isEmpty(long[] table, int from, int words) {
+        for (int w = 0; w < words; w++) {
+            if (table[from + w] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a zeroed table of at least {@code size} words, reused by the calling thread
+     */
+    private static long[] cykScratch(int size) {
+        long[] table = CYK_SCRATCH.get();
+        if (table == null || table.length < size) {
+            table = new long[size];
+            if (size <= MAX_RETAINED_SCRATCH) {
+                CYK_SCRATCH.set(table);
+            }
+            return table;
+        }
+        Arrays.fill(table, 0, size, 0L);
+        return table;
     }
 
     @Override
@@ -989,6 +1305,9 @@ public class CFG extends Automaton {
         productionsByLeft.computeIfAbsent(p.getLeft(), k -> new ArrayList<>()).add(p);
         this.grammarStringCache = null;  // Invalidate cache
         this.cachedCNF = null;
+        this.earleyRecognizer = null;
+        this.grammarAnalysis = null;
+        this.autoMode = null;
     }
 
     public void removeProduction(Production p) {
@@ -998,6 +1317,9 @@ public class CFG extends Automaton {
             list.remove(p);
         }
         cachedCNF = null;
+        earleyRecognizer = null;
+        grammarAnalysis = null;
+        autoMode = null;
     }
 
     public List<Production> getProductionsFor(NonTerminal v) {
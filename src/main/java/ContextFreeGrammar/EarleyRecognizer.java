@@ -0,0 +1,356 @@
+package ContextFreeGrammar;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import common.ExecutionBudget;
+import common.Symbol;
+
+/**
+ * Earley recognizer working directly on the productions of a {@link CFG}, without conversion to
+ * Chomsky normal form.
+ * <p>
+ * Non-terminals are interned to ints and every production is laid out as a run of dotted rules
+ * (one per dot position), so an item is a pair of ints: the dotted rule and the origin set.
+ * Nullable non-terminals are skipped at prediction time (Aycock and Horspool), and completions
+ * use Leo's transitive items, so right-recursive grammars are recognized in linear time
+ * instead of quadratic. Unambiguous grammars take at most quadratic time; the worst case is
+ * cubic, as for CYK.
+ * </p>
+ * The recognizer is immutable; each call to {@link #recognize(String, ExecutionBudget)} builds
+ * its own chart, so one instance can be used by several threads at once.
+ */
+final class EarleyRecognizer {
+
+    /** Symbol after the dot of a complete dotted rule. */
+    private static final int COMPLETE = Integer.MIN_VALUE;
+    /** Terminal whose name is longer than one character; input is matched one character at a time. */
+    private static final int NO_MATCH = Integer.MIN_VALUE + 1;
+
+    /** Number of non-terminals, including the augmented start symbol. */
+    private final int nonTerminals;
+    /** Dotted rule -> non-terminal id, terminal {@code -1 - c}, {@link #NO_MATCH} or {@link #COMPLETE}. */
+    private final int[] next;
+    /** Dotted rule -> left-hand side. */
+    private final int[] lhs;
+    /** Non-terminal -> first index of its productions in {@link #predictions}. */
+    private final int[] predictionStart;
+    /** Dotted rules with the dot at the start, grouped by left-hand side. */
+    private final int[] predictions;
+    private final boolean[] nullable;
+
+    private EarleyRecognizer(int nonTerminals, int[] next, int[] lhs, int[] predictionStart,
+                             int[] predictions, boolean[] nullable) {
+        this.nonTerminals = nonTerminals;
+        this.next = next;
+        this.lhs = lhs;
+        this.predictionStart = predictionStart;
+        this.predictions = predictions;
+        this.nullable = nullable;
+    }
+
+    /**
+     * Compiles a grammar. An augmented rule {@code S' -> S} becomes dotted rules 0 and 1, so
+     * the input is accepted when the last set holds dotted rule 1 with origin 0.
+     */
+    static EarleyRecognizer compile(Set<NonTerminal> variables, List<Production> productions,
+                                    NonTerminal start, Set<NonTerminal> nullableVariables) {
+        Map<NonTerminal, Integer> ids = new HashMap<>();
+        for (NonTerminal variable : variables) {
+            ids.putIfAbsent(variable, ids.size());
+        }
+        for (Production p : productions) {
+            ids.putIfAbsent(p.getLeft(), ids.size());
+            for (Symbol s : p.getRight()) {
+                if (s instanceof NonTerminal) {
+                    ids.putIfAbsent((NonTerminal) s, ids.size());
+                }
+            }
+        }
+        ids.putIfAbsent(start, ids.size());
+        int augmented = ids.size();
+        int nonTerminals = augmented + 1;
+
+        int dottedRules = 2;
+        for (Production p : productions) {
+            dottedRules += p.getRight().size() + 1;
+        }
+        int[] next = new int[dottedRules];
+        int[] lhs = new int[dottedRules];
+        int[] predictionStart = new int[nonTerminals + 1];
+        int[] ruleBase = new int[productions.size()];
+
+        next[0] = ids.get(start);
+        next[1] = COMPLETE;
+        lhs[0] = augmented;
+        lhs[1] = augmented;
+        int d = 2;
+        for (int r = 0; r < productions.size(); r++) {
+            Production p = productions.get(r);
+            int left = ids.get(p.getLeft());
+            ruleBase[r] = d;
+            predictionStart[left + 1]++;
+            for (Symbol s : p.getRight()) {
+                lhs[d] = left;
+                next[d++] = symbolId(s, ids);
+            }
+            lhs[d] = left;
+            next[d++] = COMPLETE;
+        }
+        predictionStart[augmented + 1] = 1;
+        for (int a = 0; a < nonTerminals; a++) {
+            predictionStart[a + 1] += predictionStart[a];
+        }
+
+        int[] predictions = new int[productions.size() + 1];
+        int[] fill = Arrays.copyOf(predictionStart, nonTerminals);
+        for (int r = 0; r < productions.size(); r++) {
+            predictions[fill[lhs[ruleBase[r]]]++] = ruleBase[r];
+        }
+        predictions[fill[augmented]] = 0;
+
+        boolean[] nullable = new boolean[nonTerminals];
+        for (NonTerminal variable : nullableVariables) {
+            Integer id = ids.get(variable);
+            if (id != null) {
+                nullable[id] = true;
+            }
+        }
+        return new EarleyRecognizer(nonTerminals, next, lhs, predictionStart, predictions, nullable);
+    }
+
+    private static int symbolId(Symbol s, Map<NonTerminal, Integer> ids) {
+        if (s instanceof NonTerminal) {
+            return ids.get(s);
+        }
+        String name = s.getName();
+        return name.length() == 1 ? -1 - name.charAt(0) : NO_MATCH;
+    }
+
+    /**
+     * Decides whether the grammar derives the input. The budget is charged one step per item
+     * processed; a run that exceeds it returns false.
+     */
+    boolean recognize(String input, ExecutionBudget budget) {
+        int n = input.length();
+        Chart chart = new Chart(n);
+        chart.add(0, 0);
+        for (int k = 0; ; k++) {
+            for (int item = chart.setStart[k]; item < chart.size; item++) {
+                if (!budget.step()) {
+                    return false;
+                }
+                process(chart, k, item);
+            }
+            if (k == n) {
+                break;
+            }
+            chart.openSet(k + 1);
+            int terminal = -1 - input.charAt(k);
+            for (int item = chart.setStart[k]; item < chart.setStart[k + 1]; item++) {
+                int d = chart.dotted[item];
+                if (next[d] == terminal) {
+                    chart.add(d + 1, chart.origin[item]);
+                }
+            }
+            if (chart.size == chart.setStart[k + 1]) {
+                return false;
+            }
+        }
+        for (int item = chart.setStart[n]; item < chart.size; item++) {
+            if (chart.dotted[item] == 1 && chart.origin[item] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void process(Chart chart, int k, int item) {
+        int d = chart.dotted[item];
+        int origin = chart.origin[item];
+        int symbol = next[d];
+        if (symbol == COMPLETE) {
+            complete(chart, k, lhs[d], origin);
+        } else if (symbol >= 0) {
+            int slot = k * nonTerminals + symbol;
+            chart.waitNext[item] = chart.waitHead[slot];
+            chart.waitHead[slot] = item;
+            if (chart.predicted[symbol] != k + 1) {
+                chart.predicted[symbol] = k + 1;
+                for (int p = predictionStart[symbol]; p < predictionStart[symbol + 1]; p++) {
+                    chart.add(predictions[p], k);
+                }
+            }
+            if (nullable[symbol]) {
+                chart.add(d + 1, origin);
+            }
+        }
+    }
+
+    /**
+     * Advances the items of set {@code origin} waiting for {@code a}. Items of the current set
+     * waiting for a nullable {@code a} are advanced when they are predicted instead.
+     */
+    private void complete(Chart chart, int k, int a, int origin) {
+        if (origin < k) {
+            long top = leoItem(chart, origin, a);
+            if (top != Chart.NONE) {
+                chart.add((int) (top >>> 32), (int) top);
+                return;
+            }
+        }
+        for (int w = chart.waitHead[origin * nonTerminals + a]; w >= 0; w = chart.waitNext[w]) {
+            chart.add(chart.dotted[w] + 1, chart.origin[w]);
+        }
+    }
+
+    /**
+     * Returns Leo's topmost complete item for completing {@code a} into the finished set
+     * {@code j}: if exactly one item of set {@code j} waits for {@code a} and {@code a} is its
+     * last symbol, completing {@code a} completes that item too, and so on down a chain whose
+     * last complete item is the only one that can advance anything else. Computed iteratively
+     * and memoized per set and non-terminal.
+     *
+     * @return the item as {@code dotted << 32 | origin}, or {@link Chart#NONE}
+     */
+    private long leoItem(Chart chart, int j, int a) {
+        int depth = 0;
+        long result;
+        while (true) {
+            int slot = j * nonTerminals + a;
+            long known = chart.leo[slot];
+            if (known != Chart.UNKNOWN) {
+                result = known;
+                break;
+            }
+            int w = chart.waitHead[slot];
+            if (w < 0 || chart.waitNext[w] >= 0 || next[chart.dotted[w] + 1] != COMPLETE) {
+                chart.leo[slot] = Chart.NONE;
+                result = Chart.NONE;
+                break;
+            }
+            int i = chart.origin[w];
+            long own = (long) (chart.dotted[w] + 1) << 32 | i;
+            if (i == j) {
+                chart.leo[slot] = own;
+                result = own;
+                break;
+            }
+            chart.pushLeoPath(depth++, slot, own);
+            j = i;
+            a = lhs[chart.dotted[w]];
+        }
+        while (depth > 0) {
+            depth--;
+            if (result == Chart.NONE) {
+                result = chart.leoPathOwn[depth];
+            }
+            chart.leo[chart.leoPathSlot[depth]] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Earley sets of one run. The items of all sets are kept in parallel arrays, set by set;
+     * items waiting for a non-terminal are linked per set, and duplicates within the set being
+     * built are rejected through an open-addressing table that is reset by generation.
+     */
+    private final class Chart {
+        static final long UNKNOWN = -2L;
+        static final long NONE = -1L;
+
+        int[] dotted = new int[64];
+        int[] origin = new int[64];
+        int[] waitNext = new int[64];
+        int size;
+        final int[] setStart;
+
+        final int[] waitHead;
+        final int[] predicted;
+        final long[] leo;
+        int[] leoPathSlot;
+        long[] leoPathOwn;
+
+        private long[] keys = new long[64];
+        private int[] generation = new int[64];
+        private int currentSet;
+
+        Chart(int n) {
+            setStart = new int[n + 2];
+            waitHead = new int[(n + 1) * nonTerminals];
+            Arrays.fill(waitHead, -1);
+            predicted = new int[nonTerminals];
+            leo = new long[(n + 1) * nonTerminals];
+            Arrays.fill(leo, UNKNOWN);
+        }
+
+        /** Starts collecting items into set {@code k}. */
+        void openSet(int k) {
+            setStart[k] = size;
+            currentSet = k;
+        }
+
+        /** Adds an item to the set being built unless it is already there. */
+        void add(int d, int from) {
+            long key = (long) d << 32 | from;
+            int mask = keys.length - 1;
+            int stamp = currentSet + 1;
+            int h = mix(key) & mask;
+            while (generation[h] == stamp) {
+                if (keys[h] == key) {
+                    return;
+                }
+                h = (h + 1) & mask;
+            }
+            if (size == dotted.length) {
+                dotted = Arrays.copyOf(dotted, size * 2);
+                origin = Arrays.copyOf(origin, size * 2);
+                waitNext = Arrays.copyOf(waitNext, size * 2);
+            }
+            dotted[size] = d;
+            origin[size] = from;
+            waitNext[size] = -1;
+            size++;
+            if ((size - setStart[currentSet]) * 2 > keys.length) {
+                rehash();
+            } else {
+                keys[h] = key;
+                generation[h] = stamp;
+            }
+        }
+
+        private void rehash() {
+            keys = new long[keys.length * 2];
+            generation = new int[keys.length];
+            int mask = keys.length - 1;
+            int stamp = currentSet + 1;
+            for (int item = setStart[currentSet]; item < size; item++) {
+                long key = (long) dotted[item] << 32 | origin[item];
+                int h = mix(key) & mask;
+                while (generation[h] == stamp) {
+                    h = (h + 1) & mask;
+                }
+                keys[h] = key;
+                generation[h] = stamp;
+            }
+        }
+
+        void pushLeoPath(int depth, int slot, long own) {
+            if (leoPathSlot == null || depth == leoPathSlot.length) {
+                int capacity = leoPathSlot == null ? 16 : depth * 2;
+                leoPathSlot = leoPathSlot == null ? new int[capacity] : Arrays.copyOf(leoPathSlot, capacity);
+                leoPathOwn = leoPathOwn == null ? new long[capacity] : Arrays.copyOf(leoPathOwn, capacity);
+            }
+            leoPathSlot[depth] = slot;
+            leoPathOwn[depth] = own;
+        }
+
+        private int mix(long key) {
+            long z = key * 0x9E3779B97F4A7C15L;
+            return (int) (z ^ (z >>> 32));
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package ContextFreeGrammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import common.Symbol;
+
+/**
+ * FIRST and FOLLOW sets of a {@link CFG}, and the deterministic parsers built from them.
+ * <p>
+ * The grammar is augmented with a rule {@code S' -> S}, which is rule 0. Non-terminals are
+ * interned to {@code 0..nonTerminals-1}, with {@code S'} last; terminal {@code t} is written
+ * {@code -1 - t} in right-hand sides, and terminal index {@link #end} is the end of the input.
+ * Terminals with names longer than one character get an index too but never match an input
+ * character, as in the other engines.
+ * </p>
+ * The analysis and both parsers are immutable and can be shared between threads.
+ */
+final class GrammarAnalysis {
+
+    final int nonTerminals;
+    /** Index of the end-of-input marker; terminals are {@code 0..end-1}. */
+    final int end;
+    final int start;
+    final int[] lhs;
+    final int[][] rhs;
+    /** Non-terminal -> indices of its rules. */
+    final int[][] rulesOf;
+    final boolean[] nullable;
+    final BitSet[] first;
+    final BitSet[] follow;
+
+    private final String[] nonTerminalNames;
+    private final String[] terminalNames;
+    /** Input character -> terminal index, -1 if no terminal has that one-character name. */
+    private final int[] terminalIndex;
+
+    private final LLParser llParser;
+    private final List<String> llConflicts;
+    private final LRParser lrParser;
+    private final List<String> lrConflicts;
+
+    GrammarAnalysis(List<Production> productions, NonTerminal startSymbol) {
+        Map<String, Integer> nonTerminalIds = new LinkedHashMap<>();
+        Map<String, Integer> terminalIds = new LinkedHashMap<>();
+        nonTerminalIds.put(startSymbol.getName(), 0);
+        for (Production p : productions) {
+            nonTerminalIds.putIfAbsent(p.getLeft().getName(), nonTerminalIds.size());
+            for (Symbol s : p.getRight()) {
+                if (s instanceof NonTerminal) {
+                    nonTerminalIds.putIfAbsent(s.getName(), nonTerminalIds.size());
+                } else {
+                    terminalIds.putIfAbsent(s.getName(), terminalIds.size());
+                }
+            }
+        }
+        int augmented = nonTerminalIds.size();
+        nonTerminals = augmented + 1;
+        end = terminalIds.size();
+        start = augmented;
+
+        nonTerminalNames = new String[nonTerminals];
+        for (Map.Entry<String, Integer> e : nonTerminalIds.entrySet()) {
+            nonTerminalNames[e.getValue()] = e.getKey();
+        }
+        nonTerminalNames[augmented] = startSymbol.getName() + "'";
+        terminalNames = new String[end + 1];
+        int maxChar = -1;
+        for (Map.Entry<String, Integer> e : terminalIds.entrySet()) {
+            terminalNames[e.getValue()] = e.getKey();
+            if (e.getKey().length() == 1) {
+                maxChar = Math.max(maxChar, e.getKey().charAt(0));
+            }
+        }
+        terminalNames[end] = "end of input";
+        terminalIndex = new int[maxChar + 1];
+        Arrays.fill(terminalIndex, -1);
+        for (Map.Entry<String, Integer> e : terminalIds.entrySet()) {
+            if (e.getKey().length() == 1) {
+                terminalIndex[e.getKey().charAt(0)] = e.getValue();
+            }
+        }
+
+        int rules = productions.size() + 1;
+        lhs = new int[rules];
+        rhs = new int[rules][];
+        lhs[0] = augmented;
+        rhs[0] = new int[]{0};
+        for (int r = 1; r < rules; r++) {
+            Production p = productions.get(r - 1);
+            lhs[r] = nonTerminalIds.get(p.getLeft().getName());
+            rhs[r] = new int[p.getRight().size()];
+            for (int i = 0; i < rhs[r].length; i++) {
+                Symbol s = p.getRight().get(i);
+                rhs[r][i] = s instanceof NonTerminal
+                        ? nonTerminalIds.get(s.getName())
+                        : -1 - terminalIds.get(s.getName());
+            }
+        }
+        List<List<Integer>> byLeft = new ArrayList<>();
+        for (int a = 0; a < nonTerminals; a++) {
+            byLeft.add(new ArrayList<>());
+        }
+        for (int r = 0; r < rules; r++) {
+            byLeft.get(lhs[r]).add(r);
+        }
+        rulesOf = new int[nonTerminals][];
+        for (int a = 0; a < nonTerminals; a++) {
+            rulesOf[a] = byLeft.get(a).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        nullable = new boolean[nonTerminals];
+        first = new BitSet[nonTerminals];
+        follow = new BitSet[nonTerminals];
+        for (int a = 0; a < nonTerminals; a++) {
+            first[a] = new BitSet(end + 1);
+            follow[a] = new BitSet(end + 1);
+        }
+        computeFirstSets();
+        computeFollowSets();
+
+        List<String> conflicts = new ArrayList<>();
+        llParser = LLParser.build(this, conflicts);
+        llConflicts = Collections.unmodifiableList(conflicts);
+        conflicts = new ArrayList<>();
+        lrParser = LRParser.build(this, conflicts);
+        lrConflicts = Collections.unmodifiableList(conflicts);
+    }
+
+    private void computeFirstSets() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 0; r < lhs.length; r++) {
+                int a = lhs[r];
+                int before = first[a].cardinality();
+                boolean allNullable = firstOf(rhs[r], 0, first[a]);
+                if (allNullable && !nullable[a]) {
+                    nullable[a] = true;
+                    changed = true;
+                }
+                changed |= first[a].cardinality() != before;
+            }
+        }
+    }
+
+    private void computeFollowSets() {
+        follow[start].set(end);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 0; r < lhs.length; r++) {
+                int[] body = rhs[r];
+                for (int i = 0; i < body.length; i++) {
+                    int b = body[i];
+                    if (b < 0) {
+                        continue;
+                    }
+                    int before = follow[b].cardinality();
+                    if (firstOf(body, i + 1, follow[b])) {
+                        follow[b].or(follow[lhs[r]]);
+                    }
+                    changed |= follow[b].cardinality() != before;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds FIRST of {@code symbols[from..]} to {@code out}.
+     *
+     * @return true if that suffix derives the empty string
+     */
+    boolean firstOf(int[] symbols, int from, BitSet out) {
+        for (int i = from; i < symbols.length; i++) {
+            int s = symbols[i];
+            if (s < 0) {
+                out.set(-1 - s);
+                return false;
+            }
+            out.or(first[s]);
+            if (!nullable[s]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the terminal index of an input character, -1 if it is not a terminal
+     */
+    int terminalOf(char c) {
+        return c < terminalIndex.length ? terminalIndex[c] : -1;
+    }
+
+    String terminalName(int t) {
+        return t == end ? terminalNames[t] : "'" + terminalNames[t] + "'";
+    }
+
+    String nonTerminalName(int a) {
+        return nonTerminalNames[a];
+    }
+
+    String ruleToString(int r) {
+        StringBuilder sb = new StringBuilder(nonTerminalNames[lhs[r]]).append(" ->");
+        if (rhs[r].length == 0) {
+            sb.append(" eps");
+        }
+        for (int s : rhs[r]) {
+            sb.append(' ').append(s >= 0 ? nonTerminalNames[s] : terminalNames[-1 - s]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the LL(1) parser, or null if the grammar is not LL(1)
+     */
+    LLParser getLLParser() {
+        return llParser;
+    }
+
+    List<String> getLLConflicts() {
+        return llConflicts;
+    }
+
+    /**
+     * @return the LR parser, or null if the grammar is not LR(1)
+     */
+    LRParser getLRParser() {
+        return lrParser;
+    }
+
+    List<String> getLRConflicts() {
+        return lrConflicts;
+    }
+
+    /**
+     * Collects distinct conflict descriptions in the order they are found.
+     */
+    static void addConflict(List<String> conflicts, Set<String> seen, String conflict) {
+        if (seen.add(conflict)) {
+            conflicts.add(conflict);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ContextFreeGrammar;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import common.ExecutionBudget;
+
+/**
+ * Table-driven LL(1) recognizer. The table maps a non-terminal and a lookahead terminal to the
+ * one rule that can apply, so the input is recognized in linear time with an explicit stack.
+ */
+final class LLParser {
+
+    private final GrammarAnalysis grammar;
+    /** [non-terminal * (end + 1) + terminal] -> rule, -1 if none. */
+    private final int[] table;
+
+    private LLParser(GrammarAnalysis grammar, int[] table) {
+        this.grammar = grammar;
+        this.table = table;
+    }
+
+    /**
+     * Fills the LL(1) table: rule {@code A -> α} goes under every terminal in FIRST(α), and
+     * under FOLLOW(A) as well if α derives the empty string.
+     *
+     * @param conflicts receives a description of every cell claimed by two rules
+     * @return the parser, or null if there are conflicts
+     */
+    static LLParser build(GrammarAnalysis grammar, List<String> conflicts) {
+        int width = grammar.end + 1;
+        int[] table = new int[grammar.nonTerminals * width];
+        Arrays.fill(table, -1);
+        Set<String> seen = new HashSet<>();
+        for (int r = 0; r < grammar.lhs.length; r++) {
+            int a = grammar.lhs[r];
+            BitSet lookaheads = new BitSet(width);
+            if (grammar.firstOf(grammar.rhs[r], 0, lookaheads)) {
+                lookaheads.or(grammar.follow[a]);
+            }
+            for (int t = lookaheads.nextSetBit(0); t >= 0; t = lookaheads.nextSetBit(t + 1)) {
+                int cell = a * width + t;
+                if (table[cell] >= 0 && table[cell] != r) {
+                    GrammarAnalysis.addConflict(conflicts, seen, String.format(
+                            "LL(1) conflict for %s on %s: %s and %s", grammar.nonTerminalName(a),
+                            grammar.terminalName(t), grammar.ruleToString(table[cell]), grammar.ruleToString(r)));
+                } else {
+                    table[cell] = r;
+                }
+            }
+        }
+        return conflicts.isEmpty() ? new LLParser(grammar, table) : null;
+    }
+
+    /**
+     * Decides whether the grammar derives the input, one budget step per expansion or match.
+     */
+    boolean recognize(String input, ExecutionBudget budget) {
+        int width = grammar.end + 1;
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = grammar.start;
+        int position = 0;
+        int lookahead = lookahead(input, 0);
+        while (top > 0) {
+            if (lookahead < 0 || !budget.step()) {
+                return false;
+            }
+            int symbol = stack[--top];
+            if (symbol < 0) {
+                if (-1 - symbol != lookahead) {
+                    return false;
+                }
+                lookahead = lookahead(input, ++position);
+                continue;
+            }
+            int rule = table[symbol * width + lookahead];
+            if (rule < 0) {
+                return false;
+            }
+            int[] body = grammar.rhs[rule];
+            if (top + body.length > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + body.length));
+            }
+            for (int i = body.length - 1; i >= 0; i--) {
+                stack[top++] = body[i];
+            }
+        }
+        return lookahead == grammar.end;
+    }
+
+    /**
+     * @return the terminal at the position, {@code end} past the input, -1 for a character
+     *         that is not a terminal
+     */
+    private int lookahead(String input, int position) {
+        return position == input.length() ? grammar.end : grammar.terminalOf(input.charAt(position));
+    }
+}
@@ -0,0 +1,300 @@
+package ContextFreeGrammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import common.ExecutionBudget;
+
+/**
+ * Table-driven shift-reduce recognizer for LR(1) grammars.
+ * <p>
+ * {@link #build(GrammarAnalysis, List)} constructs the canonical LR(1) automaton and merges
+ * states with the same core into the LALR(1) automaton. The LALR(1) tables are used when they
+ * have no conflicts; otherwise the larger canonical tables are used if those have none. An item
+ * is a {@code long}: rule, dot position and lookahead terminal in 20 bits each.
+ * </p>
+ */
+final class LRParser {
+
+    /** Automata with more states than this are not built. */
+    static final int MAX_STATES = 4096;
+
+    private static final int ERROR = -1;
+    private static final int ACCEPT = Integer.MIN_VALUE;
+
+    private final GrammarAnalysis grammar;
+    private final String kind;
+    /** [state * (end + 1) + terminal] -> shift target (>= 0), reduce {@code -2 - rule}, ACCEPT or ERROR. */
+    private final int[] action;
+    /** [state * nonTerminals + non-terminal] -> target state. */
+    private final int[] goTo;
+
+    private LRParser(GrammarAnalysis grammar, String kind, int[] action, int[] goTo) {
+        this.grammar = grammar;
+        this.kind = kind;
+        this.action = action;
+        this.goTo = goTo;
+    }
+
+    /**
+     * @return "LALR(1)" or "LR(1)", the tables in use
+     */
+    String getKind() {
+        return kind;
+    }
+
+    /**
+     * Builds the parser.
+     *
+     * @param conflicts receives the conflicts of the canonical LR(1) tables, or a note that the
+     *                  automaton is too large
+     * @return the parser, or null if the grammar is not LR(1)
+     */
+    static LRParser build(GrammarAnalysis grammar, List<String> conflicts) {
+        ItemSets lr1 = ItemSets.canonical(grammar);
+        if (lr1 == null) {
+            conflicts.add("LR(1) automaton exceeds " + MAX_STATES + " states");
+            return null;
+        }
+        List<String> lalrConflicts = new ArrayList<>();
+        ItemSets lalr = lr1.mergeCores();
+        int[][] tables = lalr.tables(grammar, lalrConflicts);
+        if (lalrConflicts.isEmpty()) {
+            return new LRParser(grammar, "LALR(1)", tables[0], tables[1]);
+        }
+        tables = lr1.tables(grammar, conflicts);
+        return conflicts.isEmpty() ? new LRParser(grammar, "LR(1)", tables[0], tables[1]) : null;
+    }
+
+    /**
+     * Decides whether the grammar derives the input, one budget step per shift or reduce.
+     */
+    boolean recognize(String input, ExecutionBudget budget) {
+        int width = grammar.end + 1;
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = 0;
+        int position = 0;
+        int lookahead = lookahead(input, 0);
+        while (true) {
+            if (lookahead < 0 || !budget.step()) {
+                return false;
+            }
+            int act = action[stack[top - 1] * width + lookahead];
+            if (act == ACCEPT) {
+                return true;
+            }
+            if (act == ERROR) {
+                return false;
+            }
+            if (act >= 0) {
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                }
+                stack[top++] = act;
+                lookahead = lookahead(input, ++position);
+                continue;
+            }
+            int rule = -2 - act;
+            top -= grammar.rhs[rule].length;
+            int target = goTo[stack[top - 1] * grammar.nonTerminals + grammar.lhs[rule]];
+            if (top == stack.length) {
+                stack = Arrays.copyOf(stack, top * 2);
+            }
+            stack[top++] = target;
+        }
+    }
+
+    private int lookahead(String input, int position) {
+        return position == input.length() ? grammar.end : grammar.terminalOf(input.charAt(position));
+    }
+
+    private static long item(int rule, int dot, int lookahead) {
+        return (long) rule << 40 | (long) dot << 20 | lookahead;
+    }
+
+    private static int rule(long item) {
+        return (int) (item >>> 40);
+    }
+
+    private static int dot(long item) {
+        return (int) (item >>> 20) & 0xFFFFF;
+    }
+
+    private static int lookahead(long item) {
+        return (int) item & 0xFFFFF;
+    }
+
+    /**
+     * States as closed, sorted item sets with their transitions on each symbol.
+     */
+    private static final class ItemSets {
+        final List<long[]> states = new ArrayList<>();
+        /** Per state: symbol (non-terminal id, or {@code -1 - terminal}) -> target state. */
+        final List<Map<Integer, Integer>> transitions = new ArrayList<>();
+
+        static ItemSets canonical(GrammarAnalysis grammar) {
+            ItemSets automaton = new ItemSets();
+            Map<List<Long>, Integer> ids = new HashMap<>();
+            List<Long> startKernel = new ArrayList<>();
+            startKernel.add(item(0, 0, grammar.end));
+            ids.put(startKernel, 0);
+            automaton.add(closure(grammar, startKernel));
+            for (int s = 0; s < automaton.states.size(); s++) {
+                Map<Integer, TreeSet<Long>> kernels = new HashMap<>();
+                for (long it : automaton.states.get(s)) {
+                    int[] body = grammar.rhs[rule(it)];
+                    int dot = dot(it);
+                    if (dot < body.length) {
+                        kernels.computeIfAbsent(body[dot], k -> new TreeSet<>())
+                                .add(item(rule(it), dot + 1, lookahead(it)));
+                    }
+                }
+                for (Map.Entry<Integer, TreeSet<Long>> e : kernels.entrySet()) {
+                    List<Long> kernel = new ArrayList<>(e.getValue());
+                    Integer target = ids.get(kernel);
+                    if (target == null) {
+                        if (automaton.states.size() == MAX_STATES) {
+                            return null;
+                        }
+                        target = automaton.states.size();
+                        ids.put(kernel, target);
+                        automaton.add(closure(grammar, kernel));
+                    }
+                    automaton.transitions.get(s).put(e.getKey(), target);
+                }
+            }
+            return automaton;
+        }
+
+        private void add(long[] items) {
+            states.add(items);
+            transitions.add(new HashMap<>());
+        }
+
+        private static long[] closure(GrammarAnalysis grammar, List<Long> kernel) {
+            Set<Long> items = new HashSet<>(kernel);
+            List<Long> work = new ArrayList<>(kernel);
+            BitSet lookaheads = new BitSet(grammar.end + 1);
+            while (!work.isEmpty()) {
+                long it = work.remove(work.size() - 1);
+                int[] body = grammar.rhs[rule(it)];
+                int dot = dot(it);
+                if (dot == body.length || body[dot] < 0) {
+                    continue;
+                }
+                lookaheads.clear();
+                if (grammar.firstOf(body, dot + 1, lookaheads)) {
+                    lookaheads.set(lookahead(it));
+                }
+                for (int r : grammar.rulesOf[body[dot]]) {
+                    for (int t = lookaheads.nextSetBit(0); t >= 0; t = lookaheads.nextSetBit(t + 1)) {
+                        long predicted = item(r, 0, t);
+                        if (items.add(predicted)) {
+                            work.add(predicted);
+                        }
+                    }
+                }
+            }
+            long[] sorted = new long[items.size()];
+            int i = 0;
+            for (long it : items) {
+                sorted[i++] = it;
+            }
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        /**
+         * Merges states whose items agree on rule and dot position, uniting their lookaheads.
+         */
+        ItemSets mergeCores() {
+            Map<List<Long>, Integer> ids = new HashMap<>();
+            int[] merged = new int[states.size()];
+            ItemSets lalr = new ItemSets();
+            List<Set<Long>> items = new ArrayList<>();
+            for (int s = 0; s < states.size(); s++) {
+                TreeSet<Long> core = new TreeSet<>();
+                for (long it : states.get(s)) {
+                    core.add(item(rule(it), dot(it), 0));
+                }
+                List<Long> key = new ArrayList<>(core);
+                Integer id = ids.get(key);
+                if (id == null) {
+                    id = items.size();
+                    ids.put(key, id);
+                    items.add(new TreeSet<>());
+                }
+                merged[s] = id;
+                for (long it : states.get(s)) {
+                    items.get(id).add(it);
+                }
+            }
+            for (Set<Long> set : items) {
+                long[] sorted = new long[set.size()];
+                int i = 0;
+                for (long it : set) {
+                    sorted[i++] = it;
+                }
+                lalr.add(sorted);
+            }
+            for (int s = 0; s < states.size(); s++) {
+                for (Map.Entry<Integer, Integer> e : transitions.get(s).entrySet()) {
+                    lalr.transitions.get(merged[s]).put(e.getKey(), merged[e.getValue()]);
+                }
+            }
+            return lalr;
+        }
+
+        /**
+         * @return the action and goto tables; conflicting cells keep their first entry
+         */
+        int[][] tables(GrammarAnalysis grammar, List<String> conflicts) {
+            int width = grammar.end + 1;
+            int[] action = new int[states.size() * width];
+            int[] goTo = new int[states.size() * grammar.nonTerminals];
+            Arrays.fill(action, ERROR);
+            Arrays.fill(goTo, ERROR);
+            Set<String> seen = new HashSet<>();
+            for (int s = 0; s < states.size(); s++) {
+                for (Map.Entry<Integer, Integer> e : transitions.get(s).entrySet()) {
+                    int symbol = e.getKey();
+                    if (symbol >= 0) {
+                        goTo[s * grammar.nonTerminals + symbol] = e.getValue();
+                    } else {
+                        action[s * width + (-1 - symbol)] = e.getValue();
+                    }
+                }
+                for (long it : states.get(s)) {
+                    int r = rule(it);
+                    if (dot(it) != grammar.rhs[r].length) {
+                        continue;
+                    }
+                    int t = lookahead(it);
+                    int cell = s * width + t;
+                    int reduce = r == 0 ? ACCEPT : -2 - r;
+                    int current = action[cell];
+                    if (current == ERROR || current == reduce) {
+                        action[cell] = reduce;
+                    } else if (current >= 0) {
+                        GrammarAnalysis.addConflict(conflicts, seen, String.format(
+                                "LR(1) shift/reduce conflict on %s: shift or reduce %s",
+                                grammar.terminalName(t), grammar.ruleToString(r)));
+                    } else {
+                        GrammarAnalysis.addConflict(conflicts, seen, String.format(
+                                "LR(1) reduce/reduce conflict on %s: %s or %s", grammar.terminalName(t),
+                                grammar.ruleToString(current == ACCEPT ? 0 : -2 - current), grammar.ruleToString(r)));
+                    }
+                }
+            }
+            return new int[][]{action, goTo};
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import common.Automaton;
+import common.ExecutionBudget;
 import common.InputNormalizer;
 import common.State;
 import common.Symbol;
@@ -23,6 +24,8 @@ public class DFA extends Automaton {
   private State startState;
   private Set<State> finalStates;
 
+  private CompiledTable compiledTable;
+
   /**
    * Default constructor for DFA (used for parsing from text).
    */
@@ -116,6 +119,7 @@ public class DFA extends Automaton {
     this.finalStates = new HashSet<>();
     this.startState = null;
     this.transitions = new HashSet<>();
+    this.compiledTable = null;
 
     Map<String, State> stateMap = new HashMap<>();
     
@@ -149,6 +153,8 @@ public class DFA extends Automaton {
     checkForUnreachableStates(this.states, this.startState, this.transitions, messages);
     checkForDeadEndStates(this.states, this.finalStates, this.transitions, messages);
 
+    this.compiledTable = CompiledTable.compile(this.states, this.alphabet, this.startState, this.finalStates, this.transitions);
+
     return new ParseResult(true, messages, this);
   }
 
@@ -160,6 +166,18 @@ public class DFA extends Automaton {
    */
   @Override
   public ExecutionResult execute(String inputText) {
+    return execute(inputText, ExecutionOptions.FULL_TRACE);
+  }
+
+  /**
+   * Executes the DFA on a given input string, building only as much trace as requested.
+   *
+   * @param inputText The input string to process
+   * @param options Execution options; {@link TraceLevel#NONE} skips the trace entirely
+   * @return An ExecutionResult containing the result of the execution
+   */
+  @Override
+  public ExecutionResult execute(String inputText, ExecutionOptions options) {
     if (inputText == null) {
       throw new IllegalArgumentException("Input text cannot be null");
     }
@@ -191,56 +209,60 @@ public class DFA extends Automaton {
       return new ExecutionResult(false, runtimeMessages, "DFA not properly configured for execution");
     }
 
-    List<ValidationMessage> runtimeMessages = new ArrayList<>();
-    StringBuilder trace = new StringBuilder();
-    
-    State currentState = startState;
-    trace.append("Initial state: ").append(currentState.getName()).append("\n");
-    
+    CompiledTable table = compiledTable();
+    boolean fullTrace = options.isFullTrace();
+    StringBuilder trace = options.getTraceLevel() == TraceLevel.NONE ? null : new StringBuilder();
+
+    ExecutionBudget budget = ExecutionBudget.start(options);
+
+    int current = table.start;
+    if (fullTrace) {
+      trace.append("Initial state: ").append(table.states[current].getName()).append("\n");
+    }
+
     for (int i = 0; i < inputText.length(); i++) {
+      if (!budget.step()) {
+        List<ValidationMessage> runtimeMessages = new ArrayList<>();
+        runtimeMessages.add(budget.toMessage());
+        return new ExecutionResult(false, runtimeMessages, trace == null ? "" : trace.toString());
+      }
+
       char inputChar = inputText.charAt(i);
-      Symbol inputSymbol = new Symbol(inputChar);
-      
+      int symbol = table.symbolOf(inputChar);
+
       // Check if symbol is in alphabet
-      if (!alphabet.contains(inputSymbol)) {
+      if (symbol < 0) {
+        List<ValidationMessage> runtimeMessages = new ArrayList<>();
         runtimeMessages.add(new ValidationMessage("Symbol '" + inputChar + "' not in alphabet", i, ValidationMessage.ValidationMessageType.ERROR));
-        return new ExecutionResult(false, runtimeMessages, trace.toString());
+        return new ExecutionResult(false, runtimeMessages, trace == null ? "" : trace.toString());
       }
-      
-      // Find transition
-      Transition validTransition = null;
-      for (Transition transition : transitions) {
-        if (transition.getFrom().getName().equals(currentState.getName()) && 
-            transition.getSymbol().equals(inputSymbol)) {
-          validTransition = transition;
-          break;
+
+      int next = table.next[current][symbol];
+      if (next < 0) {
+        List<ValidationMessage> runtimeMessages = new ArrayList<>();
+        if (trace != null) {
+          trace.append("No transition from state ").append(table.states[current].getName())
+                .append(" on symbol '").append(inputChar).append("'\n");
         }
-      }
-      
-      if (validTransition == null) {
-        trace.append("No transition from state ").append(currentState.getName())
-              .append(" on symbol '").append(inputChar).append("'\n");
         runtimeMessages.add(new ValidationMessage("No transition defined", i, ValidationMessage.ValidationMessageType.ERROR));
-        return new ExecutionResult(false, runtimeMessages, trace.toString());
+        return new ExecutionResult(false, runtimeMessages, trace == null ? "" : trace.toString());
       }
-      
-      currentState = validTransition.getTo();
-      trace.append("Read '").append(inputChar).append("' -> state ").append(currentState.getName()).append("\n");
-    }
-    
-    // Check if final state
-    boolean accepted = false;
-    for (State finalState : finalStates) {
-      if (finalState.getName().equals(currentState.getName())) {
-        accepted = true;
-        break;
+
+      current = next;
+      if (fullTrace) {
+        trace.append("Read '").append(inputChar).append("' -> state ").append(table.states[current].getName()).append("\n");
       }
     }
-    
-    trace.append("Final state: ").append(currentState.getName());
+
+    boolean accepted = table.accepting[current];
+    if (trace == null) {
+      return new ExecutionResult(accepted, Collections.emptyList(), "");
+    }
+
+    trace.append("Final state: ").append(table.states[current].getName());
     trace.append(accepted ? " (ACCEPTED)" : " (REJECTED)").append("\n");
     
-    return new ExecutionResult(accepted, runtimeMessages, trace.toString());
+    return new ExecutionResult(accepted, new ArrayList<>(), trace.toString());
   }
 
   /**
@@ -629,25 +651,144 @@ public class DFA extends Automaton {
 
   /**
    * Checks if the DFA has all required transitions.
+   * The answer is computed once when the transition table is compiled.
    * @return true if all states have transitions for every symbol, false otherwise
    */
   private boolean hasAllTransitions() {
-    if (states == null || alphabet == null || transitions == null) {
-      return false;
+    return compiledTable().complete;
+  }
+
+  /**
+   * Returns the compiled transition table, building it on first use for DFAs
+   * created through the component constructor rather than {@link #parse(String)}.
+   *
+   * @return the compiled table for the current components
+   */
+  private CompiledTable compiledTable() {
+    CompiledTable table = compiledTable;
+    if (table == null) {
+      table = CompiledTable.compile(states, alphabet, startState, finalStates, transitions);
+      compiledTable = table;
     }
+    return table;
+  }
 
-    // Check if any state is missing a transition for any symbol
-    for (State state : states) {
-      Set<Symbol> symbolsForState = transitions.stream()
-        .filter(t -> t.getFrom().equals(state))
-        .map(Transition::getSymbol)
-        .collect(Collectors.toSet());
+  /**
+   * Dense, int-indexed form of the transition function used by {@link #execute(String)}.
+   * States are numbered in the order they are first seen, input characters are mapped
+   * to symbol indices through a direct lookup array, so a step is two array reads.
+   */
+  private static final class CompiledTable {
+    /** State id -> state, used for trace output. */
+    final State[] states;
+    /** Input character -> symbol index, -1 if the character is not in the alphabet. */
+    final int[] symbolIndex;
+    /** [state id][symbol index] -> next state id, -1 if undefined. */
+    final int[][] next;
+    /** State id -> true if the state is final. */
+    final boolean[] accepting;
+    final int start;
+    /** True if every declared state has a transition for every alphabet symbol. */
+    final boolean complete;
+
+    private CompiledTable(State[] states, int[] symbolIndex, int[][] next,
+                          boolean[] accepting, int start, boolean complete) {
+      this.states = states;
+      this.symbolIndex = symbolIndex;
+      this.next = next;
+      this.accepting = accepting;
+      this.start = start;
+      this.complete = complete;
+    }
+
+    int symbolOf(char c) {
+      return c < symbolIndex.length ? symbolIndex[c] : -1;
+    }
+
+    static CompiledTable compile(Set<State> states, Set<Symbol> alphabet, State startState,
+                                 Set<State> finalStates, Set<Transition> transitions) {
+      Map<String, Integer> ids = new HashMap<>();
+      List<State> order = new ArrayList<>();
+      if (states != null) {
+        for (State state : states) {
+          register(state, ids, order);
+        }
+      }
+      register(startState, ids, order);
+      if (transitions != null) {
+        for (Transition t : transitions) {
+          register(t.getFrom(), ids, order);
+          register(t.getTo(), ids, order);
+        }
+      }
+
+      int maxChar = -1;
+      if (alphabet != null) {
+        for (Symbol symbol : alphabet) {
+          maxChar = Math.max(maxChar, symbol.getValue());
+        }
+      }
+      int[] symbolIndex = new int[maxChar + 1];
+      Arrays.fill(symbolIndex, -1);
+      int symbolCount = 0;
+      if (alphabet != null) {
+        for (Symbol symbol : alphabet) {
+          if (symbolIndex[symbol.getValue()] < 0) {
+            symbolIndex[symbol.getValue()] = symbolCount++;
+          }
+        }
+      }
+
+      int[][] next = new int[order.size()][symbolCount];
+      for (int[] row : next) {
+        Arrays.fill(row, -1);
+      }
+      if (transitions != null) {
+        for (Transition t : transitions) {
+          char c = t.getSymbol().getValue();
+          int symbol = c < symbolIndex.length ? symbolIndex[c] : -1;
+          if (symbol < 0) {
+            continue;
+          }
+          int from = ids.get(t.getFrom().getName());
+          if (next[from][symbol] < 0) {
+            next[from][symbol] = ids.get(t.getTo().getName());
+          }
+        }
+      }
+
+      boolean[] accepting = new boolean[order.size()];
+      if (finalStates != null) {
+        for (State finalState : finalStates) {
+          Integer id = ids.get(finalState.getName());
+          if (id != null) {
+            accepting[id] = true;
+          }
+        }
+      }
+
+      boolean complete = states != null && alphabet != null && transitions != null;
+      if (complete) {
+        for (State state : states) {
+          for (int target : next[ids.get(state.getName())]) {
+            if (target < 0) {
+              complete = false;
+              break;
+            }
+          }
+        }
+      }
+
+      int start = startState != null ? ids.get(startState.getName()) : -1;
+      return new CompiledTable(order.toArray(new State[0]), symbolIndex, next, accepting, start, complete);
+    }
 
-      if (!symbolsForState.containsAll(alphabet)) {
-        return false;
+    private static void register(State state, Map<String, Integer> ids, List<State> order) {
+      if (state != null && !ids.containsKey(state.getName())) {
+        ids.put(state.getName(), order.size());
+        order.add(state);
       }
     }
-    return true;
   }
 
   /**
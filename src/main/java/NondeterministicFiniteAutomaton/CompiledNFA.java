@@ -0,0 +1,298 @@
+package NondeterministicFiniteAutomaton;
+
+import common.ExecutionBudget;
+import common.State;
+import common.Symbol;
+import java.util.*;
+
+/**
+ * Compiled, int-indexed form of an {@link NFA} used for simulation.
+ * <p>
+ * Every state is assigned an int id and every alphabet character a symbol index.
+ * Sets of states are represented as bitsets of {@code words} longs, epsilon-closures
+ * are computed once at compile time, and a step on a symbol is the union of the
+ * precomputed closed successor sets of the active states. NFAs with 64 states or
+ * fewer use a single {@code long} per set.
+ * </p>
+ * <p>
+ * Instances are immutable once compiled and can be shared between threads.
+ * </p>
+ */
+final class CompiledNFA {
+
+    /** State id -> state, in the order the states were first seen. */
+    final State[] states;
+    /** Input character -> symbol index, -1 if the character is not in the alphabet. */
+    final int[] symbolIndex;
+    final int symbolCount;
+    /** Number of longs in one state set. */
+    final int words;
+    final int start;
+
+    /** [state * words + w]: the state and everything reachable from it by epsilon moves. */
+    final long[] closure;
+    /** [state * words + w]: states reachable by one or more epsilon moves. */
+    final long[] epsilonReach;
+    /** [(state * symbolCount + symbol) * words + w]: epsilon-closure of the direct successors. */
+    final long[] step;
+    /** [state * symbolCount + symbol]: direct successors in definition order, used for tracing. */
+    final int[][] targets;
+    /** Accepting states as a state set. */
+    final long[] accepting;
+
+    private CompiledNFA(State[] states, int[] symbolIndex, int symbolCount, int words, int start,
+                        long[] closure, long[] epsilonReach, long[] step, int[][] targets, long[] accepting) {
+        this.states = states;
+        this.symbolIndex = symbolIndex;
+        this.symbolCount = symbolCount;
+        this.words = words;
+        this.start = start;
+        this.closure = closure;
+        this.epsilonReach = epsilonReach;
+        this.step = step;
+        this.targets = targets;
+        this.accepting = accepting;
+    }
+
+    /**
+     * Compiles the given NFA components.
+     *
+     * @param stateMap    map of state names to states, may be null
+     * @param alphabet    the input alphabet, may be null
+     * @param startState  the start state, may be null
+     * @param transitions outgoing transitions per state, may be null
+     * @return the compiled NFA
+     */
+    static CompiledNFA compile(Map<String, State> stateMap, Set<Symbol> alphabet, State startState,
+                               Map<State, List<Transition>> transitions) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<State> order = new ArrayList<>();
+        if (stateMap != null) {
+            for (State state : stateMap.values()) {
+                register(state, ids, order);
+            }
+        }
+        register(startState, ids, order);
+        if (transitions != null) {
+            for (Map.Entry<State, List<Transition>> entry : transitions.entrySet()) {
+                register(entry.getKey(), ids, order);
+                for (Transition t : entry.getValue()) {
+                    register(t.getFrom(), ids, order);
+                    register(t.getTo(), ids, order);
+                }
+            }
+        }
+
+        int n = order.size();
+        int words = Math.max(1, (n + 63) >>> 6);
+
+        int maxChar = -1;
+        if (alphabet != null) {
+            for (Symbol symbol : alphabet) {
+                maxChar = Math.max(maxChar, symbol.getValue());
+            }
+        }
+        int[] symbolIndex = new int[maxChar + 1];
+        Arrays.fill(symbolIndex, -1);
+        int symbolCount = 0;
+        if (alphabet != null) {
+            for (Symbol symbol : alphabet) {
+                if (symbolIndex[symbol.getValue()] < 0) {
+                    symbolIndex[symbol.getValue()] = symbolCount++;
+                }
+            }
+        }
+
+        // Direct successors per (state, symbol) and epsilon successors per state.
+        List<List<Integer>> direct = new ArrayList<>(n * symbolCount);
+        for (int i = 0; i < n * symbolCount; i++) {
+            direct.add(new ArrayList<>());
+        }
+        List<List<Integer>> epsilon = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            epsilon.add(new ArrayList<>());
+        }
+        if (transitions != null) {
+            for (Map.Entry<State, List<Transition>> entry : transitions.entrySet()) {
+                int from = ids.get(entry.getKey().getName());
+                for (Transition t : entry.getValue()) {
+                    int to = ids.get(t.getTo().getName());
+                    char c = t.getSymbol().getValue();
+                    if (t.getSymbol().isEpsilon()) {
+                        epsilon.get(from).add(to);
+                    }
+                    int symbol = c < symbolIndex.length ? symbolIndex[c] : -1;
+                    if (symbol >= 0) {
+                        direct.get(from * symbolCount + symbol).add(to);
+                    }
+                }
+            }
+        }
+
+        long[] epsilonReach = new long[n * words];
+        long[] closure = new long[n * words];
+        int[] stack = new int[Math.max(1, n)];
+        for (int s = 0; s < n; s++) {
+            int base = s * words;
+            int top = 0;
+            stack[top++] = s;
+            boolean[] seen = new boolean[n];
+            while (top > 0) {
+                int q = stack[--top];
+                for (int r : epsilon.get(q)) {
+                    if (!seen[r]) {
+                        seen[r] = true;
+                        epsilonReach[base + (r >>> 6)] |= 1L << r;
+                        stack[top++] = r;
+                    }
+                }
+            }
+            System.arraycopy(epsilonReach, base, closure, base, words);
+            closure[base + (s >>> 6)] |= 1L << s;
+        }
+
+        long[] step = new long[n * symbolCount * words];
+        int[][] targets = new int[n * symbolCount][];
+        for (int cell = 0; cell < n * symbolCount; cell++) {
+            List<Integer> list = direct.get(cell);
+            int[] cellTargets = new int[list.size()];
+            int base = cell * words;
+            for (int i = 0; i < cellTargets.length; i++) {
+                int to = list.get(i);
+                cellTargets[i] = to;
+                orInto(step, base, closure, to * words, words);
+            }
+            targets[cell] = cellTargets;
+        }
+
+        long[] accepting = new long[words];
+        for (int s = 0; s < n; s++) {
+            if (order.get(s).isAccept()) {
+                accepting[s >>> 6] |= 1L << s;
+            }
+        }
+
+        int start = startState != null ? ids.get(startState.getName()) : -1;
+        return new CompiledNFA(order.toArray(new State[0]), symbolIndex, symbolCount, words, start,
+                closure, epsilonReach, step, targets, accepting);
+    }
+
+    private static void register(State state, Map<String, Integer> ids, List<State> order) {
+        if (state != null && !ids.containsKey(state.getName())) {
+            ids.put(state.getName(), order.size());
+            order.add(state);
+        }
+    }
+
+    /**
+     * Returns the symbol index of the given character.
+     *
+     * @param c input character
+     * @return symbol index, or -1 if the character is not in the alphabet
+     */
+    int symbolOf(char c) {
+        return c < symbolIndex.length ? symbolIndex[c] : -1;
+    }
+
+    /**
+     * Decides acceptance of the input without building a trace.
+     *
+     * @param input  input string
+     * @param budget execution budget, polled once per character
+     * @return true if accepted; false if rejected, a character is not in the alphabet
+     *         or the budget ran out
+     */
+    boolean accepts(String input, ExecutionBudget budget) {
+        if (start < 0) {
+            return false;
+        }
+        return words == 1 ? acceptsSingleWord(input, budget) : acceptsMultiWord(input, budget);
+    }
+
+    private boolean acceptsSingleWord(String input, ExecutionBudget budget) {
+        long current = closure[start];
+        for (int i = 0, n = input.length(); i < n; i++) {
+            if (!budget.step()) {
+                return false;
+            }
+            int symbol = symbolOf(input.charAt(i));
+            if (symbol < 0) {
+                return false;
+            }
+            long next = 0L;
+            for (long bits = current; bits != 0; bits &= bits - 1) {
+                int s = Long.numberOfTrailingZeros(bits);
+                next |= step[s * symbolCount + symbol];
+            }
+            current = next;
+            if (current == 0L) {
+                return false;
+            }
+        }
+        return (current & accepting[0]) != 0;
+    }
+
+    private boolean acceptsMultiWord(String input, ExecutionBudget budget) {
+        long[] current = new long[words];
+        long[] next = new long[words];
+        System.arraycopy(closure, start * words, current, 0, words);
+        for (int i = 0, n = input.length(); i < n; i++) {
+            if (!budget.step()) {
+                return false;
+            }
+            int symbol = symbolOf(input.charAt(i));
+            if (symbol < 0) {
+                return false;
+            }
+            advance(current, symbol, next);
+            long[] swap = current;
+            current = next;
+            next = swap;
+            if (isEmpty(current)) {
+                return false;
+            }
+        }
+        return intersects(current, accepting);
+    }
+
+    /**
+     * Computes the set reached from {@code current} on {@code symbol}, including epsilon-closure.
+     *
+     * @param current active states
+     * @param symbol  symbol index
+     * @param next    destination set, overwritten
+     */
+    void advance(long[] current, int symbol, long[] next) {
+        Arrays.fill(next, 0L);
+        for (int w = 0; w < words; w++) {
+            for (long bits = current[w]; bits != 0; bits &= bits - 1) {
+                int s = (w << 6) + Long.numberOfTrailingZeros(bits);
+                orInto(next, 0, step, (s * symbolCount + symbol) * words, words);
+            }
+        }
+    }
+
+    static boolean isEmpty(long[] set) {
+        for (long word : set) {
+            if (word != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean intersects(long[] a, long[] b) {
+        for (int w = 0; w < a.length; w++) {
+            if ((a[w] & b[w]) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void orInto(long[] dst, int dstOffset, long[] src, int srcOffset, int length) {
+        for (int w = 0; w < length; w++) {
+            dst[dstOffset + w] |= src[srcOffset + w];
+        }
+    }
+}
@@ -2,6 +2,7 @@ package NondeterministicFiniteAutomaton;
 
 import common.Automaton;
 import common.Automaton.ValidationMessage.ValidationMessageType;
+import common.ExecutionBudget;
 import common.InputNormalizer;
 import common.State;
 import common.Symbol;
@@ -37,6 +38,35 @@ public class NFA extends Automaton {
     private State startState;
     private Set<State> finalStates;
     private Map<State, List<Transition>> transitions;
+    private CompiledNFA compiled;
+
+    private ExecutionMode executionMode = ExecutionMode.LAZY_DFA;
+    private int subsetCacheLimit = DEFAULT_SUBSET_CACHE_LIMIT;
+    private CacheEvictionPolicy cacheEvictionPolicy = CacheEvictionPolicy.FLUSH;
+    private SubsetCache subsetCache;
+
+    /** Default maximum number of state sets kept by the lazy subset-construction cache. */
+    public static final int DEFAULT_SUBSET_CACHE_LIMIT = 4096;
+
+    /**
+     * How {@link #execute(String)} tracks the set of active states.
+     */
+    public enum ExecutionMode {
+        /** Advance a bitset of active states on every character. */
+        BITSET,
+        /** Memoize subset-construction transitions across executions (on-the-fly DFA). */
+        LAZY_DFA
+    }
+
+    /**
+     * What the lazy subset-construction cache does once it holds the maximum number of sets.
+     */
+    public enum CacheEvictionPolicy {
+        /** Drop all cached sets and start building the cache again. */
+        FLUSH,
+        /** Keep the cached sets and simulate uncached ones with bitsets without memoizing them. */
+        FALL_BACK
+    }
 
     private static final boolean TIME = false;
     private static final boolean VERBOSE = false;
@@ -89,6 +119,8 @@ public class NFA extends Automaton {
         this.startState = null;
         this.finalStates = new HashSet<>();
         this.transitions = new HashMap<>();
+        this.compiled = null;
+        this.subsetCache = null;
 
         // Use InputNormalizer for consistent parsing
         InputNormalizer.NormalizedInput normalizedInput = InputNormalizer.normalize(inputText, MachineType.NFA);
@@ -132,6 +164,7 @@ public class NFA extends Automaton {
 
         if (isSuccess) {
             messages.addAll(validate());
+            this.compiled = CompiledNFA.compile(this.states, this.alphabet, this.startState, this.transitions);
         }
 
         return parseResult;
@@ -309,13 +342,25 @@ public class NFA extends Automaton {
      * @return {@link ExecutionResult}
      */
     public ExecutionResult execute(String inputText) {
+        return execute(inputText, ExecutionOptions.FULL_TRACE);
+    }
+
+    /**
+     * Executes the NFA on the given input text, building only as much trace as requested.
+     * With {@link TraceLevel#NONE} the input is run through the subset cache or the
+     * bitset simulator without recording any steps.
+     *
+     * @param inputText input string to execute on the NFA
+     * @param options   execution options
+     * @return {@link ExecutionResult}
+     */
+    @Override
+    public ExecutionResult execute(String inputText, ExecutionOptions options) {
 
         long time = System.nanoTime();
         List<ValidationMessage> runtimeMessages = new ArrayList<>();
         StringBuilder trace = new StringBuilder();
 
-        Set<State> currentStates = new LinkedHashSet<>();
-
         if (this.startState == null) {
             runtimeMessages.add(new ValidationMessage("Start state is not defined", -1, ValidationMessageType.ERROR));
             if (TIME){
@@ -325,20 +370,33 @@ public class NFA extends Automaton {
             return new ExecutionResult(false, runtimeMessages, "");
         }
 
-        currentStates.add(this.startState);
-        trace.append("Start state: ").append(this.startState.getName()).append("\n");
+        CompiledNFA nfa = compiled();
+        if (options.getTraceLevel() == TraceLevel.NONE) {
+            return executeUntraced(nfa, inputText, ExecutionBudget.start(options));
+        }
+        boolean fullTrace = options.isFullTrace();
+        ExecutionBudget budget = ExecutionBudget.start(options);
 
+        SubsetCache.Walk walk = executionMode == ExecutionMode.LAZY_DFA ? subsetCache(nfa).start() : null;
+        long[] currentStates = walk != null ? walk.states()
+                : Arrays.copyOfRange(nfa.closure, nfa.start * nfa.words, (nfa.start + 1) * nfa.words);
+        long[] nextStates = walk != null ? null : new long[nfa.words];
 
-        for (State s : getEpsilonClosure(currentStates)) {
-            trace.append("Epsilon-closure includes: ").append(s.getName()).append("\n");
-            currentStates.add(s);
+        if (fullTrace) {
+            trace.append("Start state: ").append(this.startState.getName()).append("\n");
+            appendClosure(nfa, Arrays.copyOfRange(nfa.epsilonReach, nfa.start * nfa.words, (nfa.start + 1) * nfa.words), trace);
         }
 
-        for (char c : inputText.toCharArray()) {
-            Symbol inputSymbol = new Symbol(c);
-            Set<State> nextStates = new LinkedHashSet<>();
+        for (int i = 0; i < inputText.length(); i++) {
+            if (!budget.step()) {
+                runtimeMessages.add(budget.toMessage());
+                return new ExecutionResult(false, runtimeMessages, trace.toString());
+            }
+
+            char c = inputText.charAt(i);
+            int symbol = nfa.symbolOf(c);
 
-            if (!this.alphabet.contains(inputSymbol)) {
+            if (symbol < 0) {
                 runtimeMessages.add(new ValidationMessage("Symbol not in alphabet: " + c, -1, ValidationMessageType.ERROR));
                 if (TIME){
                     System.out.println("Failed");
@@ -347,84 +405,172 @@ public class NFA extends Automaton {
                 return new ExecutionResult(false, runtimeMessages, trace.toString());
             }
 
-            for (State state : currentStates) {
-
-                for (Transition t : this.transitions.getOrDefault(state, Collections.emptyList())) {
-                    if (t.getSymbol().equals(inputSymbol)) {
-                        nextStates.add(t.getTo());
-                        trace.append("Transition: ").append(state.getName())
-                                .append(" --").append(c).append("--> ")
-                                .append(t.getTo().getName()).append("\n");
-                    }
-                }
-
+            if (fullTrace) {
+                appendStep(nfa, currentStates, symbol, c, trace);
             }
 
-            for (State s : getEpsilonClosure(nextStates)) {
-                trace.append("Epsilon-closure includes: ").append(s.getName()).append("\n");
-                nextStates.add(s);
+            if (walk != null) {
+                walk.advance(symbol);
+                currentStates = walk.states();
+            } else {
+                nfa.advance(currentStates, symbol, nextStates);
+                long[] swap = currentStates;
+                currentStates = nextStates;
+                nextStates = swap;
             }
-
-            currentStates = new LinkedHashSet<>(nextStates);
         }
 
-        currentStates.addAll(getEpsilonClosure(currentStates));
-
-        for (State state : currentStates) {
-            if (state.isAccept()) {
-                if (TIME) {
-                    System.out.println("Took " + (System.nanoTime() - time)/1_000_000.0 + " ms to execute NFA with " + inputText.length() + " character input.");
+        boolean accepted = walk != null ? walk.isAccepting() : CompiledNFA.intersects(currentStates, nfa.accepting);
+        if (!fullTrace) {
+            trace.append("Final states:");
+            for (int w = 0; w < nfa.words; w++) {
+                for (long bits = currentStates[w]; bits != 0; bits &= bits - 1) {
+                    trace.append(' ').append(nfa.states[(w << 6) + Long.numberOfTrailingZeros(bits)].getName());
                 }
-                return new ExecutionResult(true, runtimeMessages, trace.toString());
             }
+            trace.append(accepted ? " (ACCEPTED)" : " (REJECTED)").append("\n");
         }
         if (TIME){
             System.out.println("Took " + (System.nanoTime() - time)/1_000_000.0 + " ms to execute NFA with " + inputText.length() + " character input.");
         }
-        return new ExecutionResult(false, runtimeMessages, trace.toString());
+        return new ExecutionResult(accepted, runtimeMessages, trace.toString());
+    }
+
+    /**
+     * Runs the input without building a trace.
+     *
+     * @param nfa       the compiled NFA
+     * @param inputText input string
+     * @param budget    execution budget
+     * @return the execution result with an empty trace
+     */
+    private ExecutionResult executeUntraced(CompiledNFA nfa, String inputText, ExecutionBudget budget) {
+        for (int i = 0; i < inputText.length(); i++) {
+            char c = inputText.charAt(i);
+            if (nfa.symbolOf(c) < 0) {
+                List<ValidationMessage> runtimeMessages = new ArrayList<>();
+                runtimeMessages.add(new ValidationMessage("Symbol not in alphabet: " + c, -1, ValidationMessageType.ERROR));
+                return new ExecutionResult(false, runtimeMessages, "");
+            }
+        }
+        boolean accepted = executionMode == ExecutionMode.LAZY_DFA
+                ? subsetCache(nfa).accepts(inputText, budget)
+                : nfa.accepts(inputText, budget);
+        if (budget.isExhausted()) {
+            List<ValidationMessage> runtimeMessages = new ArrayList<>();
+            runtimeMessages.add(budget.toMessage());
+            return new ExecutionResult(false, runtimeMessages, "");
+        }
+        return new ExecutionResult(accepted, Collections.emptyList(), "");
     }
 
     /**
-     * Computes the epsilon-closure of a set of states.
-     * The epsilon-closure is the set of states reachable from the given states via epsilon transitions.
+     * Appends the trace lines for one step: every transition taken from the active
+     * states on the symbol, followed by the states added by epsilon-closure.
      *
-     * @param states the set of states from which to compute the epsilon-closure
-     * @return the set of states reachable via epsilon transitions
+     * @param nfa     the compiled NFA
+     * @param current active states before the step
+     * @param symbol  symbol index of the character read
+     * @param c       the character read
+     * @param trace   trace to append to
      */
-    private Set<State> getEpsilonClosure(Set<State> states) {
-        Set<State> queue = new LinkedHashSet<>(states);
-        Set<State> visited = new HashSet<>();
-        Set<State> returnQueue = new LinkedHashSet<>();
-
-        while (!queue.isEmpty()){
-
-            Iterator<State> it = queue.iterator();
-            State state = it.next();
-            it.remove();
-
-            for (Transition t : this.transitions.getOrDefault(state, Collections.emptyList())) {
-                if (t.getSymbol().isEpsilon() && !visited.contains(t.getTo())) {
-                    visited.add(t.getFrom());
-                    queue.add(t.getTo());
-                    returnQueue.add(t.getTo());
+    private static void appendStep(CompiledNFA nfa, long[] current, int symbol, char c, StringBuilder trace) {
+        int words = nfa.words;
+        long[] closure = new long[words];
+        for (int w = 0; w < words; w++) {
+            for (long bits = current[w]; bits != 0; bits &= bits - 1) {
+                int from = (w << 6) + Long.numberOfTrailingZeros(bits);
+                for (int to : nfa.targets[from * nfa.symbolCount + symbol]) {
+                    CompiledNFA.orInto(closure, 0, nfa.epsilonReach, to * words, words);
+                    trace.append("Transition: ").append(nfa.states[from].getName())
+                            .append(" --").append(c).append("--> ")
+                            .append(nfa.states[to].getName()).append("\n");
                 }
             }
+        }
+        appendClosure(nfa, closure, trace);
+    }
 
+    /**
+     * Appends one trace line per state in the given epsilon-closure set.
+     *
+     * @param nfa     the compiled NFA the set belongs to
+     * @param closure state set of states reached by epsilon moves
+     * @param trace   trace to append to
+     */
+    private static void appendClosure(CompiledNFA nfa, long[] closure, StringBuilder trace) {
+        for (int w = 0; w < closure.length; w++) {
+            for (long bits = closure[w]; bits != 0; bits &= bits - 1) {
+                int s = (w << 6) + Long.numberOfTrailingZeros(bits);
+                trace.append("Epsilon-closure includes: ").append(nfa.states[s].getName()).append("\n");
+            }
         }
+    }
 
-        return returnQueue;
+    /**
+     * Returns the compiled form of this NFA, compiling it on first use for NFAs
+     * built through the component constructor rather than {@link #parse(String)}.
+     *
+     * @return the compiled NFA
+     */
+    private CompiledNFA compiled() {
+        CompiledNFA nfa = this.compiled;
+        if (nfa == null) {
+            nfa = CompiledNFA.compile(this.states, this.alphabet, this.startState, this.transitions);
+            this.compiled = nfa;
+        }
+        return nfa;
     }
 
     /**
-     * Computes the epsilon-closure of a single state.
+     * Returns the subset-construction cache for the compiled NFA, creating it on first use.
+     * The cache is kept across {@link #execute(String)} calls until the NFA is re-parsed
+     * or the cache settings change.
      *
-     * @param state the state from which to compute the epsilon-closure
-     * @return the set of states reachable via epsilon transitions
+     * @param nfa the compiled NFA
+     * @return the cache
+     */
+    private synchronized SubsetCache subsetCache(CompiledNFA nfa) {
+        if (this.subsetCache == null) {
+            this.subsetCache = new SubsetCache(nfa, this.subsetCacheLimit, this.cacheEvictionPolicy);
+        }
+        return this.subsetCache;
+    }
+
+    /**
+     * Selects how {@link #execute(String)} tracks active states.
+     *
+     * @param executionMode the mode to use; {@link ExecutionMode#LAZY_DFA} by default
+     */
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = Objects.requireNonNull(executionMode, "executionMode");
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Configures the lazy subset-construction cache and clears it.
+     *
+     * @param maxSets maximum number of state sets kept, must be positive
+     * @param policy  what to do when the cache is full
+     * @throws IllegalArgumentException if maxSets is not positive
+     */
+    public synchronized void setSubsetCacheLimit(int maxSets, CacheEvictionPolicy policy) {
+        if (maxSets <= 0) {
+            throw new IllegalArgumentException("Subset cache limit must be positive: " + maxSets);
+        }
+        this.subsetCacheLimit = maxSets;
+        this.cacheEvictionPolicy = Objects.requireNonNull(policy, "policy");
+        this.subsetCache = null;
+    }
+
+    /**
+     * @return number of state sets currently held by the subset-construction cache
      */
-    private Set<State> getEpsilonClosure(State state){
-        Set<State> set = new LinkedHashSet<>();
-        set.add(state);
-        return getEpsilonClosure(set);
+    public synchronized int getSubsetCacheSize() {
+        return this.subsetCache == null ? 0 : this.subsetCache.size();
     }
 
     private int findLineNumberFromSectionLines(String line, Map<String, Integer> lineMap, List<String> sectionLines) {
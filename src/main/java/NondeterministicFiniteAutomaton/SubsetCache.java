@@ -0,0 +1,287 @@
+package NondeterministicFiniteAutomaton;
+
+import common.ExecutionBudget;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lazily built subset-construction cache for a {@link CompiledNFA}.
+ * <p>
+ * Every distinct set of NFA states reached while executing inputs is given an id,
+ * and the transition {@code (set id, symbol) -> set id} is memoized the first time
+ * it is taken. After warm-up an input is processed with one table lookup per
+ * character, as if the NFA had been converted to a DFA, but only the reachable
+ * part of that DFA is ever built.
+ * </p>
+ * <p>
+ * The number of cached sets is capped. When the cap is reached the cache either
+ * flushes and starts over ({@link NFA.CacheEvictionPolicy#FLUSH}) or stops
+ * memoizing and falls back to bitset simulation for the rest of the input
+ * ({@link NFA.CacheEvictionPolicy#FALL_BACK}). A flush replaces the table, so
+ * executions that are still walking the old table are not affected.
+ * </p>
+ */
+final class SubsetCache {
+
+    private final CompiledNFA nfa;
+    private final int maxSets;
+    private final NFA.CacheEvictionPolicy policy;
+
+    private volatile Table table;
+    private int flushCount;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param nfa     the compiled NFA whose state sets are cached
+     * @param maxSets maximum number of state sets kept, at least 1
+     * @param policy  what to do when the cap is reached
+     */
+    SubsetCache(CompiledNFA nfa, int maxSets, NFA.CacheEvictionPolicy policy) {
+        this.nfa = nfa;
+        this.maxSets = Math.max(1, maxSets);
+        this.policy = policy;
+        this.table = new Table();
+    }
+
+    /**
+     * Starts walking the cache from the start state's epsilon-closure.
+     *
+     * @return a walk positioned on the start set
+     */
+    Walk start() {
+        long[] startSet = Arrays.copyOfRange(nfa.closure, nfa.start * nfa.words, (nfa.start + 1) * nfa.words);
+        Walk walk = new Walk(table);
+        walk.enter(startSet);
+        return walk;
+    }
+
+    /**
+     * Decides acceptance of an input whose characters are all in the alphabet.
+     *
+     * @param input  input string
+     * @param budget execution budget, polled once per character
+     * @return true if the NFA accepts the input; false if it rejects or the budget ran out
+     */
+    boolean accepts(String input, ExecutionBudget budget) {
+        Walk walk = start();
+        for (int i = 0, n = input.length(); i < n; i++) {
+            if (!budget.step()) {
+                return false;
+            }
+            walk.advance(nfa.symbolOf(input.charAt(i)));
+        }
+        return walk.isAccepting();
+    }
+
+    /**
+     * @return number of state sets currently cached
+     */
+    int size() {
+        return table.size();
+    }
+
+    /**
+     * @return number of times the cache was flushed because it was full
+     */
+    synchronized int getFlushCount() {
+        return flushCount;
+    }
+
+    private synchronized Table flush(Table full) {
+        if (table == full) {
+            table = new Table();
+            flushCount++;
+        }
+        return table;
+    }
+
+    /**
+     * Position of one execution in the cache. Not shared between threads.
+     */
+    final class Walk {
+        private Table current;
+        private int id;
+        /** Current set when walking outside the cache, null while inside it. */
+        private long[] uncached;
+        private long[] scratch;
+
+        private Walk(Table table) {
+            this.current = table;
+        }
+
+        /**
+         * Moves to the set reached on the given symbol.
+         *
+         * @param symbol symbol index in the compiled NFA
+         */
+        void advance(int symbol) {
+            if (uncached != null) {
+                nfa.advance(uncached, symbol, scratch);
+                long[] swap = uncached;
+                uncached = scratch;
+                scratch = swap;
+                return;
+            }
+            int target = current.next(id, symbol);
+            if (target >= 0) {
+                id = target;
+                return;
+            }
+            long[] computed = new long[nfa.words];
+            nfa.advance(current.set(id), symbol, computed);
+            target = current.intern(computed);
+            if (target >= 0) {
+                current.link(id, symbol, target);
+                id = target;
+                return;
+            }
+            enter(computed);
+        }
+
+        private void enter(long[] set) {
+            int target = current.intern(set);
+            if (target < 0 && policy == NFA.CacheEvictionPolicy.FLUSH) {
+                current = flush(current);
+                target = current.intern(set);
+            }
+            if (target >= 0) {
+                id = target;
+            } else {
+                uncached = set;
+                scratch = new long[nfa.words];
+            }
+        }
+
+        /**
+         * @return the current state set; must not be modified
+         */
+        long[] states() {
+            return uncached != null ? uncached : current.set(id);
+        }
+
+        /**
+         * @return true if the current set contains an accepting state
+         */
+        boolean isAccepting() {
+            return uncached != null ? CompiledNFA.intersects(uncached, nfa.accepting) : current.isAccepting(id);
+        }
+    }
+
+    /**
+     * One generation of cached sets and memoized transitions.
+     * <p>
+     * Lookups take no lock: they read the current {@link Rows} through a volatile field and
+     * transitions through an {@link AtomicIntegerArray}. A set is stored before any transition
+     * to it is published, so a walk that reads a target id also sees its set. Only
+     * {@link #intern} and {@link #link} lock, and growing the table publishes new rows.
+     * </p>
+     */
+    private final class Table {
+        private final Map<SetKey, Integer> ids = new HashMap<>();
+        private volatile Rows rows = new Rows(16);
+        private int count;
+
+        synchronized int size() {
+            return count;
+        }
+
+        int next(int id, int symbol) {
+            return rows.next.get(id * nfa.symbolCount + symbol);
+        }
+
+        long[] set(int id) {
+            return rows.sets[id];
+        }
+
+        boolean isAccepting(int id) {
+            return rows.accepting[id];
+        }
+
+        synchronized void link(int id, int symbol, int target) {
+            rows.next.set(id * nfa.symbolCount + symbol, target);
+        }
+
+        /**
+         * Returns the id of the given set, adding it if there is room.
+         *
+         * @param set state set, owned by the table afterwards
+         * @return set id, or -1 if the table is full
+         */
+        synchronized int intern(long[] set) {
+            SetKey key = new SetKey(set);
+            Integer existing = ids.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            if (count >= maxSets) {
+                return -1;
+            }
+            Rows current = rows;
+            if (count == current.sets.length) {
+                current = current.grow(Math.min(maxSets, current.sets.length * 2));
+            }
+            int id = count++;
+            current.sets[id] = set;
+            current.accepting[id] = CompiledNFA.intersects(set, nfa.accepting);
+            rows = current;
+            ids.put(key, id);
+            return id;
+        }
+    }
+
+    /**
+     * Storage of one table: sets, their acceptance and the transitions between them.
+     */
+    private final class Rows {
+        final long[][] sets;
+        final boolean[] accepting;
+        /** [set id * symbolCount + symbol] -> set id, -1 if not computed yet. */
+        final AtomicIntegerArray next;
+
+        Rows(int capacity) {
+            sets = new long[capacity][];
+            accepting = new boolean[capacity];
+            int[] table = new int[Math.max(1, Math.min(capacity, maxSets) * nfa.symbolCount)];
+            Arrays.fill(table, -1);
+            next = new AtomicIntegerArray(table);
+        }
+
+        /**
+         * Copies the rows into larger ones. Called with the table's lock held, so no links
+         * are added while copying.
+         */
+        Rows grow(int capacity) {
+            Rows grown = new Rows(capacity);
+            System.arraycopy(sets, 0, grown.sets, 0, sets.length);
+            System.arraycopy(accepting, 0, grown.accepting, 0, accepting.length);
+            for (int i = 0; i < next.length(); i++) {
+                grown.next.set(i, next.get(i));
+            }
+            return grown;
+        }
+    }
+
+    /**
+     * Hash key wrapping a state set by value.
+     */
+    private static final class SetKey {
+        private final long[] set;
+        private final int hash;
+
+        SetKey(long[] set) {
+            this.set = set;
+            this.hash = Arrays.hashCode(set);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SetKey && Arrays.equals(set, ((SetKey) o).set);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package PushDownAutomaton;
 
+import ContextFreeGrammar.CFG;
+import ContextFreeGrammar.Terminal;
 import common.Automaton;
+import common.ExecutionBudget;
 import common.Automaton.ValidationMessage;
 import common.Automaton.ValidationMessage.ValidationMessageType;
 import common.InputNormalizer;
@@ -19,29 +22,26 @@ import java.util.*;
  *   <li>Produce Graphviz DOT code for visualization</li>
  * </ul>
  *
- * <p><strong>Execution model</strong>: BFS on configurations {@code (state, inputPos, stackString)}.
- * Top of stack is kept at {@code stackString.charAt(0)}. Acceptance is by final state (all input consumed
- * and current state ∈ finals).</p>
+ * <p><strong>Execution model</strong>: BFS on configurations {@code (stateId, inputPos, stack)}.
+ * States are interned to int ids and transitions compiled per state id when parsing; the stack is a
+ * {@link PersistentStack} whose tail is shared between configurations, so expanding a configuration is
+ * O(1) in the stack depth. Acceptance is by final state (all input consumed and current state ∈ finals).</p>
  *
- * <p><strong>Safety controls</strong>:
- * <ul>
- *   <li>Expansion cap (number of explored configurations) is configurable via
- *       {@code -Dpda.maxExpansions=<int>} (default: 500_000).</li>
- *   <li>Optional wall-clock timeout is configurable via {@code -Dpda.timeoutMs=<long>} (default: disabled / 0).</li>
- * </ul>
- * If either cap/timeout is hit, execution stops with a WARNING log and returns rejection.</p>
+ * <p>Deterministic machines (see {@link #isDeterministic()}) skip the search and are simulated along their
+ * single path with an array stack, in time linear in the number of moves. Other machines are searched with
+ * the selected {@link SearchStrategy}. When no popping epsilon transition lies on an epsilon cycle, stack
+ * contents deeper than can still be popped are cut off, so epsilon loops that only push reach a fixed point
+ * instead of the configuration limit.</p>
+ *
+ * <p><strong>Safety controls</strong>: the search is metered by the {@link ExecutionOptions} budget
+ * (step limit, configuration limit, deadline, cancellation token). Without an explicit configuration
+ * limit at most {@value #DEFAULT_MAX_CONFIGURATIONS} configurations are explored.
+ * If the budget runs out, execution stops with a WARNING log and returns rejection.</p>
  */
 public class PDA extends Automaton {
 
-    /* ---------------- Configuration knobs (system properties) ---------------- */
-
-    /** Max number of configurations to explore before aborting (default 500k). */
-    private static final int MAX_EXPANSIONS_CAP =
-            Integer.getInteger("pda.maxExpansions", 500_000);
-
-    /** Optional wall-clock timeout in nanoseconds (0 = disabled). */
-    private static final long TIMEOUT_NS =
-            Long.getLong("pda.timeoutMs", 0L) * 1_000_000L;
+    /** Configuration limit used when the execution options do not set one. */
+    public static final int DEFAULT_MAX_CONFIGURATIONS = 500_000;
 
     /* ---------------- Parsed PDA components ---------------- */
 
@@ -53,6 +53,44 @@ public class PDA extends Automaton {
     private Symbol stackStartSymbol;
     private Map<State, List<PDATransition>> transitionMap;
 
+    /* ---------------- Compiled form used by execute ---------------- */
+
+    private State[] stateById;
+    private boolean[] finalById;
+    private Edge[][] edgesById;
+    private int startId;
+    private boolean deterministic;
+    private int poppingEpsilonTransitions;
+    private boolean epsilonPopsBounded;
+    private State growingEpsilonCycleState;
+
+    private SearchStrategy searchStrategy = SearchStrategy.BFS;
+
+    /** Equivalent grammar for {@link SearchStrategy#CYK}; built lazily, guarded by this */
+    private CFG grammar;
+    private Set<Character> grammarTerminals;
+
+    /**
+     * How {@link #execute(String)} searches the configurations of a nondeterministic PDA.
+     */
+    public enum SearchStrategy {
+        /** Level by level; finds the shortest accepting run. */
+        BFS,
+        /** Depth-first with a doubling depth limit; stores only the current path. */
+        ITERATIVE_DEEPENING,
+        /** Always expands a configuration that has read the most input first. */
+        BEST_FIRST,
+        /**
+         * No search: membership is decided by CYK on the equivalent grammar from {@link #toCFG()},
+         * in O(n³) time for any amount of nondeterminism. The grammar is built on first use.
+         */
+        CYK
+    }
+
+    /** Orders the best-first frontier by input position, then by discovery. */
+    private static final Comparator<Conf> FARTHEST_FIRST = (a, b) ->
+            a.pos != b.pos ? Integer.compare(b.pos, a.pos) : Integer.compare(a.order, b.order);
+
     public PDA() {
         super(MachineType.PDA);
     }
@@ -108,6 +146,7 @@ public class PDA extends Automaton {
                 messages);
         this.finalStates.addAll(processFinalStates(sections.get("finals"), sectionLineNumbers.get("finals"), stateMap, messages));
         this.transitionMap.putAll(processTransitions(sections.get("transitions"), sectionLineNumbers.get("transitions"), stateMap, this.inputAlphabet, this.stackAlphabet, messages));
+        compile();
 
         boolean isSuccess = messages.stream().noneMatch(m -> m.getType() == ValidationMessageType.ERROR);
         if (!isSuccess) {
@@ -122,13 +161,10 @@ public class PDA extends Automaton {
     /**
      * Execute the PDA on the given input string.
      *
-     * <p>Performs a BFS over configurations. Acceptance occurs if we reach a final state after consuming
-     * the whole input and the stack is empty (acceptance by final state + empty stack). To prevent
-     * pathological blow-ups, execution respects:
-     * <ul>
-     *   <li>{@code pda.maxExpansions} (expansion cap)</li>
-     *   <li>{@code pda.timeoutMs} (wall-clock timeout), if set</li>
-     * </ul>
+     * <p>Searches the configurations with the selected {@link SearchStrategy} (or follows the single path of a
+     * deterministic PDA). Acceptance occurs if we reach a final state after consuming
+     * the whole input. To prevent pathological blow-ups, at most {@value #DEFAULT_MAX_CONFIGURATIONS}
+     * configurations are explored; use {@link #execute(String, ExecutionOptions)} for other limits.
      * On abort, a WARNING is logged and the result is rejection with a best-effort trace.</p>
      *
      * @param inputText input string (may be null → treated as empty)
@@ -136,7 +172,29 @@ public class PDA extends Automaton {
      */
     @Override
     public ExecutionResult execute(String inputText) {
+        return execute(inputText, ExecutionOptions.FULL_TRACE);
+    }
+
+    /**
+     * Execute the PDA on the given input string, building only as much trace as requested.
+     * Parent links for trace reconstruction are recorded only with {@link TraceLevel#FULL};
+     * {@link TraceLevel#SUMMARY} reports the final configuration and {@link TraceLevel#NONE}
+     * returns an empty trace. An INFO message names the search that ran and the number of
+     * configurations it created.
+     *
+     * @param inputText input string (may be null → treated as empty)
+     * @param options   execution options
+     * @return {@link ExecutionResult} with acceptance flag, info/warning logs, and the requested trace
+     */
+    @Override
+    public ExecutionResult execute(String inputText, ExecutionOptions options) {
         List<ValidationMessage> logs = new ArrayList<>();
+        final boolean fullTrace = options.isFullTrace();
+        final boolean summaryTrace = options.isSummaryTrace();
+        if (options.getMaxConfigurations() == 0) {
+            options = options.withMaxConfigurations(DEFAULT_MAX_CONFIGURATIONS);
+        }
+        final ExecutionBudget budget = ExecutionBudget.start(options);
 
         if (this.startState == null) {
             logs.add(new ValidationMessage("Automaton not parsed.", 0, ValidationMessageType.ERROR));
@@ -144,114 +202,494 @@ public class PDA extends Automaton {
         }
 
         final String input = (inputText == null) ? "" : inputText;
-        final int n = input.length();
 
-        // initial stack: start symbol if not epsilon
-        final String initStack =
-                (this.stackStartSymbol != null && !this.stackStartSymbol.isEpsilon())
-                        ? Character.toString(this.stackStartSymbol.getValue())
-                        : "";
+        ExecutionResult result = null;
+        String searchName = "deterministic";
+        if (this.deterministic) {
+            result = executeDeterministic(input, fullTrace, summaryTrace, budget, logs);
+        }
+        if (result == null && this.searchStrategy == SearchStrategy.CYK) {
+            return decideWithGrammar(input, fullTrace, summaryTrace, options, logs);
+        }
+        if (result == null) {
+            searchName = this.searchStrategy.name();
+            result = this.searchStrategy == SearchStrategy.ITERATIVE_DEEPENING
+                    ? searchIterativeDeepening(input, fullTrace, summaryTrace, budget, logs)
+                    : searchFrontier(input, fullTrace, summaryTrace, budget, logs);
+        }
+        if (budget.isExhausted() && this.growingEpsilonCycleState != null && !this.epsilonPopsBounded) {
+            logs.add(new ValidationMessage("Epsilon cycle through state '" + this.growingEpsilonCycleState.getName()
+                    + "' grows the stack without reading input.", 0, ValidationMessageType.INFO));
+        }
+        logs.add(new ValidationMessage(String.format("Search: %s, %d configurations.",
+                searchName, budget.getConfigurations()), 0, ValidationMessageType.INFO));
+        return result;
+    }
+
+    /**
+     * Decides membership with CYK on the equivalent grammar. The grammar engine builds no trace, so
+     * the trace only names the method; budget warnings of the CYK run are passed on.
+     */
+    private ExecutionResult decideWithGrammar(String input, boolean fullTrace, boolean summaryTrace,
+                                              ExecutionOptions options, List<ValidationMessage> logs) {
+        CFG cfg = toCFG();
+        Set<Character> alphabet;
+        synchronized (this) {
+            alphabet = this.grammarTerminals;
+        }
+        boolean accepted = false;
+        boolean derivable = !cfg.getProductions().isEmpty();
+        for (int i = 0; derivable && i < input.length(); i++) {
+            derivable = alphabet.contains(input.charAt(i));
+        }
+        if (derivable) {
+            ExecutionResult cyk = cfg.execute(input, options);
+            accepted = cyk.isAccepted();
+            for (ValidationMessage m : cyk.getRuntimeMessages()) {
+                if (m.getType() != ValidationMessageType.INFO) {
+                    logs.add(m);
+                }
+            }
+        }
+        int rules = cfg.getProductions().size();
+        String trace = fullTrace || summaryTrace
+                ? String.format("%s by CYK on the equivalent grammar (%d rules)", accepted ? "Accepted" : "Rejected", rules)
+                : "";
+        logs.add(new ValidationMessage(accepted ? "Accepted: the equivalent grammar derives the input."
+                : "No accepting configuration found.", 0, ValidationMessageType.INFO));
+        logs.add(new ValidationMessage(String.format("Search: CYK, %d grammar rules.", rules),
+                0, ValidationMessageType.INFO));
+        return new ExecutionResult(accepted, logs, trace);
+    }
+
+    /**
+     * Returns a context-free grammar generating exactly the language of this PDA, built with the
+     * triple construction and stripped of useless symbols. The grammar is cached until the next
+     * {@link #parse(String)}, has its Chomsky normal form precomputed and runs in
+     * {@link CFG.ExecutionMode#CYK}, which {@link SearchStrategy#CYK} relies on.
+     *
+     * @return the equivalent grammar, without productions if the PDA accepts nothing;
+     *         null if the PDA has not been parsed
+     */
+    public synchronized CFG toCFG() {
+        if (this.grammar == null && this.startState != null) {
+            Map<State, Integer> ids = new HashMap<>();
+            List<List<PDATransition>> transitionsById = new ArrayList<>();
+            for (int id = 0; id < this.stateById.length; id++) {
+                ids.put(this.stateById[id], id);
+                transitionsById.add(this.transitionMap.getOrDefault(this.stateById[id], Collections.emptyList()));
+            }
+            Character stackStart = (this.stackStartSymbol != null && !this.stackStartSymbol.isEpsilon())
+                    ? this.stackStartSymbol.getValue() : null;
+            this.grammar = PDAToCFG.convert(this.stateById, this.finalById, this.startId, stackStart,
+                    this.stackAlphabet, transitionsById, ids);
+            this.grammar.setExecutionMode(CFG.ExecutionMode.CYK);
+            this.grammarTerminals = new HashSet<>();
+            for (Terminal t : this.grammar.getTerminals()) {
+                this.grammarTerminals.add(t.getValue());
+            }
+        }
+        return this.grammar;
+    }
+
+    /**
+     * BFS or best-first search over configurations, depending on the frontier order.
+     * Visited configurations are kept only as 64-bit fingerprints in a {@link FingerprintSet}, so
+     * each is expanded at most once while only the frontier holds configuration objects. With
+     * {@link TraceLevel#FULL}, each configuration's discovery index also records its parent index
+     * and the transition that reached it, in two growing arrays.
+     */
+    private ExecutionResult searchFrontier(String input, boolean fullTrace, boolean summaryTrace,
+                                           ExecutionBudget budget, List<ValidationMessage> logs) {
+        final int n = input.length();
 
-        Deque<Conf> queue = new ArrayDeque<>();
-        Set<Conf> visited = new HashSet<>();
-        Map<Conf, Step> parent = new HashMap<>();
+        Queue<Conf> queue = this.searchStrategy == SearchStrategy.BEST_FIRST
+                ? new PriorityQueue<>(FARTHEST_FIRST)
+                : new ArrayDeque<>();
+        FingerprintSet visited = new FingerprintSet();
+        int[] parentOf = fullTrace ? new int[1024] : null;
+        PDATransition[] reachedBy = fullTrace ? new PDATransition[1024] : null;
+        Conf farthest = null;
+        int order = 0;
 
-        Conf start = new Conf(this.startState, 0, initStack);
+        Conf start = new Conf(this.startId, 0, initialStack(n), order++);
         queue.add(start);
-        visited.add(start);
+        visited.add(start.fingerprint());
+        if (fullTrace) {
+            parentOf[0] = -1;
+        }
 
-        int expansions = 0;
-        final long t0 = System.nanoTime();
+        budget.addConfiguration();
 
+        search:
         while (!queue.isEmpty()) {
-            // Timeout check
-            if (TIMEOUT_NS > 0 && System.nanoTime() - t0 > TIMEOUT_NS) {
-                logs.add(new ValidationMessage(
-                        "Search aborted due to timeout (" + (TIMEOUT_NS / 1_000_000) + " ms).",
-                        0, ValidationMessageType.WARNING));
-                break;
-            }
-            // Expansion cap check
-            if (expansions++ > MAX_EXPANSIONS_CAP) {
-                logs.add(new ValidationMessage(
-                        "Search aborted after exploring " + expansions +
-                                " configurations (cap via pda.maxExpansions).",
-                        0, ValidationMessageType.WARNING));
+            if (!budget.step()) {
+                logs.add(budget.toMessage());
                 break;
             }
 
             Conf cur = queue.poll();
 
             // Accept when input fully consumed and in a final state
-            if (cur.pos == n
-                    && this.finalStates.contains(cur.state)) {
-                String trace = reconstructTrace(parent, cur);
+            if (cur.pos == n && this.finalById[cur.state]) {
+                String trace = fullTrace ? reconstructTrace(parentOf, reachedBy, cur.order)
+                        : summaryTrace ? summarize(cur, true) : "";
                 logs.add(new ValidationMessage(
-                        "Accepted at state '" + cur.state.getName() + "' with stack='" + cur.stack + "'.",
+                        "Accepted at state '" + stateName(cur) + "' with stack='" + cur.stack + "'.",
                         0, ValidationMessageType.INFO));
                 return new ExecutionResult(true, logs, trace);
             }
 
             // Expand transitions from current state
-            List<PDATransition> outgoing = this.transitionMap.getOrDefault(cur.state, Collections.emptyList());
-            for (PDATransition t : outgoing) {
-                // Stack pop condition
-                boolean popEps = t.getStackPop().isEpsilon();
-                char popCh = t.getStackPop().getValue();
-                if (!popEps) {
-                    if (cur.stack.isEmpty() || cur.stack.charAt(0) != popCh) continue;
+            for (Edge e : this.edgesById[cur.state]) {
+                if (!isEnabled(e, cur, input)) continue;
+                Conf nxt = apply(e, cur, n, order);
+
+                if (visited.add(nxt.fingerprint())) {
+                    if (!budget.addConfiguration()) {
+                        logs.add(budget.toMessage());
+                        break search;
+                    }
+                    if (fullTrace) {
+                        if (order == parentOf.length) {
+                            parentOf = Arrays.copyOf(parentOf, order * 2);
+                            reachedBy = Arrays.copyOf(reachedBy, order * 2);
+                        }
+                        parentOf[order] = cur.order;
+                        reachedBy[order] = e.tr;
+                    }
+                    order++;
+                    if (farthest == null || nxt.pos > farthest.pos) {
+                        farthest = nxt;
+                    }
+                    queue.add(nxt);
                 }
+            }
+        }
+
+        // Not accepted: produce a best-effort trace from the farthest progressed configuration
+        String trace;
+        if (farthest == null) {
+            trace = fullTrace || summaryTrace ? "No steps taken." : "";
+        } else {
+            trace = fullTrace ? reconstructTrace(parentOf, reachedBy, farthest.order)
+                    : summaryTrace ? summarize(farthest, false) : "";
+        }
+        logs.add(new ValidationMessage("No accepting configuration found.", 0, ValidationMessageType.INFO));
+        return new ExecutionResult(false, logs, trace);
+    }
 
-                // Input consume condition
-                boolean inEps = t.getInputSymbol().isEpsilon();
-                if (!inEps) {
-                    if (cur.pos >= n || input.charAt(cur.pos) != t.getInputSymbol().getValue()) continue;
+    /**
+     * Depth-first search with a move limit that doubles until a round finishes without hitting it.
+     * Only the current path is stored (configurations on it are skipped to break cycles), so memory
+     * grows with the path length instead of the number of configurations; the price is that
+     * configurations reachable along several paths are expanded again.
+     */
+    private ExecutionResult searchIterativeDeepening(String input, boolean fullTrace, boolean summaryTrace,
+                                                     ExecutionBudget budget, List<ValidationMessage> logs) {
+        final int n = input.length();
+        final Conf start = new Conf(this.startId, 0, initialStack(n), 0);
+        budget.addConfiguration();
+
+        List<PDATransition> farthestPath = null;
+        Conf farthest = null;
+
+        List<Conf> path = new ArrayList<>();
+        List<PDATransition> pathMoves = new ArrayList<>();   // pathMoves[i] leads from path[i] to path[i + 1]
+        Set<Conf> onPath = new HashSet<>();
+        int[] cursors = new int[16];                           // next edge to try, per path entry
+
+        search:
+        for (long limit = n + 1; ; limit *= 2) {
+            boolean cutOff = false;
+            path.add(start);
+            onPath.add(start);
+            cursors[0] = 0;
+
+            while (!path.isEmpty()) {
+                int top = path.size() - 1;
+                Conf cur = path.get(top);
+                int next = cursors[top];
+                if (next == 0) {
+                    if (!budget.step()) {
+                        logs.add(budget.toMessage());
+                        break search;
+                    }
+                    if (cur.pos == n && this.finalById[cur.state]) {
+                        String trace = fullTrace ? formatTrace(pathMoves, pathMoves.size())
+                                : summaryTrace ? summarize(cur, true) : "";
+                        logs.add(new ValidationMessage(
+                                "Accepted at state '" + stateName(cur) + "' with stack='" + cur.stack + "'.",
+                                0, ValidationMessageType.INFO));
+                        return new ExecutionResult(true, logs, trace);
+                    }
                 }
 
-                // Apply transition
-                String newStack = cur.stack;
-                if (!popEps) {
-                    newStack = newStack.substring(1); // pop from left (top)
+                Edge[] edges = this.edgesById[cur.state];
+                Conf child = null;
+                Edge move = null;
+                while (next < edges.length) {
+                    Edge e = edges[next++];
+                    if (!isEnabled(e, cur, input)) continue;
+                    if (top >= limit) {
+                        cutOff = true;
+                        next = edges.length;
+                        break;
+                    }
+                    Conf candidate = apply(e, cur, n, 0);
+                    if (onPath.contains(candidate)) continue;
+                    if (!budget.addConfiguration()) {
+                        logs.add(budget.toMessage());
+                        break search;
+                    }
+                    child = candidate;
+                    move = e;
+                    break;
+                }
+                cursors[top] = next;
+
+                if (child == null) {
+                    // All moves tried: backtrack
+                    onPath.remove(cur);
+                    path.remove(top);
+                    if (top > 0) {
+                        pathMoves.remove(top - 1);
+                    }
+                    continue;
                 }
 
-                String push = t.getStackPush();
-                if (!"eps".equals(push)) {
-                    // push sequence to left (top at index 0)
-                    newStack = push + newStack;
+                pathMoves.add(move.tr);
+                path.add(child);
+                onPath.add(child);
+                if (path.size() > cursors.length) {
+                    cursors = Arrays.copyOf(cursors, cursors.length * 2);
+                }
+                cursors[top + 1] = 0;
+                if (farthest == null || child.pos > farthest.pos) {
+                    farthest = child;
+                    if (fullTrace) {
+                        farthestPath = new ArrayList<>(pathMoves);
+                    }
                 }
+            }
 
-                int newPos = inEps ? cur.pos : (cur.pos + 1);
-                Conf nxt = new Conf(t.getToState(), newPos, newStack);
+            if (!cutOff) {
+                break; // the whole reachable space fit under the limit
+            }
+        }
 
-                if (visited.add(nxt)) {
-                    parent.put(nxt, new Step(cur, t));
-                    queue.add(nxt);
+        String trace;
+        if (farthest == null) {
+            trace = fullTrace || summaryTrace ? "No steps taken." : "";
+        } else {
+            trace = fullTrace ? formatTrace(farthestPath, farthestPath.size())
+                    : summaryTrace ? summarize(farthest, false) : "";
+        }
+        logs.add(new ValidationMessage("No accepting configuration found.", 0, ValidationMessageType.INFO));
+        return new ExecutionResult(false, logs, trace);
+    }
+
+    private static boolean isEnabled(Edge e, Conf cur, String input) {
+        // Stack pop condition
+        if (!e.popEps && (cur.stack.isEmpty() || cur.stack.peek() != e.pop)) return false;
+        // Input consume condition
+        return e.inEps || (cur.pos < input.length() && input.charAt(cur.pos) == e.in);
+    }
+
+    /** Apply an enabled transition; pop and push share the untouched tail of the stack. */
+    private Conf apply(Edge e, Conf cur, int n, int order) {
+        PersistentStack newStack = e.popEps ? cur.stack : cur.stack.pop();
+        if (e.push.length > 0) {
+            newStack = newStack.pushAll(e.push);
+        }
+        int newPos = e.inEps ? cur.pos : (cur.pos + 1);
+        return new Conf(e.to, newPos, boundStack(newStack, n - newPos), order);
+    }
+
+    private PersistentStack initialStack(int n) {
+        PersistentStack stack = (this.stackStartSymbol != null && !this.stackStartSymbol.isEpsilon())
+                ? PersistentStack.EMPTY.push(this.stackStartSymbol.getValue())
+                : PersistentStack.EMPTY;
+        return boundStack(stack, n);
+    }
+
+    /**
+     * Stack-height pruning. When no popping epsilon transition lies on an epsilon cycle, an epsilon
+     * run pops at most {@code poppingEpsilonTransitions} symbols, so with {@code remaining} input
+     * symbols left at most {@code remaining + (remaining + 1) * poppingEpsilonTransitions} symbols can
+     * still be popped. Anything deeper is cut off (one extra symbol is kept so the top stays visible),
+     * which makes stack-growing epsilon loops finite instead of running into the configuration limit.
+     */
+    private PersistentStack boundStack(PersistentStack stack, int remaining) {
+        if (!this.epsilonPopsBounded) {
+            return stack;
+        }
+        long poppable = remaining + (remaining + 1L) * this.poppingEpsilonTransitions;
+        return poppable >= stack.depth() ? stack : stack.truncate((int) poppable + 1);
+    }
+
+    /**
+     * Runs a deterministic PDA along its only path. At most one transition is enabled in any
+     * configuration, so no visited set or parent map is needed; the stack is a plain array with
+     * the top at the end.
+     *
+     * <p>A run of epsilon moves longer than the machine can make without repeating itself is handed
+     * back to the search, which rejects such loops exactly; the method then returns null.</p>
+     *
+     * @return the result, or null if the caller should fall back to the search
+     */
+    private ExecutionResult executeDeterministic(String input, boolean fullTrace, boolean summaryTrace,
+                                                 ExecutionBudget budget, List<ValidationMessage> logs) {
+        final int n = input.length();
+        char[] stack = new char[16];
+        int depth = 0;
+        if (this.stackStartSymbol != null && !this.stackStartSymbol.isEpsilon()) {
+            stack[depth++] = this.stackStartSymbol.getValue();
+        }
+
+        List<PDATransition> path = fullTrace ? new ArrayList<>() : null;
+        int farthestMoves = -1;     // number of moves on the path to the farthest configuration
+        String farthestSummary = null;
+        final int epsilonLimit = this.stateById.length * (this.stackAlphabet.size() + 1);
+        int epsilonRun = 0;
+        int epsilonRunDepth = 0;
+
+        int state = this.startId;
+        int pos = 0;
+        int moves = 0;
+        while (true) {
+            if (pos == n && this.finalById[state]) {
+                String stackStr = stackToString(stack, depth);
+                String trace = fullTrace ? formatTrace(path, path.size())
+                        : summaryTrace ? summarize(this.stateById[state].getName(), pos, stackStr, true) : "";
+                logs.add(new ValidationMessage(
+                        "Accepted at state '" + this.stateById[state].getName() + "' with stack='" + stackStr + "'.",
+                        0, ValidationMessageType.INFO));
+                return new ExecutionResult(true, logs, trace);
+            }
+            if (!budget.step()) {
+                logs.add(budget.toMessage());
+                break;
+            }
+
+            Edge taken = null;
+            for (Edge e : this.edgesById[state]) {
+                if (!e.popEps && (depth == 0 || stack[depth - 1] != e.pop)) continue;
+                if (!e.inEps && (pos >= n || input.charAt(pos) != e.in)) continue;
+                taken = e;
+                break;
+            }
+            if (taken == null) {
+                break;
+            }
+
+            if (taken.inEps) {
+                if (epsilonRun++ == 0) {
+                    epsilonRunDepth = depth;
+                } else if (epsilonRun > epsilonLimit + epsilonRunDepth) {
+                    return null;
                 }
+            } else {
+                epsilonRun = 0;
             }
-        }
 
-        // Not accepted: produce a best-effort trace from the farthest progressed configuration
-        Conf farthest = parent.keySet().stream()
-                .max(Comparator.comparingInt(c -> c.pos))
-                .orElse(null);
+            if (!taken.popEps) {
+                depth--;
+            }
+            char[] push = taken.push;
+            if (depth + push.length > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, depth + push.length));
+            }
+            for (int i = push.length - 1; i >= 0; i--) {
+                stack[depth++] = push[i];
+            }
+            if (!budget.addConfiguration()) {
+                logs.add(budget.toMessage());
+                break;
+            }
+            if (path != null) {
+                path.add(taken.tr);
+            }
+            moves++;
+            state = taken.to;
+            if (!taken.inEps) {
+                pos++;
+            }
+            // The BFS reports the first configuration reaching the farthest input position
+            if (farthestMoves < 0 || !taken.inEps) {
+                farthestMoves = moves;
+                if (summaryTrace) {
+                    farthestSummary = summarize(this.stateById[state].getName(), pos, stackToString(stack, depth), false);
+                }
+            }
+        }
 
-        String trace = (farthest != null) ? reconstructTrace(parent, farthest) : "No steps taken.";
+        String trace;
+        if (farthestMoves < 0) {
+            trace = fullTrace || summaryTrace ? "No steps taken." : "";
+        } else {
+            trace = fullTrace ? formatTrace(path, farthestMoves)
+                    : summaryTrace ? farthestSummary : "";
+        }
         logs.add(new ValidationMessage("No accepting configuration found.", 0, ValidationMessageType.INFO));
         return new ExecutionResult(false, logs, trace);
     }
 
+    /**
+     * @return true if at most one transition is enabled in every configuration, so
+     *         {@link #execute(String, ExecutionOptions)} can follow a single path instead of searching
+     */
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * Two transitions from the same state conflict when they can read the same input (either reads
+     * epsilon or both read the same symbol) and pop the same stack top (either pops epsilon or both
+     * pop the same symbol).
+     */
+    private static boolean isDeterministic(Edge[][] edgesById) {
+        for (Edge[] edges : edgesById) {
+            for (int i = 0; i < edges.length; i++) {
+                for (int j = i + 1; j < edges.length; j++) {
+                    Edge a = edges[i];
+                    Edge b = edges[j];
+                    boolean sameInput = a.inEps || b.inEps || a.in == b.in;
+                    boolean sameTop = a.popEps || b.popEps || a.pop == b.pop;
+                    if (sameInput && sameTop) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Top-to-bottom string of an array stack whose top is at {@code depth - 1}. */
+    private static String stackToString(char[] stack, int depth) {
+        StringBuilder sb = new StringBuilder(depth);
+        for (int i = depth - 1; i >= 0; i--) {
+            sb.append(stack[i]);
+        }
+        return sb.toString();
+    }
+
     /* ----------------- Helpers for BFS trace & conf identity ----------------- */
 
     /** Immutable configuration for BFS search. */
     private static final class Conf {
-        final State state;
-        final int pos;        // input index
-        final String stack;   // top-of-stack = stack.charAt(0)
+        final int state;               // interned state id
+        final int pos;                 // input index
+        final PersistentStack stack;   // shared with the configuration it was expanded from
+        final int order;               // discovery index, not part of the identity
+        private final int hash;
 
-        Conf(State state, int pos, String stack) {
+        Conf(int state, int pos, PersistentStack stack, int order) {
             this.state = state;
             this.pos = pos;
-            this.stack = (stack == null) ? "" : stack;
+            this.stack = stack;
+            this.order = order;
+            this.hash = (state * 31 + pos) * 31 + stack.hashCode();
         }
 
         @Override
@@ -259,53 +697,181 @@ public class PDA extends Automaton {
             if (this == o) return true;
             if (!(o instanceof Conf)) return false;
             Conf c = (Conf) o;
-            return pos == c.pos
-                    && Objects.equals(state.getName(), c.state.getName())
-                    && Objects.equals(stack, c.stack);
+            return hash == c.hash
+                    && state == c.state
+                    && pos == c.pos
+                    && stack.equals(c.stack);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(state.getName(), pos, stack);
+            return hash;
+        }
+
+        /** 64-bit hash of the identity, mixed so its low bits can index a table directly. */
+        long fingerprint() {
+            long h = stack.fingerprint() ^ (state * 0x9E3779B97F4A7C15L) ^ (pos * 0xC2B2AE3D27D4EB4FL);
+            h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+            h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return h ^ (h >>> 33);
         }
     }
 
-    /** Edge used to reconstruct a successful path. */
-    private static final class Step {
-        final Conf prev;
+    /** A transition compiled against interned state ids. */
+    private static final class Edge {
         final PDATransition tr;
-
-        Step(Conf prev, PDATransition tr) {
-            this.prev = prev;
+        final int to;
+        final boolean inEps;
+        final char in;
+        final boolean popEps;
+        final char pop;
+        final char[] push;     // first character ends up on top; empty for eps
+
+        Edge(PDATransition tr, int to) {
             this.tr = tr;
+            this.to = to;
+            this.inEps = tr.getInputSymbol().isEpsilon();
+            this.in = tr.getInputSymbol().getValue();
+            this.popEps = tr.getStackPop().isEpsilon();
+            this.pop = tr.getStackPop().getValue();
+            this.push = "eps".equals(tr.getStackPush()) ? new char[0] : tr.getStackPush().toCharArray();
+        }
+    }
+
+    /**
+     * Interns states to dense ids and compiles the transition map into per-id edge arrays.
+     */
+    private void compile() {
+        Map<State, Integer> ids = new HashMap<>();
+        this.stateById = new State[this.states.size()];
+        for (State state : this.states) {
+            this.stateById[ids.size()] = state;
+            ids.put(state, ids.size());
+        }
+        this.finalById = new boolean[this.stateById.length];
+        for (State state : this.finalStates) {
+            this.finalById[ids.get(state)] = true;
+        }
+        this.edgesById = new Edge[this.stateById.length][];
+        for (int id = 0; id < this.stateById.length; id++) {
+            List<PDATransition> outgoing = this.transitionMap.getOrDefault(this.stateById[id], Collections.emptyList());
+            Edge[] edges = new Edge[outgoing.size()];
+            for (int i = 0; i < edges.length; i++) {
+                edges[i] = new Edge(outgoing.get(i), ids.get(outgoing.get(i).getToState()));
+            }
+            this.edgesById[id] = edges;
+        }
+        this.startId = this.startState == null ? -1 : ids.get(this.startState);
+        this.deterministic = isDeterministic(this.edgesById);
+        analyzeEpsilonCycles();
+        synchronized (this) {
+            this.grammar = null;
+            this.grammarTerminals = null;
         }
     }
 
+    /**
+     * Finds what the stack-height pruning needs: the number of epsilon transitions that pop, and
+     * whether any of them lies on a cycle of epsilon transitions (then an epsilon run can pop without
+     * bound). Also remembers a state on an epsilon cycle that never pops and pushes at least once,
+     * which is what makes a search run into its configuration limit.
+     */
+    private void analyzeEpsilonCycles() {
+        this.poppingEpsilonTransitions = 0;
+        this.epsilonPopsBounded = true;
+        this.growingEpsilonCycleState = null;
+        for (int id = 0; id < this.edgesById.length; id++) {
+            for (Edge e : this.edgesById[id]) {
+                if (!e.inEps) continue;
+                if (!e.popEps) {
+                    this.poppingEpsilonTransitions++;
+                    if (this.epsilonPopsBounded && epsilonPathExists(e.to, id, false)) {
+                        this.epsilonPopsBounded = false;
+                    }
+                } else if (e.push.length > 0 && this.growingEpsilonCycleState == null
+                        && epsilonPathExists(e.to, id, true)) {
+                    this.growingEpsilonCycleState = this.stateById[id];
+                }
+            }
+        }
+    }
+
+    /** Is {@code target} reachable from {@code from} by epsilon transitions (optionally only non-popping ones)? */
+    private boolean epsilonPathExists(int from, int target, boolean nonPoppingOnly) {
+        boolean[] seen = new boolean[this.stateById.length];
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(from);
+        seen[from] = true;
+        while (!queue.isEmpty()) {
+            int cur = queue.poll();
+            if (cur == target) return true;
+            for (Edge e : this.edgesById[cur]) {
+                if (e.inEps && (!nonPoppingOnly || e.popEps) && !seen[e.to]) {
+                    seen[e.to] = true;
+                    queue.add(e.to);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Selects how nondeterministic machines are searched. Deterministic machines always run
+     * along their single path.
+     *
+     * @param searchStrategy the strategy to use; {@link SearchStrategy#BFS} by default
+     */
+    public void setSearchStrategy(SearchStrategy searchStrategy) {
+        this.searchStrategy = Objects.requireNonNull(searchStrategy, "searchStrategy");
+    }
+
+    public SearchStrategy getSearchStrategy() {
+        return searchStrategy;
+    }
+
+    private String stateName(Conf conf) {
+        return this.stateById[conf.state].getName();
+    }
+
     private static String symToStr(Symbol s) {
         return (s == null || s.isEpsilon()) ? "eps" : Character.toString(s.getValue());
     }
 
-    /** Reconstruct a human-readable transition trace from parents map. */
-    private String reconstructTrace(Map<Conf, Step> parent, Conf end) {
-        List<String> lines = new ArrayList<>();
-        Conf cur = end;
+    /** One-line description of the configuration an execution ended on. */
+    private String summarize(Conf conf, boolean accepted) {
+        return summarize(stateName(conf), conf.pos, conf.stack.toString(), accepted);
+    }
 
-        while (parent.containsKey(cur)) {
-            Step st = parent.get(cur);
-            PDATransition t = st.tr;
+    private static String summarize(String state, int pos, String stack, boolean accepted) {
+        return String.format("%s at state '%s', input position %d, stack='%s'",
+                accepted ? "Accepted" : "Farthest configuration", state, pos, stack);
+    }
+
+    /** Reconstruct a human-readable transition trace by following parent indices. */
+    private static String reconstructTrace(int[] parentOf, PDATransition[] reachedBy, int end) {
+        List<PDATransition> path = new ArrayList<>();
+        for (int cur = end; parentOf[cur] >= 0; cur = parentOf[cur]) {
+            path.add(reachedBy[cur]);
+        }
+        Collections.reverse(path);
+        return formatTrace(path, path.size());
+    }
+
+    /** Format the first {@code count} transitions of a path, one segment per transition. */
+    private static String formatTrace(List<PDATransition> path, int count) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PDATransition t = path.get(i);
 
             String in = symToStr(t.getInputSymbol());
             String pop = symToStr(t.getStackPop());
             String push = t.getStackPush();
-            String from = st.prev.state.getName();
+            String from = t.getFromState().getName();
             String to = t.getToState().getName();
 
             lines.add(String.format("%s -- (%s, %s/%s) --> %s",
                     from, in, pop, push, to));
-
-            cur = st.prev;
         }
-        Collections.reverse(lines);
         return String.join(" | ", lines);
     }
 
@@ -0,0 +1,350 @@
+package PushDownAutomaton;
+
+import ContextFreeGrammar.CFG;
+import ContextFreeGrammar.NonTerminal;
+import ContextFreeGrammar.Production;
+import ContextFreeGrammar.Terminal;
+import common.State;
+import common.Symbol;
+
+import java.util.*;
+
+/**
+ * Converts a PDA that accepts by final state into an equivalent context-free grammar
+ * with the triple construction.
+ *
+ * <p>A fresh bottom marker {@code #} is placed under the initial stack, and a transition that pops
+ * epsilon is treated as one transition per possible top symbol that pushes that symbol back. Every
+ * transition then pops exactly one symbol. The grammar has two kinds of variables:</p>
+ * <ul>
+ *   <li>{@code [p,X,q]} derives the words that take the PDA from state {@code p} with {@code X} on
+ *       top to state {@code q} with {@code X} popped and the stack below untouched</li>
+ *   <li>{@code [p,X]} derives the words that take the PDA from {@code p} with {@code X} on top into
+ *       a final state without touching the stack below {@code X}</li>
+ * </ul>
+ * <p>The start symbol {@code S} pops the initial stack symbol (if any) and then reaches a final state
+ * above the bottom marker. Productions are generated over int-coded variables, and those that are
+ * unproductive or unreachable from {@code S} are dropped before any {@link Production} is built.</p>
+ */
+final class PDAToCFG {
+
+    private static final int NO_TERMINAL = -1;
+
+    private final int states;
+    private final int symbols;      // stack alphabet size; index 'symbols' is the bottom marker
+    private final int bottom;
+    private final boolean[] finals;
+
+    // Generated productions, int-coded: lhs, terminal (or NO_TERMINAL), rhs variables
+    private final List<int[]> rhs = new ArrayList<>();
+    private final IntList lhs = new IntList();
+    private final IntList terminal = new IntList();
+
+    private PDAToCFG(int states, int symbols, boolean[] finals) {
+        this.states = states;
+        this.symbols = symbols;
+        this.bottom = symbols;
+        this.finals = finals;
+    }
+
+    /**
+     * Builds the grammar. The returned CFG has its Chomsky normal form cached, ready for CYK;
+     * if the PDA accepts nothing it has no productions.
+     *
+     * @param stateById      states indexed by id
+     * @param finalById      final flag per state id
+     * @param startId        start state id
+     * @param stackStart     initial stack symbol, or null if the stack starts empty
+     * @param stackAlphabet  stack symbols
+     * @param transitionsById outgoing transitions per state id
+     * @param stateIds       state → id
+     * @return the equivalent grammar
+     */
+    static CFG convert(State[] stateById, boolean[] finalById, int startId, Character stackStart,
+                       Collection<Symbol> stackAlphabet, List<List<PDATransition>> transitionsById,
+                       Map<State, Integer> stateIds) {
+        List<Character> stackChars = new ArrayList<>();
+        for (Symbol s : stackAlphabet) {
+            stackChars.add(s.getValue());
+        }
+        Collections.sort(stackChars);
+        Map<Character, Integer> symbolIds = new HashMap<>();
+        for (char c : stackChars) {
+            symbolIds.put(c, symbolIds.size());
+        }
+
+        PDAToCFG builder = new PDAToCFG(stateById.length, stackChars.size(), finalById);
+        for (int p = 0; p < stateById.length; p++) {
+            for (PDATransition t : transitionsById.get(p)) {
+                builder.addTransition(p, t, stateIds.get(t.getToState()), symbolIds);
+            }
+            if (finalById[p]) {
+                for (int x = 0; x <= builder.bottom; x++) {
+                    builder.add(builder.reachVar(p, x), NO_TERMINAL);
+                }
+            }
+        }
+        int start = builder.startVar();
+        if (stackStart == null) {
+            builder.add(start, NO_TERMINAL, builder.reachVar(startId, builder.bottom));
+        } else {
+            int x = symbolIds.get(stackStart);
+            builder.add(start, NO_TERMINAL, builder.reachVar(startId, x));
+            for (int s = 0; s < builder.states; s++) {
+                builder.add(start, NO_TERMINAL, builder.popVar(startId, x, s), builder.reachVar(s, builder.bottom));
+            }
+        }
+        return builder.toGrammar(stateById, stackChars);
+    }
+
+    /* ----------------- Variable numbering ----------------- */
+
+    private int popVar(int p, int x, int q) {
+        return (p * symbols + x) * states + q;
+    }
+
+    private int reachVar(int p, int x) {
+        return states * symbols * states + p * (symbols + 1) + x;
+    }
+
+    private int startVar() {
+        return states * symbols * states + states * (symbols + 1);
+    }
+
+    /* ----------------- Production generation ----------------- */
+
+    private void add(int left, int term, int... right) {
+        lhs.add(left);
+        terminal.add(term);
+        rhs.add(right);
+    }
+
+    private void addTransition(int p, PDATransition t, int r, Map<Character, Integer> symbolIds) {
+        int term = t.getInputSymbol().isEpsilon() ? NO_TERMINAL : t.getInputSymbol().getValue();
+        String pushStr = t.getStackPush();
+        int[] push = new int["eps".equals(pushStr) ? 0 : pushStr.length()];
+        for (int i = 0; i < push.length; i++) {
+            push[i] = symbolIds.get(pushStr.charAt(i));
+        }
+
+        if (t.getStackPop().isEpsilon()) {
+            // Reads no stack: one transition per top symbol that puts it back
+            for (int x = 0; x <= bottom; x++) {
+                int[] gamma = Arrays.copyOf(push, push.length + 1);
+                gamma[push.length] = x;
+                addTransition(p, term, x, r, gamma);
+            }
+        } else {
+            addTransition(p, term, symbolIds.get(t.getStackPop().getValue()), r, push);
+        }
+    }
+
+    /** Productions for a transition p --(term, pop x, push gamma)--> r, gamma[0] on top. */
+    private void addTransition(int p, int term, int x, int r, int[] gamma) {
+        int k = gamma.length;
+        if (k == 0) {
+            if (x != bottom) {
+                add(popVar(p, x, r), term);
+            }
+            if (finals[r]) {
+                add(reachVar(p, x), term);
+            }
+            return;
+        }
+        int[] path = new int[k + 1];
+        path[0] = r;
+        // [p,x,q] -> term [r,g1,s1][s1,g2,s2]...[s(k-1),gk,q]; the bottom marker is never popped
+        if (x != bottom && poppable(gamma, k)) {
+            enumeratePops(p, term, x, gamma, k, path, 1, true);
+        }
+        // [p,x] -> term [r,g1,s1]...[s(j-1),gj,sj] [sj,g(j+1)], or all of gamma popped into a final state
+        for (int j = 0; j < k; j++) {
+            if (poppable(gamma, j)) {
+                enumeratePops(p, term, x, gamma, j, path, 1, false);
+            }
+        }
+        if (poppable(gamma, k)) {
+            enumeratePops(p, term, x, gamma, k, path, 1, false);
+        }
+    }
+
+    private boolean poppable(int[] gamma, int count) {
+        for (int i = 0; i < count; i++) {
+            if (gamma[i] == bottom) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Chooses the states s1..s(count) between the pops of gamma[0..count) and emits the production.
+     * For pop variables the last chosen state is the target q; for reach variables, when count is less
+     * than gamma's length the body ends in [s(count),gamma[count]], otherwise s(count) must be final.
+     */
+    private void enumeratePops(int p, int term, int x, int[] gamma, int count, int[] path, int i, boolean pop) {
+        if (i <= count) {
+            for (int s = 0; s < states; s++) {
+                path[i] = s;
+                enumeratePops(p, term, x, gamma, count, path, i + 1, pop);
+            }
+            return;
+        }
+        boolean complete = count == gamma.length;
+        if (!pop && complete && !finals[path[count]]) {
+            return;
+        }
+        int[] body = new int[count + (pop || complete ? 0 : 1)];
+        for (int j = 0; j < count; j++) {
+            body[j] = popVar(path[j], gamma[j], path[j + 1]);
+        }
+        if (pop) {
+            add(popVar(p, x, path[count]), term, body);
+        } else {
+            if (!complete) {
+                body[count] = reachVar(path[count], gamma[count]);
+            }
+            add(reachVar(p, x), term, body);
+        }
+    }
+
+    /* ----------------- Useless-symbol removal and grammar construction ----------------- */
+
+    private CFG toGrammar(State[] stateById, List<Character> stackChars) {
+        int variables = startVar() + 1;
+        int count = lhs.size();
+
+        // Productive variables: worklist over productions counting unproductive body occurrences
+        int[] pending = new int[count];
+        List<List<Integer>> occurrences = new ArrayList<>(variables);
+        for (int v = 0; v < variables; v++) {
+            occurrences.add(null);
+        }
+        boolean[] productive = new boolean[variables];
+        Deque<Integer> work = new ArrayDeque<>();
+        for (int i = 0; i < count; i++) {
+            int[] body = rhs.get(i);
+            pending[i] = body.length;
+            for (int v : body) {
+                if (occurrences.get(v) == null) {
+                    occurrences.set(v, new ArrayList<>());
+                }
+                occurrences.get(v).add(i);
+            }
+            if (body.length == 0 && !productive[lhs.get(i)]) {
+                productive[lhs.get(i)] = true;
+                work.add(lhs.get(i));
+            }
+        }
+        while (!work.isEmpty()) {
+            List<Integer> uses = occurrences.get(work.poll());
+            if (uses == null) continue;
+            for (int i : uses) {
+                if (--pending[i] == 0 && !productive[lhs.get(i)]) {
+                    productive[lhs.get(i)] = true;
+                    work.add(lhs.get(i));
+                }
+            }
+        }
+
+        // Reachable variables through productions whose body is entirely productive
+        List<List<Integer>> byLeft = new ArrayList<>(variables);
+        for (int v = 0; v < variables; v++) {
+            byLeft.add(null);
+        }
+        for (int i = 0; i < count; i++) {
+            if (pending[i] == 0 && productive[lhs.get(i)]) {
+                if (byLeft.get(lhs.get(i)) == null) {
+                    byLeft.set(lhs.get(i), new ArrayList<>());
+                }
+                byLeft.get(lhs.get(i)).add(i);
+            }
+        }
+        boolean[] reachable = new boolean[variables];
+        int start = startVar();
+        if (productive[start]) {
+            reachable[start] = true;
+            work.add(start);
+        }
+        while (!work.isEmpty()) {
+            List<Integer> prods = byLeft.get(work.poll());
+            if (prods == null) continue;
+            for (int i : prods) {
+                for (int v : rhs.get(i)) {
+                    if (!reachable[v]) {
+                        reachable[v] = true;
+                        work.add(v);
+                    }
+                }
+            }
+        }
+
+        Map<Integer, NonTerminal> nonTerminals = new HashMap<>();
+        Map<Integer, Terminal> terminals = new HashMap<>();
+        NonTerminal startSymbol = new NonTerminal("S");
+        nonTerminals.put(start, startSymbol);
+        List<Production> productions = new ArrayList<>();
+        for (int v = 0; v < variables; v++) {
+            if (!reachable[v] || byLeft.get(v) == null) continue;
+            NonTerminal left = nonTerminal(v, nonTerminals, stateById, stackChars);
+            for (int i : byLeft.get(v)) {
+                List<Symbol> right = new ArrayList<>(rhs.get(i).length + 1);
+                int term = terminal.get(i);
+                if (term != NO_TERMINAL) {
+                    right.add(terminals.computeIfAbsent(term, c -> new Terminal(Character.toString((char) c.intValue()))));
+                }
+                for (int u : rhs.get(i)) {
+                    right.add(nonTerminal(u, nonTerminals, stateById, stackChars));
+                }
+                productions.add(new Production(left, right));
+            }
+        }
+
+        CFG grammar = new CFG(new HashSet<>(nonTerminals.values()), new HashSet<>(terminals.values()),
+                productions, startSymbol);
+        grammar.toChomskyNormalForm();
+        return grammar;
+    }
+
+    private NonTerminal nonTerminal(int v, Map<Integer, NonTerminal> nonTerminals,
+                                    State[] stateById, List<Character> stackChars) {
+        NonTerminal existing = nonTerminals.get(v);
+        if (existing != null) {
+            return existing;
+        }
+        String name;
+        int reachBase = states * symbols * states;
+        if (v < reachBase) {
+            int q = v % states;
+            int x = (v / states) % symbols;
+            int p = v / states / symbols;
+            name = "[" + stateById[p].getName() + "," + stackChars.get(x) + "," + stateById[q].getName() + "]";
+        } else {
+            int p = (v - reachBase) / (symbols + 1);
+            int x = (v - reachBase) % (symbols + 1);
+            name = "[" + stateById[p].getName() + "," + (x == bottom ? "#" : stackChars.get(x).toString()) + "]";
+        }
+        NonTerminal created = new NonTerminal(name);
+        nonTerminals.put(v, created);
+        return created;
+    }
+
+    /** Minimal growable int array for the production columns. */
+    private static final class IntList {
+        private int[] data = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int get(int index) {
+            return data[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package PushDownAutomaton;
+
+/**
+ * Immutable linked stack of characters used by the PDA search.
+ * <p>
+ * Pushing creates one node that shares the whole existing stack as its tail, and popping returns
+ * the tail, so both are O(1) no matter how deep the stack is. Each node caches its depth and a
+ * hash of the full contents, which makes hashing a configuration O(1) and lets most unequal
+ * stacks be told apart without walking them. A 64-bit fingerprint of the contents is cached as
+ * well, for visited sets that store fingerprints instead of stacks.
+ * </p>
+ */
+final class PersistentStack {
+
+    /** The empty stack; every stack ends in this node or in {@link #TRUNCATED}. */
+    static final PersistentStack EMPTY = new PersistentStack();
+
+    /**
+     * Bottom of a stack cut by {@link #truncate(int)}. It stands for symbols that can never be
+     * popped again, so it compares equal to {@link #EMPTY} and is only visible in {@link #toString()}.
+     */
+    private static final PersistentStack TRUNCATED = new PersistentStack();
+
+    private final char top;
+    private final PersistentStack next;
+    private final int depth;
+    private final int hash;
+    private final long fingerprint;
+
+    private PersistentStack() {
+        this.top = 0;
+        this.next = null;
+        this.depth = 0;
+        this.hash = 1;
+        this.fingerprint = 0xCBF29CE484222325L;
+    }
+
+    private PersistentStack(char top, PersistentStack next) {
+        this.top = top;
+        this.next = next;
+        this.depth = next.depth + 1;
+        this.hash = 31 * next.hash + top;
+        this.fingerprint = (next.fingerprint ^ top) * 0x100000001B3L;
+    }
+
+    boolean isEmpty() {
+        return depth == 0;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    /**
+     * @return a 64-bit FNV-1a style hash of the contents; equal stacks have equal fingerprints
+     */
+    long fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return the top symbol; undefined for the empty stack
+     */
+    char peek() {
+        return top;
+    }
+
+    /**
+     * @return the stack without its top symbol; the empty stack stays empty
+     */
+    PersistentStack pop() {
+        return depth == 0 ? this : next;
+    }
+
+    PersistentStack push(char symbol) {
+        return new PersistentStack(symbol, this);
+    }
+
+    /**
+     * Pushes a string so that its first character ends up on top, matching the
+     * {@code stackPush} notation of {@link PDATransition}.
+     */
+    PersistentStack pushAll(char[] symbols) {
+        PersistentStack result = this;
+        for (int i = symbols.length - 1; i >= 0; i--) {
+            result = new PersistentStack(symbols[i], result);
+        }
+        return result;
+    }
+
+    /**
+     * Keeps only the top {@code maxDepth} symbols. Used when the search can prove that nothing
+     * below that depth will ever be popped, so configurations differing only there are equivalent.
+     *
+     * @return this stack if it is no deeper than {@code maxDepth}, otherwise a new cut stack
+     */
+    PersistentStack truncate(int maxDepth) {
+        if (depth <= maxDepth) {
+            return this;
+        }
+        char[] kept = new char[maxDepth];
+        PersistentStack cur = this;
+        for (int i = 0; i < maxDepth; i++) {
+            kept[i] = cur.top;
+            cur = cur.next;
+        }
+        return TRUNCATED.pushAll(kept);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PersistentStack)) return false;
+        PersistentStack a = this;
+        PersistentStack b = (PersistentStack) o;
+        if (a.depth != b.depth || a.hash != b.hash) return false;
+        // Walk until the two stacks reach a shared tail
+        while (a != b) {
+            if (a.depth == 0) return true; // EMPTY and TRUNCATED
+            if (a.top != b.top) return false;
+            a = a.next;
+            b = b.next;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * @return the stack contents from top to bottom, ending in {@code ...} if the stack was truncated
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(depth);
+        PersistentStack cur = this;
+        for (; cur.depth > 0; cur = cur.next) {
+            sb.append(cur.top);
+        }
+        if (cur == TRUNCATED) {
+            sb.append("...");
+        }
+        return sb.toString();
+    }
+}
@@ -1,6 +1,7 @@
 package RegularExpression.SyntaxTree;
 
 import common.Automaton;
+import common.ExecutionBudget;
 import common.InputNormalizer;
 
 import java.util.*;
@@ -173,6 +174,19 @@ public class SyntaxTree extends Automaton {
 
     @Override
     public ExecutionResult execute(String inputText) {
+        return execute(inputText, ExecutionOptions.FULL_TRACE);
+    }
+
+    /**
+     * Matches the input against the regex. The trace lists the match end positions
+     * and is skipped with {@link TraceLevel#NONE}.
+     *
+     * @param inputText input string
+     * @param options   execution options
+     * @return the execution result
+     */
+    @Override
+    public ExecutionResult execute(String inputText, ExecutionOptions options) {
         List<ValidationMessage> runtimeMessages = new ArrayList<>();
         StringBuilder trace = new StringBuilder();
 
@@ -190,9 +204,20 @@ public class SyntaxTree extends Automaton {
             }
         }
 
+        ExecutionBudget budget = ExecutionBudget.start(options);
+        if (!budget.check()) {
+            runtimeMessages.add(budget.toMessage());
+            return new ExecutionResult(false, runtimeMessages, trace.toString());
+        }
+
         Set<Integer> ends = root.match(inputText, 0);
         boolean accepted = ends.contains(inputText.length());
-        trace.append("Ends: ").append(ends).append("\n");
+        if (options.getTraceLevel() == TraceLevel.NONE) {
+            return new ExecutionResult(accepted, runtimeMessages, "");
+        }
+        if (options.isFullTrace()) {
+            trace.append("Ends: ").append(ends).append("\n");
+        }
         trace.append(accepted ? "ACCEPT" : "REJECT");
 
         return new ExecutionResult(accepted, runtimeMessages, trace.toString());
@@ -0,0 +1,89 @@
+package TuringMachine;
+
+/**
+ * Detects a TM run that has entered a configuration it was already in, which means it will
+ * never halt.
+ * <p>
+ * A configuration is the state, the head position and the tape content. The detector keeps one
+ * snapshot and moves it forward at steps 1, 2, 4, 8, ... (Brent's cycle detection), so any loop
+ * that stays within bounded tape space is found within about twice its start step plus its
+ * period. Each step compares the state, head position and a 64-bit tape hash against the snapshot;
+ * the hash is a sum of per-cell values that is updated on every write in O(1). Only when these match
+ * is the full tape compared, so a reported loop is always a real repetition.
+ * </p>
+ */
+final class LoopDetector {
+
+    private long hash;
+
+    private int snapshotState;
+    private int snapshotHead;
+    private long snapshotHash;
+    private char[] snapshotTape;
+    private long snapshotStep;
+    private long nextSnapshotStep;
+
+    /**
+     * Starts watching a run from its initial configuration (step 0).
+     */
+    LoopDetector(int state, Tape tape) {
+        char[] content = tape.copyContent();
+        for (int i = 0; i < content.length; i++) {
+            hash += cellHash(i, content[i]);
+        }
+        snapshot(state, tape, content, 0);
+        nextSnapshotStep = 1;
+    }
+
+    /**
+     * Records that {@code written} replaced {@code read} at the given cell.
+     */
+    void written(int position, char read, char written) {
+        hash += cellHash(position, written) - cellHash(position, read);
+    }
+
+    /**
+     * Checks the configuration reached after {@code step} steps.
+     *
+     * @return true if it equals the configuration after {@link #getRepeatedStep()} steps
+     */
+    boolean repeats(int state, Tape tape, long step) {
+        if (state == snapshotState && tape.getHeadPosition() == snapshotHead && hash == snapshotHash
+                && tape.hasContent(snapshotTape)) {
+            return true;
+        }
+        if (step == nextSnapshotStep) {
+            snapshot(state, tape, tape.copyContent(), step);
+            nextSnapshotStep = step * 2;
+        }
+        return false;
+    }
+
+    /**
+     * @return the step whose configuration was repeated
+     */
+    long getRepeatedStep() {
+        return snapshotStep;
+    }
+
+    private void snapshot(int state, Tape tape, char[] content, long step) {
+        snapshotState = state;
+        snapshotHead = tape.getHeadPosition();
+        snapshotHash = hash;
+        snapshotTape = content;
+        snapshotStep = step;
+    }
+
+    /**
+     * @return a pseudo-random value for a symbol in a cell, 0 for a blank so trailing blanks do not count
+     */
+    private static long cellHash(int position, char symbol) {
+        if (symbol == Tape.BLANK) {
+            return 0;
+        }
+        long z = ((long) position << 16 | symbol) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,316 @@
+package TuringMachine;
+
+import java.util.Arrays;
+
+/**
+ * Run-length encoded tape used by {@link TM.ExecutionMode#ACCELERATED}.
+ * <p>
+ * The tape is a doubly linked list of runs of identical symbols, kept in parallel arrays so
+ * that splitting and merging runs does not allocate once the arrays are large enough. Adjacent
+ * runs always hold different symbols, and the last run is the blank rest of the tape, which is
+ * treated as infinitely long. This lets {@link #fill(int, char, boolean)} rewrite a whole run of cells
+ * in time independent of its length. Like {@link Tape}, the tape is bounded on the left.
+ * </p>
+ */
+final class RunLengthTape {
+
+    private static final int NIL = -1;
+
+    private char[] symbol = new char[16];
+    private int[] length = new int[16];
+    private int[] prev = new int[16];
+    private int[] next = new int[16];
+    private int free = NIL;
+    private int allocated;
+
+    private int first;
+    /** Run holding the head, and the head's offset from the start of that run. */
+    private int run;
+    private int offset;
+    private int head;
+    /** Number of cells the input or the head has reached, as in {@link Tape#size()}. */
+    private long size;
+    /** Number of runs before the infinite blank run. */
+    private int finiteRuns;
+
+    RunLengthTape(String input) {
+        first = NIL;
+        int last = NIL;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (last != NIL && symbol[last] == c) {
+                length[last]++;
+                continue;
+            }
+            int r = newRun(c, 1);
+            if (last == NIL) {
+                first = r;
+            } else {
+                link(last, r);
+                finiteRuns++;
+            }
+            last = r;
+        }
+        // The blank rest of the tape; trailing blank input cells become part of it
+        if (last == NIL) {
+            first = newRun(Tape.BLANK, 0);
+        } else if (symbol[last] != Tape.BLANK) {
+            link(last, newRun(Tape.BLANK, 0));
+            finiteRuns++;
+        }
+        run = first;
+        offset = 0;
+        head = 0;
+        size = input.length();
+    }
+
+    char read() {
+        if (head >= size) {
+            size = head + 1L;
+        }
+        return symbol[run];
+    }
+
+    int getHeadPosition() {
+        return head;
+    }
+
+    /**
+     * @return the number of cells from the head to the end of its run in the given direction,
+     *         inclusive; {@link Long#MAX_VALUE} to the right on the blank rest of the tape
+     */
+    long runAhead(boolean right) {
+        if (right) {
+            return next[run] == NIL ? Long.MAX_VALUE : length[run] - offset;
+        }
+        return offset + 1;
+    }
+
+    /**
+     * @return true if the run holding the head starts at the left end of the tape
+     */
+    boolean inFirstRun() {
+        return run == first;
+    }
+
+    /**
+     * Writes {@code c} into {@code count} cells starting at the head and going in the given
+     * direction, all within the head's run, and moves the head past them. This is the effect of
+     * {@code count} steps of a transition that stays in its state and reads the run's symbol.
+     */
+    void fill(int count, char c, boolean right) {
+        if (count == 0) {
+            return;
+        }
+        int from = right ? offset : offset - count + 1;
+        if (symbol[run] != c) {
+            isolate(from, count);
+            symbol[run] = c;
+            from = mergeAround();
+        }
+        if (right) {
+            offset = from + count;
+            head += count;
+            size = Math.max(size, (long) head);
+            if (next[run] != NIL && offset == length[run]) {
+                run = next[run];
+                offset = 0;
+            }
+        } else {
+            offset = from;
+            head -= count - 1;
+            moveLeft();
+        }
+    }
+
+    void write(char c) {
+        if (symbol[run] != c) {
+            isolate(offset, 1);
+            symbol[run] = c;
+            offset = mergeAround();
+        }
+    }
+
+    void moveRight() {
+        head++;
+        offset++;
+        if (next[run] != NIL && offset == length[run]) {
+            run = next[run];
+            offset = 0;
+        }
+    }
+
+    void moveLeft() {
+        if (head == 0) {
+            return;
+        }
+        head--;
+        if (offset > 0) {
+            offset--;
+        } else {
+            run = prev[run];
+            offset = length[run] - 1;
+        }
+    }
+
+    /**
+     * Splits the head's run so that cells [from, from + count) of it form a run of their own,
+     * and makes that run the head's run with offset 0.
+     */
+    private void isolate(int from, int count) {
+        if (from > 0) {
+            int before = newRun(symbol[run], from);
+            linkBefore(before, run);
+            length[run] -= from;
+            finiteRuns++;
+        }
+        boolean last = next[run] == NIL;
+        if (last || length[run] > count) {
+            int part = newRun(symbol[run], count);
+            linkBefore(part, run);
+            if (!last) {
+                length[run] -= count;
+            }
+            finiteRuns++;
+            run = part;
+        }
+        offset = 0;
+    }
+
+    /**
+     * Merges the head's run with neighbours holding the same symbol.
+     *
+     * @return the offset at which the head's old run now starts within the merged run
+     */
+    private int mergeAround() {
+        int shift = 0;
+        int p = prev[run];
+        if (p != NIL && symbol[p] == symbol[run]) {
+            shift = length[p];
+            length[p] += length[run];
+            unlink(run);
+            run = p;
+        }
+        int n = next[run];
+        if (n != NIL && symbol[n] == symbol[run]) {
+            length[n] += length[run];
+            unlink(run);
+            run = n;
+        }
+        return shift;
+    }
+
+    private int newRun(char c, int len) {
+        int r;
+        if (free != NIL) {
+            r = free;
+            free = next[r];
+        } else {
+            if (allocated == symbol.length) {
+                int capacity = allocated * 2;
+                symbol = Arrays.copyOf(symbol, capacity);
+                length = Arrays.copyOf(length, capacity);
+                prev = Arrays.copyOf(prev, capacity);
+                next = Arrays.copyOf(next, capacity);
+            }
+            r = allocated++;
+        }
+        symbol[r] = c;
+        length[r] = len;
+        prev[r] = NIL;
+        next[r] = NIL;
+        return r;
+    }
+
+    private void link(int a, int b) {
+        next[a] = b;
+        prev[b] = a;
+    }
+
+    private void linkBefore(int r, int at) {
+        int p = prev[at];
+        prev[r] = p;
+        next[r] = at;
+        prev[at] = r;
+        if (p != NIL) {
+            next[p] = r;
+        } else {
+            first = r;
+        }
+    }
+
+    private void unlink(int r) {
+        int p = prev[r];
+        int n = next[r];
+        if (p != NIL) {
+            next[p] = n;
+        } else {
+            first = n;
+        }
+        if (n != NIL) {
+            prev[n] = p;
+            finiteRuns--;
+        }
+        next[r] = free;
+        free = r;
+    }
+
+    /**
+     * Captures the current content and head position for {@link #matches(Snapshot)}.
+     */
+    Snapshot snapshot() {
+        char[] symbols = new char[finiteRuns];
+        int[] lengths = new int[finiteRuns];
+        int i = 0;
+        for (int r = first; next[r] != NIL; r = next[r]) {
+            symbols[i] = symbol[r];
+            lengths[i++] = length[r];
+        }
+        return new Snapshot(head, symbols, lengths);
+    }
+
+    /**
+     * @return true if the head position and the content, ignoring trailing blanks, equal the snapshot
+     */
+    boolean matches(Snapshot snapshot) {
+        if (snapshot.head != head || snapshot.symbols.length != finiteRuns) {
+            return false;
+        }
+        int i = 0;
+        for (int r = first; next[r] != NIL; r = next[r], i++) {
+            if (symbol[r] != snapshot.symbols[i] || length[r] != snapshot.lengths[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the content and head position onto a plain tape.
+     */
+    void copyTo(Tape tape) {
+        char[] cells = new char[(int) size];
+        int position = 0;
+        for (int r = first; position < cells.length; r = next[r]) {
+            int end = next[r] == NIL ? cells.length : Math.min(cells.length, position + length[r]);
+            Arrays.fill(cells, position, end, symbol[r]);
+            position = end;
+        }
+        tape.load(cells, head);
+    }
+
+    /**
+     * Head position and tape content at one point of a run, used for loop detection.
+     */
+    static final class Snapshot {
+        private final int head;
+        private final char[] symbols;
+        private final int[] lengths;
+
+        private Snapshot(int head, char[] symbols, int[] lengths) {
+            this.head = head;
+            this.symbols = symbols;
+            this.lengths = lengths;
+        }
+    }
+}
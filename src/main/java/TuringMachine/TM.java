@@ -1,20 +1,47 @@
 package TuringMachine;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import common.Automaton;
+import common.ExecutionBudget;
 import common.Automaton.ValidationMessage.ValidationMessageType;
-import common.Symbol;
 
 /**
  * Represents a Turing Machine.
+ * <p>
+ * Runs that do not halt are stopped in two ways. A run that enters a configuration (state, head
+ * position and tape content) it was already in is detected exactly and rejected at that step.
+ * A run that keeps using new tape cells is rejected by the step limit or the deadline of the execution
+ * options. The step limit defaults to {@value #DEFAULT_MAX_STEPS} steps per input, which also bounds the
+ * tape a runaway machine can allocate; test files raise or lower it with {@code #max_steps=N} for machines
+ * that need longer runs. Either way only that input is rejected, with a WARNING saying why, so the rest
+ * of a test suite still runs.
+ * </p>
+ * <p>
+ * A parsed machine is an immutable definition. Each execution works on its own {@link TMRun}
+ * holding the tape, head, state and step count, so {@link #execute(String, ExecutionOptions)}
+ * can be called from several threads on the same instance. The single-step API
+ * ({@link #reset(String)}, {@link #step()}, {@link #getTape()}, {@link #getCurrentState()}) drives
+ * a separate interactive run that executions do not touch.
+ * </p>
  */
 public class TM extends Automaton {
+    /** Step limit per input used when the execution options do not set one */
+    public static final long DEFAULT_MAX_STEPS = 1_000_000;
+
+    /** Cells shown on each side of the head for every step of a full trace */
+    public static final int TRACE_WINDOW_RADIUS = 40;
+
+    /** Rightmost cell the head may reach; positions and the tape size are ints */
+    static final int LAST_CELL = Integer.MAX_VALUE - 1;
+
     private Set<State> states;
     private Alphabet inputAlphabet;
     private Alphabet tapeAlphabet;
@@ -22,8 +49,25 @@ public class TM extends Automaton {
     private State startState;
     private State acceptState;
     private State rejectState;
-    private State currentState;
-    private final Tape tape;
+    /** Compiled form of the transition function; built by the parser or on first use */
+    private volatile TransitionTable transitionTable;
+    private volatile ExecutionMode executionMode = ExecutionMode.STANDARD;
+    /** Run driven by {@link #step()} and {@link #reset()}; guarded by this */
+    private TMRun interactiveRun;
+
+    /**
+     * How {@link #execute(String, ExecutionOptions)} simulates the tape.
+     */
+    public enum ExecutionMode {
+        /** One transition at a time on a plain array tape. */
+        STANDARD,
+        /**
+         * On a run-length encoded tape, taking a transition that keeps the state and moves across
+         * a run of identical cells as a single macro-step over the whole run. Results and step
+         * counts are the same as {@link #STANDARD}; full traces always use {@link #STANDARD}.
+         */
+        ACCELERATED
+    }
 
     public TM() {
         super(MachineType.TM);
@@ -34,8 +78,6 @@ public class TM extends Automaton {
         this.startState = null;
         this.acceptState = null;
         this.rejectState = null;
-        this.tape = new Tape();
-        this.currentState = null;
     }
 
     /**
@@ -63,8 +105,21 @@ public class TM extends Automaton {
         this.startState = startState;
         this.acceptState = acceptState;
         this.rejectState = rejectState;
-        this.tape = new Tape();
-        reset();
+    }
+
+    /**
+     * Constructs a TuringMachine with a transition table already compiled by {@link TMParser}.
+     */
+    TM(Set<State> states,
+       Alphabet inputAlphabet,
+       Alphabet tapeAlphabet,
+       Map<ConfigurationKey, Transition> transitionFunction,
+       State startState,
+       State acceptState,
+       State rejectState,
+       TransitionTable transitionTable) {
+        this(states, inputAlphabet, tapeAlphabet, transitionFunction, startState, acceptState, rejectState);
+        this.transitionTable = transitionTable;
     }
 
     @Override
@@ -96,31 +151,58 @@ public class TM extends Automaton {
     }
 
     /**
-     * Performs a single step of the Turing Machine's computation.
+     * Starts a new run of this machine on the input. Runs are independent of each other and of
+     * {@link #step()}, so several threads can each drive their own run of the same machine.
+     * @param input The input string to write to the tape.
+     * @return A run in the start state with the head on the first cell.
+     */
+    public TMRun start(String input) {
+        Objects.requireNonNull(startState, "Start state not initialized");
+        return new TMRun(transitionTable(), input);
+    }
+
+    /**
+     * Performs a single step of the interactive run started by {@link #reset(String)}.
      */
-    public void step() {
-        Symbol currentSymbol = new Symbol(tape.read());
-        Transition transition = transitionFunction.get(new ConfigurationKey(currentState, currentSymbol.getValue()));
+    public synchronized void step() {
+        interactiveRun().step();
+    }
 
-        if (transition == null) {
-            currentState = rejectState;
-            return;
+    /**
+     * Returns the compiled transition table, building it on first use for machines
+     * created through the public constructor rather than {@link TMParser}.
+     */
+    private TransitionTable transitionTable() {
+        TransitionTable table = transitionTable;
+        if (table == null) {
+            table = TransitionTable.compile(states, tapeAlphabet, transitionFunction, startState, rejectState);
+            transitionTable = table;
         }
+        return table;
+    }
 
-        tape.write(transition.getSymbolToWrite());
-        tape.move(transition.getMoveDirection());
-        currentState = transition.getNextState();
+    /**
+     * Resets the interactive run to the start state with an empty tape.
+     */
+    public synchronized void reset() {
+        reset("");
     }
 
     /**
-     * Resets the Turing Machine to its initial state.
+     * Resets the interactive run to the start state with the input on the tape.
+     * Runs of {@link #execute(String)} and {@link #start(String)} are not affected.
+     * @param input The input string to write to the tape.
      */
-    public void reset() {
-        tape.clear();
-        currentState = startState;
+    public synchronized void reset(String input) {
+        interactiveRun = startState == null ? null : start(input);
     }
 
-    
+    private TMRun interactiveRun() {
+        if (interactiveRun == null) {
+            reset();
+        }
+        return interactiveRun;
+    }
 
     /**
      * Returns the set of states in the Turing Machine.
@@ -147,19 +229,19 @@ public class TM extends Automaton {
     }
 
     /**
-     * Returns the current state of the Turing Machine.
+     * Returns the current state of the interactive run.
      * @return The current state.
      */
-    public State getCurrentState() {
-        return currentState;
+    public synchronized State getCurrentState() {
+        return startState == null ? null : interactiveRun().getCurrentState();
     }
 
     /**
-     * Returns the tape of the Turing Machine.
+     * Returns the tape of the interactive run.
      * @return The tape.
      */
-    public Tape getTape() {
-        return tape;
+    public synchronized Tape getTape() {
+        return startState == null ? new Tape() : interactiveRun().getTape();
     }
 
     @Override
@@ -189,22 +271,190 @@ public class TM extends Automaton {
 
     @Override
     public ExecutionResult execute(String inputText) {
-        StringBuilder trace = new StringBuilder();
-        reset();
-        tape.initialize(inputText);
-        currentState = startState;
+        return execute(inputText, ExecutionOptions.FULL_TRACE);
+    }
 
-        trace.append("Initial State: ").append(currentState.getName()).append(", Tape: ");
-        tape.appendTapeTo(trace);
-        trace.append("\n");
+    /**
+     * Runs the machine on the input. With {@link TraceLevel#FULL} the tape is recorded
+     * after every step, limited to {@link #TRACE_WINDOW_RADIUS} cells on each side of the
+     * head so long runs do not copy the whole tape per step; {@link TraceLevel#SUMMARY}
+     * records only the halting configuration and {@link TraceLevel#NONE} records nothing. The run stops with a WARNING and is
+     * rejected when it repeats a configuration, or when the step limit ({@value #DEFAULT_MAX_STEPS}
+     * if the options set none), deadline or cancellation in the options is reached.
+     *
+     * @param inputText the input written on the tape
+     * @param options   execution options
+     * @return the execution result
+     */
+    @Override
+    public ExecutionResult execute(String inputText, ExecutionOptions options) {
+        TMRun run = start(inputText);
+        TransitionTable table = transitionTable();
+        Tape tape = run.getTape();
+        if (options.getMaxSteps() == 0) {
+            options = options.withMaxSteps(DEFAULT_MAX_STEPS);
+        }
+        boolean fullTrace = options.isFullTrace();
+        StringBuilder trace = options.getTraceLevel() == TraceLevel.NONE ? null : new StringBuilder();
 
-        while (!currentState.isAccept() && !currentState.isReject()) {
-            step();
-            trace.append("State: ").append(currentState.getName()).append(", Tape: ");
+        if (fullTrace) {
+            trace.append("Initial State: ").append(run.getCurrentState().getName()).append(", Tape: ");
+            tape.appendTapeTo(trace);
+            trace.append("\n");
+        }
+        ExecutionBudget budget = ExecutionBudget.start(options);
+        if (executionMode == ExecutionMode.ACCELERATED && !fullTrace) {
+            return executeAccelerated(table, run, inputText, budget, trace);
+        }
+        LoopDetector loops = new LoopDetector(run.stateId(), tape);
+        while (!run.isHalted()) {
+            if (!budget.step()) {
+                List<ValidationMessage> messages = new ArrayList<>();
+                messages.add(budget.toMessage());
+                return new ExecutionResult(false, messages, trace == null ? "" : trace.toString());
+            }
+            run.advance(loops);
+            if (fullTrace) {
+                trace.append("State: ").append(run.getCurrentState().getName()).append(", Tape: ");
+                tape.appendWindowTo(trace, TRACE_WINDOW_RADIUS);
+                trace.append("\n");
+            }
+            if (loops.repeats(run.stateId(), tape, budget.getSteps())) {
+                List<ValidationMessage> messages = new ArrayList<>();
+                messages.add(cycleMessage(budget.getSteps(), loops.getRepeatedStep(), run.getCurrentState(), tape.getHeadPosition()));
+                return new ExecutionResult(false, messages, trace == null ? "" : trace.toString());
+            }
+        }
+        boolean accepted = run.isAccepted();
+        if (trace == null) {
+            return new ExecutionResult(accepted, Collections.emptyList(), "");
+        }
+        if (!fullTrace) {
+            trace.append("Halted in state: ").append(run.getCurrentState().getName()).append(", Tape: ");
             tape.appendTapeTo(trace);
             trace.append("\n");
         }
-        return new ExecutionResult(currentState.isAccept(), new ArrayList<>(), trace.toString());
+        return new ExecutionResult(accepted, new ArrayList<>(), trace.toString());
+    }
+
+    /**
+     * Runs the machine on a {@link RunLengthTape}. When the transition for the symbol under the
+     * head keeps the state, every cell of the head's run in the moving direction would be read
+     * by that same transition, so the whole run is rewritten and crossed in one macro-step. Loops
+     * are detected as in the standard engine, on the configurations between macro-steps. A macro-step
+     * can cross billions of blank cells at once, so a run that would move the head past
+     * {@link #LAST_CELL} is rejected with a WARNING instead of overflowing the head position. The
+     * run's tape receives the final content when the machine halts or loops.
+     */
+    private ExecutionResult executeAccelerated(TransitionTable table, TMRun run, String inputText,
+                                               ExecutionBudget budget, StringBuilder trace) {
+        RunLengthTape runs = new RunLengthTape(inputText);
+        int state = table.start;
+        long skipped = 0;
+
+        int snapshotState = state;
+        RunLengthTape.Snapshot snapshot = runs.snapshot();
+        long snapshotStep = 0;
+        long iterations = 0;
+        long nextSnapshot = 1;
+
+        while (table.status[state] == TransitionTable.RUNNING) {
+            int entry = table.entry(state, runs.read());
+            boolean right = TransitionTable.movesRight(entry);
+            long count = 1;
+            if (entry != TransitionTable.NONE && TransitionTable.nextState(entry) == state) {
+                // Cell 0 is left to a single step: moving left there keeps the head in place
+                count = runs.runAhead(right) - (!right && runs.inFirstRun() ? 1 : 0);
+                if (right) {
+                    count = Math.min(count, LAST_CELL - runs.getHeadPosition());
+                }
+                count = Math.min(count, budget.getRemainingSteps());
+            }
+            if (count > 1) {
+                if (!budget.step(count)) {
+                    return new ExecutionResult(false, new ArrayList<>(Collections.singletonList(budget.toMessage())),
+                            trace == null ? "" : trace.toString());
+                }
+                runs.fill((int) count, table.symbolToWrite(entry), right);
+                skipped += count - 1;
+            } else {
+                if (!budget.step()) {
+                    return new ExecutionResult(false, new ArrayList<>(Collections.singletonList(budget.toMessage())),
+                            trace == null ? "" : trace.toString());
+                }
+                if (entry == TransitionTable.NONE) {
+                    state = table.reject;
+                } else {
+                    if (right && runs.getHeadPosition() == LAST_CELL) {
+                        List<ValidationMessage> messages = new ArrayList<>();
+                        messages.add(tapeEndMessage(budget.getSteps(), table.states[state]));
+                        return new ExecutionResult(false, messages, trace == null ? "" : trace.toString());
+                    }
+                    runs.write(table.symbolToWrite(entry));
+                    if (right) {
+                        runs.moveRight();
+                    } else {
+                        runs.moveLeft();
+                    }
+                    state = TransitionTable.nextState(entry);
+                }
+            }
+
+            // Brent's cycle detection over the configurations between iterations, see LoopDetector
+            iterations++;
+            if (state == snapshotState && runs.matches(snapshot)) {
+                run.finish(runs, state, budget.getSteps());
+                List<ValidationMessage> messages = new ArrayList<>();
+                messages.add(cycleMessage(budget.getSteps(), snapshotStep, run.getCurrentState(), runs.getHeadPosition()));
+                return new ExecutionResult(false, messages, trace == null ? "" : trace.toString());
+            }
+            if (iterations == nextSnapshot) {
+                snapshotState = state;
+                snapshot = runs.snapshot();
+                snapshotStep = budget.getSteps();
+                nextSnapshot *= 2;
+            }
+        }
+
+        run.finish(runs, state, budget.getSteps());
+        boolean accepted = run.isAccepted();
+        List<ValidationMessage> messages = skipped == 0 ? Collections.emptyList() : new ArrayList<>();
+        if (skipped > 0) {
+            messages.add(new ValidationMessage(String.format("Accelerated: %d of %d steps skipped by macro-steps over runs of identical cells.",
+                    skipped, budget.getSteps()), 0, ValidationMessageType.INFO));
+        }
+        if (trace == null) {
+            return new ExecutionResult(accepted, messages, "");
+        }
+        trace.append("Halted in state: ").append(run.getCurrentState().getName()).append(", Tape: ");
+        run.getTape().appendTapeTo(trace);
+        trace.append("\n");
+        return new ExecutionResult(accepted, new ArrayList<>(messages), trace.toString());
+    }
+
+    private static ValidationMessage tapeEndMessage(long step, State state) {
+        String text = String.format("Execution stopped at step %d: the head would move past the last tape cell (%d) "
+                + "in state %s.", step, LAST_CELL, state.getName());
+        return new ValidationMessage(text, 0, ValidationMessageType.WARNING);
+    }
+
+    private static ValidationMessage cycleMessage(long step, long repeatedStep, State state, int head) {
+        String text = String.format("Cycle detected at step %d: the configuration repeats the one after step %d "
+                + "(state %s, head at cell %d), so the machine never halts.", step, repeatedStep, state.getName(), head);
+        return new ValidationMessage(text, 0, ValidationMessageType.WARNING);
+    }
+
+    /**
+     * Selects how {@link #execute(String, ExecutionOptions)} simulates the tape.
+     *
+     * @param executionMode the mode to use; {@link ExecutionMode#STANDARD} by default
+     */
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = Objects.requireNonNull(executionMode, "executionMode");
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
     }
 
     @Override
@@ -24,6 +24,10 @@ public class TMParser {
         createAlphabets(context);
         createTransitions(context);
 
+        // Compile phase: intern states and tape symbols into a flat transition table
+        TransitionTable transitionTable = TransitionTable.compile(context.states, context.tapeAlphabet,
+                context.transitionFunction, context.startState, context.rejectState);
+
         return new TM(
                 context.states,
                 context.inputAlphabet,
@@ -31,7 +35,8 @@ public class TMParser {
                 context.transitionFunction,
                 context.startState,
                 context.acceptState,
-                context.rejectState
+                context.rejectState,
+                transitionTable
         );
     }
 
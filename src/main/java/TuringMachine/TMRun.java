@@ -0,0 +1,111 @@
+package TuringMachine;
+
+/**
+ * One run of a {@link TM} on one input: the tape with its head, the current state and the
+ * number of steps taken.
+ * <p>
+ * The machine definition is shared and never changed by a run, so any number of runs of the
+ * same {@link TM} can be stepped or executed at the same time, one per thread. A single run is
+ * not thread-safe. Runs are created with {@link TM#start(String)}.
+ * </p>
+ */
+public final class TMRun {
+    private final TransitionTable table;
+    private final Tape tape;
+    private int state;
+    private long steps;
+
+    TMRun(TransitionTable table, String input) {
+        this.table = table;
+        this.tape = new Tape();
+        this.tape.initialize(input);
+        this.state = table.start;
+    }
+
+    /**
+     * Performs a single step, unless the machine has already halted.
+     * @return True if a step was taken.
+     */
+    public boolean step() {
+        if (isHalted()) {
+            return false;
+        }
+        advance(null);
+        return true;
+    }
+
+    /**
+     * Applies the transition for the symbol under the head, or enters the reject state if
+     * there is none.
+     * @param loops Detector to inform about the written cell, or null.
+     */
+    void advance(LoopDetector loops) {
+        steps++;
+        char read = tape.read();
+        int entry = table.entry(state, read);
+        if (entry == TransitionTable.NONE) {
+            state = table.reject;
+            return;
+        }
+        char written = table.symbolToWrite(entry);
+        if (loops != null && written != read) {
+            loops.written(tape.getHeadPosition(), read, written);
+        }
+        tape.write(written);
+        tape.move(TransitionTable.movesRight(entry) ? Direction.RIGHT : Direction.LEFT);
+        state = TransitionTable.nextState(entry);
+    }
+
+    /**
+     * Takes over the configuration reached on a run-length encoded tape.
+     */
+    void finish(RunLengthTape runs, int state, long steps) {
+        runs.copyTo(tape);
+        this.state = state;
+        this.steps = steps;
+    }
+
+    int stateId() {
+        return state;
+    }
+
+    /**
+     * Returns true once the machine is in an accepting or rejecting state.
+     * @return True if the run has halted.
+     */
+    public boolean isHalted() {
+        return table.status[state] != TransitionTable.RUNNING;
+    }
+
+    /**
+     * Returns true if the machine has halted in an accepting state.
+     * @return True if the input was accepted.
+     */
+    public boolean isAccepted() {
+        return table.status[state] == TransitionTable.ACCEPT;
+    }
+
+    /**
+     * Returns the current state of the run.
+     * @return The current state.
+     */
+    public State getCurrentState() {
+        return table.states[state];
+    }
+
+    /**
+     * Returns the tape of the run.
+     * @return The tape.
+     */
+    public Tape getTape() {
+        return tape;
+    }
+
+    /**
+     * Returns the number of steps taken so far.
+     * @return The step count.
+     */
+    public long getSteps() {
+        return steps;
+    }
+}
@@ -1,21 +1,32 @@
 package TuringMachine;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Represents the tape of a Turing Machine.
+ * <p>
+ * The tape is bounded on the left at the first input cell and unbounded on the right. Cells are
+ * kept in a {@code char[]} that doubles when the head walks past its end, so reading, writing and
+ * moving never box a character. Cells the head has not visited yet are blank.
+ * </p>
  */
 public class Tape {
-    private final List<Character> tape;
+    static final char BLANK = '_';
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Cells at index {@code size} and beyond are always {@link #BLANK}. */
+    private char[] cells;
+    /** Number of cells the input or the head has reached so far. */
+    private int size;
     private int headPosition;
-    private static final char BLANK = '_';
 
     /**
      * Constructs a new empty tape.
      */
     public Tape() {
-        tape = new ArrayList<>();
+        cells = new char[INITIAL_CAPACITY];
+        Arrays.fill(cells, BLANK);
+        size = 0;
         headPosition = 0;
     }
 
@@ -24,11 +35,10 @@ public class Tape {
      * @param input The input string to write to the tape.
      */
     public void initialize(String input) {
-        tape.clear();
-        for (char ch : input.toCharArray()) {
-            tape.add(ch);
-        }
-        headPosition = 0;
+        clear();
+        ensureCapacity(input.length());
+        input.getChars(0, input.length(), cells, 0);
+        size = input.length();
     }
 
     /**
@@ -37,7 +47,7 @@ public class Tape {
      */
     public char read() {
         ensureWithinBounds();
-        return tape.get(headPosition);
+        return cells[headPosition];
     }
 
     /**
@@ -46,7 +56,7 @@ public class Tape {
      */
     public void write(char symbol) {
         ensureWithinBounds();
-        tape.set(headPosition, symbol);
+        cells[headPosition] = symbol;
     }
 
     /**
@@ -69,8 +79,17 @@ public class Tape {
     }
 
     private void ensureWithinBounds() {
-        if (headPosition >= tape.size()) {
-            tape.add(BLANK);
+        if (headPosition >= size) {
+            ensureCapacity(headPosition + 1);
+            size = headPosition + 1;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > cells.length) {
+            int oldLength = cells.length;
+            cells = Arrays.copyOf(cells, Math.max(oldLength * 2, capacity));
+            Arrays.fill(cells, oldLength, cells.length, BLANK);
         }
     }
 
@@ -78,20 +97,80 @@ public class Tape {
      * Clears the tape and resets the head position.
      */
     public void clear() {
-        tape.clear();
+        Arrays.fill(cells, 0, size, BLANK);
+        size = 0;
         headPosition = 0;
     }
 
+    /**
+     * Replaces the tape with the given cells and places the head, e.g. at the end of a run
+     * simulated on another tape representation.
+     */
+    void load(char[] content, int head) {
+        clear();
+        ensureCapacity(content.length);
+        System.arraycopy(content, 0, cells, 0, content.length);
+        size = content.length;
+        headPosition = head;
+    }
+
+    /**
+     * Returns the position of the head, counted from the left end of the tape.
+     * @return The head position.
+     */
+    public int getHeadPosition() {
+        return headPosition;
+    }
+
+    /**
+     * Returns the number of cells the input or the head has reached so far.
+     * @return The used length of the tape.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the used part of the tape without trailing blanks. Blank cells past the end of the
+     * content are indistinguishable from unvisited ones, so two tapes with equal content behave
+     * the same.
+     * @return A copy of the tape content.
+     */
+    char[] copyContent() {
+        return Arrays.copyOf(cells, contentLength());
+    }
+
+    /**
+     * @param content Content as returned by {@link #copyContent()}.
+     * @return True if this tape holds the same content, ignoring trailing blanks.
+     */
+    boolean hasContent(char[] content) {
+        if (contentLength() != content.length) {
+            return false;
+        }
+        for (int i = 0; i < content.length; i++) {
+            if (cells[i] != content[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int contentLength() {
+        int length = size;
+        while (length > 0 && cells[length - 1] == BLANK) {
+            length--;
+        }
+        return length;
+    }
+
     /**
      * Prints the contents of the tape to the console.
      */
     public void printTape() {
-        for (int i = 0; i < tape.size(); i++) {
-            if (i == headPosition) System.out.print("[");
-            System.out.print(tape.get(i));
-            if (i == headPosition) System.out.print("]");
-        }
-        System.out.println();
+        StringBuilder sb = new StringBuilder();
+        appendTapeTo(sb);
+        System.out.println(sb);
     }
 
     /**
@@ -99,11 +178,7 @@ public class Tape {
      * @return The contents of the tape.
      */
     public String getTapeContents() {
-        StringBuilder sb = new StringBuilder();
-        for (char ch : tape) {
-            sb.append(ch);
-        }
-        return sb.toString();
+        return new String(cells, 0, size);
     }
 
     /**
@@ -111,10 +186,40 @@ public class Tape {
      * @param sb The StringBuilder to append to.
      */
     public void appendTapeTo(StringBuilder sb) {
-        for (int i = 0; i < tape.size(); i++) {
+        appendRange(sb, 0, size);
+    }
+
+    /**
+     * Appends only the cells within {@code radius} of the head, with the head position indicated
+     * by brackets and {@code ...} marking cells cut off on either side. A tape that fits in the
+     * window renders exactly like {@link #appendTapeTo(StringBuilder)}.
+     * @param sb The StringBuilder to append to.
+     * @param radius The number of cells to show on each side of the head.
+     */
+    public void appendWindowTo(StringBuilder sb, int radius) {
+        int from = Math.max(0, headPosition - radius);
+        int to = Math.min(size, headPosition + radius + 1);
+        if (from > 0) sb.append("...");
+        appendRange(sb, from, to);
+        if (to < size) sb.append("...");
+    }
+
+    /**
+     * Returns the window around the head rendered by {@link #appendWindowTo(StringBuilder, int)}.
+     * @param radius The number of cells to show on each side of the head.
+     * @return The window around the head.
+     */
+    public String getWindow(int radius) {
+        StringBuilder sb = new StringBuilder(2 * radius + 8);
+        appendWindowTo(sb, radius);
+        return sb.toString();
+    }
+
+    private void appendRange(StringBuilder sb, int from, int to) {
+        for (int i = from; i < to; i++) {
             if (i == headPosition) sb.append("[");
-            sb.append(tape.get(i));
+            sb.append(cells[i]);
             if (i == headPosition) sb.append("]");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,162 @@
+package TuringMachine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import common.Symbol;
+
+/**
+ * Dense, int-indexed form of a TM transition function used by {@link TM#execute(String)}.
+ * <p>
+ * States are numbered in the order they are first seen and tape characters are mapped to
+ * symbol indices through a direct lookup array. Each (state, symbol) pair has one {@code int}
+ * entry in a flat row-major array that packs the next state, the symbol to write and the
+ * direction, so a step is three array reads and no allocation.
+ * </p>
+ */
+final class TransitionTable {
+
+    /** Entry for a (state, symbol) pair without a transition. */
+    static final int NONE = -1;
+
+    /** Status of a state: still computing. */
+    static final byte RUNNING = 0;
+    /** Status of a state: halts and accepts. */
+    static final byte ACCEPT = 1;
+    /** Status of a state: halts and rejects. */
+    static final byte REJECT = 2;
+
+    /** Both the next state and the written symbol are stored in 15 bits. */
+    private static final int MAX_IDS = 1 << 15;
+
+    /** State id -> state, used for trace output. */
+    final State[] states;
+    /** State id -> {@link #RUNNING}, {@link #ACCEPT} or {@link #REJECT}. */
+    final byte[] status;
+    /** Symbol index -> tape character. */
+    final char[] symbols;
+    /** Tape character -> symbol index, -1 if no transition can read the character. */
+    private final int[] symbolIndex;
+    /** [state id * symbols.length + symbol index] -> packed entry or {@link #NONE}. */
+    private final int[] entries;
+    final int start;
+    /** State entered when no transition applies, -1 if the machine has no reject state. */
+    final int reject;
+
+    private TransitionTable(State[] states, byte[] status, char[] symbols, int[] symbolIndex,
+                            int[] entries, int start, int reject) {
+        this.states = states;
+        this.status = status;
+        this.symbols = symbols;
+        this.symbolIndex = symbolIndex;
+        this.entries = entries;
+        this.start = start;
+        this.reject = reject;
+    }
+
+    /**
+     * @return the packed entry for reading {@code c} in {@code state}, or {@link #NONE}
+     */
+    int entry(int state, char c) {
+        int symbol = c < symbolIndex.length ? symbolIndex[c] : -1;
+        return symbol < 0 ? NONE : entries[state * symbols.length + symbol];
+    }
+
+    static int nextState(int entry) {
+        return entry >>> 16;
+    }
+
+    char symbolToWrite(int entry) {
+        return symbols[(entry >>> 1) & (MAX_IDS - 1)];
+    }
+
+    static boolean movesRight(int entry) {
+        return (entry & 1) != 0;
+    }
+
+    static TransitionTable compile(Set<State> states, Alphabet tapeAlphabet,
+                                   Map<ConfigurationKey, Transition> transitionFunction,
+                                   State startState, State rejectState) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<State> order = new ArrayList<>();
+        if (states != null) {
+            for (State state : states) {
+                register(state, ids, order);
+            }
+        }
+        register(startState, ids, order);
+        register(rejectState, ids, order);
+
+        // Symbols come from the tape alphabet and from the transitions themselves
+        StringBuilder symbolChars = new StringBuilder();
+        if (tapeAlphabet != null) {
+            for (Symbol symbol : tapeAlphabet.getSymbols()) {
+                symbolChars.append(symbol.getValue());
+            }
+        }
+        if (transitionFunction != null) {
+            for (Map.Entry<ConfigurationKey, Transition> e : transitionFunction.entrySet()) {
+                register(e.getKey().getState(), ids, order);
+                register(e.getValue().getNextState(), ids, order);
+                symbolChars.append(e.getKey().getSymbolToRead()).append(e.getValue().getSymbolToWrite());
+            }
+        }
+        int maxChar = -1;
+        for (int i = 0; i < symbolChars.length(); i++) {
+            maxChar = Math.max(maxChar, symbolChars.charAt(i));
+        }
+        int[] symbolIndex = new int[maxChar + 1];
+        Arrays.fill(symbolIndex, -1);
+        StringBuilder symbols = new StringBuilder();
+        for (int i = 0; i < symbolChars.length(); i++) {
+            char c = symbolChars.charAt(i);
+            if (symbolIndex[c] < 0) {
+                symbolIndex[c] = symbols.length();
+                symbols.append(c);
+            }
+        }
+        if (order.size() > MAX_IDS || symbols.length() > MAX_IDS) {
+            throw new IllegalArgumentException("Turing machine has too many states or tape symbols (limit " + MAX_IDS + ")");
+        }
+
+        int width = symbols.length();
+        int[] entries = new int[order.size() * width];
+        Arrays.fill(entries, NONE);
+        if (transitionFunction != null) {
+            for (Map.Entry<ConfigurationKey, Transition> e : transitionFunction.entrySet()) {
+                State from = e.getKey().getState();
+                Transition t = e.getValue();
+                if (from == null || t.getNextState() == null) {
+                    continue;
+                }
+                int row = ids.get(from.getName());
+                int column = symbolIndex[e.getKey().getSymbolToRead()];
+                entries[row * width + column] = ids.get(t.getNextState().getName()) << 16
+                        | symbolIndex[t.getSymbolToWrite()] << 1
+                        | (t.getMoveDirection() == Direction.RIGHT ? 1 : 0);
+            }
+        }
+
+        byte[] status = new byte[order.size()];
+        for (int i = 0; i < status.length; i++) {
+            State state = order.get(i);
+            status[i] = state.isAccept() ? ACCEPT : state.isReject() ? REJECT : RUNNING;
+        }
+
+        int start = startState != null ? ids.get(startState.getName()) : -1;
+        int reject = rejectState != null ? ids.get(rejectState.getName()) : -1;
+        return new TransitionTable(order.toArray(new State[0]), status, symbols.toString().toCharArray(),
+                symbolIndex, entries, start, reject);
+    }
+
+    private static void register(State state, Map<String, Integer> ids, List<State> order) {
+        if (state != null && !ids.containsKey(state.getName())) {
+            ids.put(state.getName(), order.size());
+            order.add(state);
+        }
+    }
+}
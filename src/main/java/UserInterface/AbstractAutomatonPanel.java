@@ -899,7 +899,8 @@ public abstract class AbstractAutomatonPanel extends JPanel implements Automaton
         Integer effectiveMaxRules = maxRulesLimit;
         Integer effectiveMaxTransitions = maxTransitionsLimit;
         try {
-            common.TestFileParser.TestFileResult testFileResult = common.TestFileParser.parseTestFile(testFilePath);
+            // Loaded once and shared with TestRunner through the cache
+            common.TestSuite testFileResult = common.TestSuiteCache.get(testFilePath);
             if (testFileResult.hasTimeout()) {
                 effectiveTimeoutMs = testFileResult.getTimeout() * 1000L;
             }
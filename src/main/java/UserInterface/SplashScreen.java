@@ -18,6 +18,8 @@ import javax.swing.JWindow;
 import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
+import common.GraphvizRenderer;
+
 public class SplashScreen extends JWindow {
     
     private static final int LOADING_STEP_DELAY_MS = 500;
@@ -44,6 +46,8 @@ public class SplashScreen extends JWindow {
     };
     
     public SplashScreen() {
+        // Start the Graphviz engine while the splash screen is showing, so the first compile renders quickly
+        GraphvizRenderer.warmUpAsync();
         initComponents();
         setLocationRelativeTo(null);
         setVisible(true);
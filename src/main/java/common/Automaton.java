@@ -1,13 +1,8 @@
 package common;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import javax.swing.JLabel;
 import javax.swing.SwingConstants;
-import guru.nidi.graphviz.engine.Format;
-import guru.nidi.graphviz.engine.Graphviz;
-import guru.nidi.graphviz.engine.GraphvizJdkEngine;
 
 public abstract class Automaton {
 
@@ -120,6 +115,134 @@ public abstract class Automaton {
     }
   }
 
+  /**
+   * How much of the human-readable trace an execution should build.
+   */
+  public enum TraceLevel {
+    /** No trace; only the acceptance flag and runtime messages are produced. */
+    NONE,
+    /** A short description of the outcome instead of the step-by-step trace. */
+    SUMMARY,
+    /** The full step-by-step trace, as returned by {@link Automaton#execute(String)}. */
+    FULL
+  }
+
+  /**
+   * Options for {@link Automaton#execute(String, ExecutionOptions)}: the trace level and the
+   * execution budget (step limit, configuration limit, deadline and cancellation token).
+   * Engines meter the budget through {@link ExecutionBudget}; a run that exceeds it is
+   * rejected with a WARNING runtime message.
+   * Instances are immutable and can be shared between threads.
+   */
+  public static final class ExecutionOptions {
+
+    /** Build the full trace. This is what {@link Automaton#execute(String)} uses. */
+    public static final ExecutionOptions FULL_TRACE = new ExecutionOptions(TraceLevel.FULL, 0, 0, false, 0, null);
+    /** Build only a short outcome summary. */
+    public static final ExecutionOptions SUMMARY_TRACE = new ExecutionOptions(TraceLevel.SUMMARY, 0, 0, false, 0, null);
+    /** Skip trace construction entirely, e.g. for bulk test runs. */
+    public static final ExecutionOptions NO_TRACE = new ExecutionOptions(TraceLevel.NONE, 0, 0, false, 0, null);
+
+    private final TraceLevel traceLevel;
+    private final long maxSteps;
+    private final long maxConfigurations;
+    private final boolean hasDeadline;
+    private final long deadlineNanos;
+    private final CancellationToken cancellationToken;
+
+    private ExecutionOptions(TraceLevel traceLevel, long maxSteps, long maxConfigurations,
+                             boolean hasDeadline, long deadlineNanos, CancellationToken cancellationToken) {
+      this.traceLevel = traceLevel;
+      this.maxSteps = maxSteps;
+      this.maxConfigurations = maxConfigurations;
+      this.hasDeadline = hasDeadline;
+      this.deadlineNanos = deadlineNanos;
+      this.cancellationToken = cancellationToken;
+    }
+
+    public static ExecutionOptions of(TraceLevel traceLevel) {
+      switch (traceLevel) {
+        case NONE:
+          return NO_TRACE;
+        case SUMMARY:
+          return SUMMARY_TRACE;
+        default:
+          return FULL_TRACE;
+      }
+    }
+
+    public ExecutionOptions withTraceLevel(TraceLevel traceLevel) {
+      return new ExecutionOptions(traceLevel, maxSteps, maxConfigurations, hasDeadline, deadlineNanos, cancellationToken);
+    }
+
+    /**
+     * @param maxSteps maximum number of engine steps per execution, 0 for no limit
+     */
+    public ExecutionOptions withMaxSteps(long maxSteps) {
+      return new ExecutionOptions(traceLevel, Math.max(0, maxSteps), maxConfigurations, hasDeadline, deadlineNanos, cancellationToken);
+    }
+
+    /**
+     * @param maxConfigurations maximum number of configurations a search may create, 0 for no limit
+     */
+    public ExecutionOptions withMaxConfigurations(long maxConfigurations) {
+      return new ExecutionOptions(traceLevel, maxSteps, Math.max(0, maxConfigurations), hasDeadline, deadlineNanos, cancellationToken);
+    }
+
+    /**
+     * @param deadlineNanos absolute deadline in {@link System#nanoTime()} units
+     */
+    public ExecutionOptions withDeadline(long deadlineNanos) {
+      return new ExecutionOptions(traceLevel, maxSteps, maxConfigurations, true, deadlineNanos, cancellationToken);
+    }
+
+    /**
+     * @param timeoutMs time allowed from now, in milliseconds
+     */
+    public ExecutionOptions withTimeout(long timeoutMs) {
+      return withDeadline(System.nanoTime() + timeoutMs * 1_000_000L);
+    }
+
+    public ExecutionOptions withCancellationToken(CancellationToken cancellationToken) {
+      return new ExecutionOptions(traceLevel, maxSteps, maxConfigurations, hasDeadline, deadlineNanos, cancellationToken);
+    }
+
+    public TraceLevel getTraceLevel() {
+      return traceLevel;
+    }
+
+    public boolean isFullTrace() {
+      return traceLevel == TraceLevel.FULL;
+    }
+
+    public boolean isSummaryTrace() {
+      return traceLevel == TraceLevel.SUMMARY;
+    }
+
+    /** @return maximum number of steps, 0 if unlimited */
+    public long getMaxSteps() {
+      return maxSteps;
+    }
+
+    /** @return maximum number of configurations, 0 if unlimited */
+    public long getMaxConfigurations() {
+      return maxConfigurations;
+    }
+
+    public boolean hasDeadline() {
+      return hasDeadline;
+    }
+
+    public long getDeadlineNanos() {
+      return deadlineNanos;
+    }
+
+    /** @return the cancellation token, or null if none */
+    public CancellationToken getCancellationToken() {
+      return cancellationToken;
+    }
+  }
+
 //functions
 
 public String getFileExtension(){
@@ -189,35 +312,14 @@ public String getFileExtension(){
         }
 
         try {
-            // Log Java and GraalVM version info
-            String javaVersion = System.getProperty("java.version");
-            String javaVendor = System.getProperty("java.vendor");
-            System.out.println("[GraphViz] Java Version: " + javaVersion + " (" + javaVendor + ")");
-
-            try {
-                GraphvizJdkEngine jdkEngine = new GraphvizJdkEngine();
-                Graphviz.useEngine(jdkEngine);
-                System.out.println("[GraphViz] Forced GraalVM JDK engine initialization");
-            } catch (Exception engineError) {
-                System.err.println("[GraphViz] Failed to force JDK engine: " + engineError.getMessage());
-                engineError.printStackTrace();
-            }
-
-            // Generate graph image directly in memory - no files created
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            Graphviz.fromString(dotCode)
-                .render(Format.SVG)
-                .toOutputStream(baos);
-
-            baos.close();
-
-            String svgText = new String(baos.toByteArray(), StandardCharsets.UTF_8);
+            // Rendered by the shared, pre-warmed engine; unchanged machines come from the render cache
+            String svgText = GraphvizRenderer.renderSvg(dotCode);
 
             // Batik cannot parse "transparent"
             svgText = svgText.replaceAll("stroke=\"transparent\"", "stroke=\"none\"");
 
             if (svgText.contains("<svg") && svgText.contains("</svg>")) {
-                System.out.println("[GraphViz] Graph rendered successfully using GraalVM JDK engine");
+                System.out.println("[GraphViz] Graph rendered successfully");
             }else {
                 System.out.println("[GraphViz] Graph rendering failed");
             }
@@ -271,8 +373,32 @@ public String getFileExtension(){
 
   public abstract ParseResult parse(String inputText);
   public abstract ExecutionResult execute(String inputText);
+
+  /**
+   * Executes the automaton on the input with the given options.
+   * Machine types that can skip or shorten their trace override this; the default
+   * runs {@link #execute(String)} and ignores the options.
+   *
+   * @param inputText input string
+   * @param options execution options, e.g. the trace level
+   * @return the execution result
+   */
+  public ExecutionResult execute(String inputText, ExecutionOptions options) {
+    return execute(inputText);
+  }
   public abstract List<ValidationMessage> validate();
 
+  /**
+   * Returns an automaton that can execute inputs on another thread at the same time as
+   * this one. Machine types whose {@code execute} keeps per-run state in fields override
+   * this to return a copy sharing the same definition; the default returns {@code this}.
+   *
+   * @return an automaton safe to execute concurrently with this one
+   */
+  public Automaton forConcurrentExecution() {
+    return this;
+  }
+
   public abstract String toDotCode(String inputText);
 
   public String getDefaultTemplate() {
@@ -0,0 +1,21 @@
+package common;
+
+/**
+ * Cooperative cancellation flag shared between the code that starts executions
+ * and the engines running them. Engines poll it through {@link ExecutionBudget}
+ * and stop at the next check once {@link #cancel()} has been called.
+ */
+public final class CancellationToken {
+    private volatile boolean cancelled;
+
+    /**
+     * Requests that all executions using this token stop.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
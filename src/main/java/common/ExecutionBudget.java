@@ -0,0 +1,188 @@
+package common;
+
+/**
+ * Per-execution meter for the limits in {@link Automaton.ExecutionOptions}.
+ * <p>
+ * Engines call {@link #step()} once per unit of work (a character read, a TM step,
+ * a configuration expanded) and stop when it returns {@code false}. The step limit is
+ * checked on every call; the deadline, the cancellation token and the thread's
+ * interrupt flag are checked every {@value #CLOCK_CHECK_INTERVAL} steps, so polling
+ * costs an increment and a compare in the common case.
+ * </p>
+ * <p>
+ * A budget belongs to a single execution and is not thread-safe.
+ * </p>
+ */
+public final class ExecutionBudget {
+
+    /** Number of steps between checks of the deadline, token and interrupt flag */
+    public static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    /**
+     * Why an execution was stopped before it finished.
+     */
+    public enum StopReason {
+        STEPS,
+        CONFIGURATIONS,
+        DEADLINE,
+        CANCELLED
+    }
+
+    private final long maxSteps;
+    private final long maxConfigurations;
+    private final boolean hasDeadline;
+    private final long deadlineNanos;
+    private final CancellationToken token;
+
+    private long steps;
+    private long configurations;
+    private StopReason stopReason;
+
+    private ExecutionBudget(Automaton.ExecutionOptions options) {
+        this.maxSteps = options.getMaxSteps() > 0 ? options.getMaxSteps() : Long.MAX_VALUE;
+        this.maxConfigurations = options.getMaxConfigurations() > 0 ? options.getMaxConfigurations() : Long.MAX_VALUE;
+        this.hasDeadline = options.hasDeadline();
+        this.deadlineNanos = options.getDeadlineNanos();
+        this.token = options.getCancellationToken();
+    }
+
+    /**
+     * Starts metering an execution with the limits of the given options.
+     *
+     * @param options execution options
+     * @return a fresh budget
+     */
+    public static ExecutionBudget start(Automaton.ExecutionOptions options) {
+        return new ExecutionBudget(options);
+    }
+
+    /**
+     * Records one step of work.
+     *
+     * @return true if the execution may continue, false if it must stop
+     */
+    public boolean step() {
+        if (++steps > maxSteps) {
+            return stop(StopReason.STEPS);
+        }
+        if ((steps & (CLOCK_CHECK_INTERVAL - 1)) == 0) {
+            return check();
+        }
+        return stopReason == null;
+    }
+
+    /**
+     * Records several steps of work done in one operation, such as a TM macro-step over a run of
+     * cells. Callers that must stop exactly at the step limit take at most
+     * {@link #getRemainingSteps()} steps at once.
+     *
+     * @param count number of steps, at least 1
+     * @return true if the execution may continue, false if it must stop
+     */
+    public boolean step(long count) {
+        long before = steps;
+        steps += count;
+        if (steps > maxSteps) {
+            return stop(StopReason.STEPS);
+        }
+        if ((before / CLOCK_CHECK_INTERVAL) != (steps / CLOCK_CHECK_INTERVAL)) {
+            return check();
+        }
+        return stopReason == null;
+    }
+
+    /**
+     * @return the number of steps left before the step limit, {@link Long#MAX_VALUE} minus the
+     *         steps taken if there is no limit
+     */
+    public long getRemainingSteps() {
+        return Math.max(0, maxSteps - steps);
+    }
+
+    /**
+     * Records that one more configuration (a search node, a cached state set) was created.
+     *
+     * @return true if the execution may continue, false if it must stop
+     */
+    public boolean addConfiguration() {
+        if (++configurations > maxConfigurations) {
+            return stop(StopReason.CONFIGURATIONS);
+        }
+        return stopReason == null;
+    }
+
+    /**
+     * Checks the deadline, the cancellation token and the thread's interrupt flag now,
+     * regardless of the step count. Useful before and after work that is not metered in steps.
+     *
+     * @return true if the execution may continue, false if it must stop
+     */
+    public boolean check() {
+        if (stopReason != null) {
+            return false;
+        }
+        if ((token != null && token.isCancelled()) || Thread.currentThread().isInterrupted()) {
+            return stop(StopReason.CANCELLED);
+        }
+        if (hasDeadline && System.nanoTime() - deadlineNanos > 0) {
+            return stop(StopReason.DEADLINE);
+        }
+        return true;
+    }
+
+    private boolean stop(StopReason reason) {
+        if (stopReason == null) {
+            stopReason = reason;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if a limit was reached or the execution was cancelled
+     */
+    public boolean isExhausted() {
+        return stopReason != null;
+    }
+
+    /**
+     * @return why the execution stopped, or null if it was not stopped
+     */
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    public long getConfigurations() {
+        return configurations;
+    }
+
+    /**
+     * Describes why the execution stopped, as a WARNING runtime message.
+     *
+     * @return the message, or null if the execution was not stopped
+     */
+    public Automaton.ValidationMessage toMessage() {
+        if (stopReason == null) {
+            return null;
+        }
+        String text;
+        switch (stopReason) {
+            case STEPS:
+                text = "Execution stopped after " + maxSteps + " steps (step limit reached).";
+                break;
+            case CONFIGURATIONS:
+                text = "Search aborted after exploring " + maxConfigurations + " configurations (configuration limit reached).";
+                break;
+            case DEADLINE:
+                text = "Execution stopped after " + steps + " steps (deadline exceeded).";
+                break;
+            default:
+                text = "Execution cancelled after " + steps + " steps.";
+                break;
+        }
+        return new Automaton.ValidationMessage(text, 0, Automaton.ValidationMessage.ValidationMessageType.WARNING);
+    }
+}
@@ -0,0 +1,168 @@
+package common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import guru.nidi.graphviz.engine.Format;
+import guru.nidi.graphviz.engine.Graphviz;
+import guru.nidi.graphviz.engine.GraphvizJdkEngine;
+
+/**
+ * Shared Graphviz rendering for the UI and the grader.
+ * <p>
+ * The GraalVM JS engine behind {@link GraphvizJdkEngine} takes seconds to start, so it is
+ * initialized once per process, either on first use or in the background through
+ * {@link #warmUpAsync()}. Rendered output is kept in a bounded LRU cache keyed by a SHA-256
+ * hash of the DOT source, format and width, so re-rendering an unchanged machine is a lookup.
+ * Rendering itself is serialized because the engine is not thread-safe.
+ * </p>
+ */
+public final class GraphvizRenderer {
+
+    /** Maximum number of rendered graphs kept in memory */
+    public static final int MAX_CACHED_RENDERS = 64;
+
+    /** Small graph rendered during warm-up so the JS engine has compiled the layout code */
+    private static final String WARM_UP_DOT = "digraph { rankdir=LR; q0 -> q1 [label=\"a\"]; q1 -> q1 [label=\"b\"]; }";
+
+    private static final Object engineLock = new Object();
+    /** Guarded by engineLock */
+    private static boolean engineReady;
+
+    private static final Map<String, byte[]> cache = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > MAX_CACHED_RENDERS;
+        }
+    };
+
+    private GraphvizRenderer() {
+    }
+
+    /**
+     * Starts the engine on a background daemon thread and renders a small graph,
+     * so the first real render does not pay the start-up cost.
+     */
+    public static void warmUpAsync() {
+        Thread warmUpThread = new Thread(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                renderUncached(WARM_UP_DOT, Format.SVG, 0);
+                System.out.println("[GraphViz] Engine warmed up in " + (System.currentTimeMillis() - start) + " ms");
+            } catch (Exception e) {
+                System.err.println("[GraphViz] Warm-up failed: " + e.getMessage());
+            }
+        }, "graphviz-warm-up");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
+    /**
+     * Renders DOT source to SVG text.
+     *
+     * @param dotCode DOT source
+     * @return the SVG document
+     * @throws IOException if rendering fails
+     */
+    public static String renderSvg(String dotCode) throws IOException {
+        return new String(render(dotCode, Format.SVG, 0), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Renders DOT source to PNG bytes.
+     *
+     * @param dotCode DOT source
+     * @param width   image width in pixels
+     * @return the PNG image
+     * @throws IOException if rendering fails
+     */
+    public static byte[] renderPng(String dotCode, int width) throws IOException {
+        return render(dotCode, Format.PNG, width).clone();
+    }
+
+    /**
+     * Drops all cached renders.
+     */
+    public static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return number of cached renders
+     */
+    public static int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private static byte[] render(String dotCode, Format format, int width) throws IOException {
+        String key = cacheKey(dotCode, format, width);
+        synchronized (cache) {
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        byte[] rendered = renderUncached(dotCode, format, width);
+        if (rendered.length > 0) {
+            synchronized (cache) {
+                cache.put(key, rendered);
+            }
+        }
+        return rendered;
+    }
+
+    private static byte[] renderUncached(String dotCode, Format format, int width) throws IOException {
+        synchronized (engineLock) {
+            ensureEngine();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Graphviz graph = Graphviz.fromString(dotCode);
+            if (width > 0) {
+                graph = graph.width(width);
+            }
+            graph.render(format).toOutputStream(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Initializes the JDK engine once. Must be called while holding {@link #engineLock}.
+     */
+    private static void ensureEngine() {
+        if (engineReady) {
+            return;
+        }
+        try {
+            Graphviz.useEngine(new GraphvizJdkEngine());
+            System.out.println("[GraphViz] Initialized GraalVM JDK engine (Java "
+                + System.getProperty("java.version") + ", " + System.getProperty("java.vendor") + ")");
+        } catch (Exception e) {
+            // Graphviz falls back to its default engine list on render
+            System.err.println("[GraphViz] Failed to initialize JDK engine: " + e.getMessage());
+        }
+        engineReady = true;
+    }
+
+    private static String cacheKey(String dotCode, Format format, int width) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(dotCode.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder(format.name()).append(':').append(width).append(':');
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package common;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.Closeable;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Parser for CSV-format test files.
@@ -18,6 +22,11 @@ import java.util.List;
  * #max_regex_length=N (max regex length for REX)
  * #max_rules=N (max production rules for CFG)
  * #max_transitions=N (max transitions for PDA)
+ * #max_steps=N (max engine steps per input, e.g. TM transitions)
+ *
+ * Files are read into memory in one call and decoded as UTF-8. {@link #openTestStream(String)} yields test
+ * cases while the file is being read, and {@link #loadTestSuite(String)} stores a whole file
+ * in a compact {@link TestSuite}.
  */
 public class TestFileParser {
 
@@ -32,10 +41,17 @@ public class TestFileParser {
         private final Integer timeout; // null means use default, value is in seconds
         private final Integer maxRules; // null means no limit (for CFG)
         private final Integer maxTransitions; // null means no limit (for PDA)
+        private final Long maxSteps; // null means no step limit per input
 
         public TestFileResult(List<TestCase> testCases, int minPoints, int maxPoints,
                               Integer maxRegexLength, Integer timeout,
                               Integer maxRules, Integer maxTransitions) {
+            this(testCases, minPoints, maxPoints, maxRegexLength, timeout, maxRules, maxTransitions, null);
+        }
+
+        public TestFileResult(List<TestCase> testCases, int minPoints, int maxPoints,
+                              Integer maxRegexLength, Integer timeout,
+                              Integer maxRules, Integer maxTransitions, Long maxSteps) {
             this.testCases = testCases;
             this.minPoints = minPoints;
             this.maxPoints = maxPoints;
@@ -43,6 +59,7 @@ public class TestFileParser {
             this.timeout = timeout;
             this.maxRules = maxRules;
             this.maxTransitions = maxTransitions;
+            this.maxSteps = maxSteps;
         }
 
         public List<TestCase> getTestCases() {
@@ -88,8 +105,17 @@ public class TestFileParser {
         public boolean hasMaxTransitions() {
             return maxTransitions != null;
         }
+
+        public Long getMaxSteps() {
+            return maxSteps;
+        }
+
+        public boolean hasMaxSteps() {
+            return maxSteps != null;
+        }
     }
 
+
     /**
      * Parses a CSV test file and returns test cases with point configuration.
      *
@@ -99,126 +125,337 @@ public class TestFileParser {
      * @throws IllegalArgumentException if file format is invalid
      */
     public static TestFileResult parseTestFile(String filePath) throws IOException {
-        List<TestCase> testCases = new ArrayList<>();
-        int minPoints = 4;  // Default
-        int maxPoints = 10; // Default
-        Integer maxRegexLength = null; // null means no limit
-        Integer timeout = null; // null means use default (in seconds)
-        Integer maxRules = null; // null means no limit (for CFG)
-        Integer maxTransitions = null; // null means no limit (for PDA)
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            int lineNumber = 0;
-
-            while ((line = reader.readLine()) != null) {
+        TestSuite suite = loadTestSuite(filePath);
+        return new TestFileResult(suite.asList(), suite.getMinPoints(), suite.getMaxPoints(),
+                suite.getMaxRegexLength(), suite.getTimeout(), suite.getMaxRules(), suite.getMaxTransitions(),
+                suite.getMaxSteps());
+    }
+
+    /**
+     * Reads a CSV test file into a compact {@link TestSuite}.
+     *
+     * @param filePath path to the test file
+     * @return the test suite with its point configuration
+     * @throws IOException if file cannot be read
+     * @throws IllegalArgumentException if file format is invalid
+     */
+    public static TestSuite loadTestSuite(String filePath) throws IOException {
+        try (TestCaseStream stream = openTestStream(filePath)) {
+            TestSuite.Builder builder = new TestSuite.Builder();
+            while (stream.hasNext()) {
+                builder.add(stream.input, stream.inputLength, stream.shouldAccept);
+                stream.pending = false;
+            }
+            return builder.build(stream.minPoints, stream.maxPoints, stream.maxRegexLength,
+                    stream.timeout, stream.maxRules, stream.maxTransitions, stream.maxSteps);
+        }
+    }
+
+    /**
+     * Opens a CSV test file for streaming. Test cases are parsed one line at a time as
+     * they are requested, so callers can start executing before the file has been read.
+     *
+     * @param filePath path to the test file
+     * @return an open stream, to be closed by the caller
+     * @throws IOException if file cannot be opened
+     */
+    public static TestCaseStream openTestStream(String filePath) throws IOException {
+        return new TestCaseStream(filePath);
+    }
+
+    /**
+     * Iterator over the test cases of a test file held as raw bytes.
+     * <p>
+     * Header values are applied as their lines are reached; they are final once
+     * {@link #hasNext()} has returned false. A malformed line makes {@link #hasNext()}
+     * throw {@link IllegalArgumentException}. Not thread-safe.
+     * </p>
+     */
+    public static final class TestCaseStream implements Iterator<TestCase>, Closeable {
+        private final byte[] buffer;
+        private final int limit;
+        private int position;
+        private int lineNumber;
+        private int testCaseCount = -1;
+
+        private int minPoints = 4;  // Default
+        private int maxPoints = 10; // Default
+        private Integer maxRegexLength; // null means no limit
+        private Integer timeout; // null means use default (in seconds)
+        private Integer maxRules; // null means no limit (for CFG)
+        private Integer maxTransitions; // null means no limit (for PDA)
+        private Long maxSteps; // null means no step limit per input
+
+        /** Current test case, valid while pending. */
+        private char[] input = new char[64];
+        private int inputLength;
+        private boolean shouldAccept;
+        private boolean pending;
+        private boolean finished;
+
+        private TestCaseStream(String filePath) throws IOException {
+            // Read rather than mapped: a mapping keeps the file locked on Windows until it is garbage collected
+            this.buffer = Files.readAllBytes(Paths.get(filePath));
+            this.limit = buffer.length;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!pending && !finished) {
+                pending = readNext();
+                finished = !pending;
+            }
+            return pending;
+        }
+
+        @Override
+        public TestCase next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            pending = false;
+            return new TestCase(new String(input, 0, inputLength), shouldAccept);
+        }
+
+        /**
+         * Counts the test case lines of the whole file with a byte scan, without decoding
+         * or validating them. Useful for progress reporting before streaming.
+         *
+         * @return number of non-empty, non-comment lines
+         */
+        public int countTestCases() {
+            if (testCaseCount < 0) {
+                int count = 0;
+                boolean lineStart = true;
+                for (int i = 0; i < limit; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n' || b == '\r') {
+                        lineStart = true;
+                    } else if (lineStart && !isBlank(b)) {
+                        if (b != '#') {
+                            count++;
+                        }
+                        lineStart = false;
+                    }
+                }
+                testCaseCount = count;
+            }
+            return testCaseCount;
+        }
+
+        private boolean readNext() {
+            while (position < limit) {
+                int lineStart = position;
+                int lineEnd = lineStart;
+                while (lineEnd < limit && buffer[lineEnd] != '\n' && buffer[lineEnd] != '\r') {
+                    lineEnd++;
+                }
+                position = lineEnd;
+                if (position < limit) {
+                    boolean crlf = buffer[position] == '\r' && position + 1 < limit && buffer[position + 1] == '\n';
+                    position += crlf ? 2 : 1;
+                }
                 lineNumber++;
 
                 // Skip empty lines
-                line = line.trim();
-                if (line.isEmpty()) {
+                int start = trimStart(lineStart, lineEnd);
+                int end = trimEnd(start, lineEnd);
+                if (start == end) {
                     continue;
                 }
 
                 // Parse header lines
-                if (line.startsWith("#")) {
-                    if (line.startsWith("#min_points=")) {
-                        try {
-                            minPoints = Integer.parseInt(line.substring("#min_points=".length()).trim());
-                        } catch (NumberFormatException e) {
-                            throw new IllegalArgumentException(
-                                String.format("Invalid min_points value at line %d: '%s'", lineNumber, line));
-                        }
-                        continue;
-                    } else if (line.startsWith("#max_points=")) {
-                        try {
-                            maxPoints = Integer.parseInt(line.substring("#max_points=".length()).trim());
-                        } catch (NumberFormatException e) {
-                            throw new IllegalArgumentException(
-                                String.format("Invalid max_points value at line %d: '%s'", lineNumber, line));
-                        }
-                        continue;
-                    } else if (line.startsWith("#max_regex_length=")) {
-                        try {
-                            maxRegexLength = Integer.valueOf(line.substring("#max_regex_length=".length()).trim());
-                            if (maxRegexLength < 1) {
-                                throw new IllegalArgumentException(
-                                    String.format("Invalid max_regex_length value at line %d: must be positive", lineNumber));
-                            }
-                        } catch (NumberFormatException e) {
-                            throw new IllegalArgumentException(
-                                String.format("Invalid max_regex_length value at line %d: '%s'", lineNumber, line));
-                        }
-                        continue;
-                    } else if (line.startsWith("#timeout=")) {
-                        try {
-                            timeout = Integer.valueOf(line.substring("#timeout=".length()).trim());
-                            if (timeout < 1) {
-                                throw new IllegalArgumentException(
-                                    String.format("Invalid timeout value at line %d: must be positive", lineNumber));
-                            }
-                        } catch (NumberFormatException e) {
-                            throw new IllegalArgumentException(
-                                String.format("Invalid timeout value at line %d: '%s'", lineNumber, line));
-                        }
-                        continue;
-                    } else if (line.startsWith("#max_rules=")) {
-                        try {
-                            maxRules = Integer.valueOf(line.substring("#max_rules=".length()).trim());
-                            if (maxRules < 1) {
-                                throw new IllegalArgumentException(
-                                    String.format("Invalid max_rules value at line %d: must be positive", lineNumber));
-                            }
-                        } catch (NumberFormatException e) {
-                            throw new IllegalArgumentException(
-                                String.format("Invalid max_rules value at line %d: '%s'", lineNumber, line));
-                        }
-                        continue;
-                    } else if (line.startsWith("#max_transitions=")) {
-                        try {
-                            maxTransitions = Integer.valueOf(line.substring("#max_transitions=".length()).trim());
-                            if (maxTransitions < 1) {
-                                throw new IllegalArgumentException(
-                                    String.format("Invalid max_transitions value at line %d: must be positive", lineNumber));
-                            }
-                        } catch (NumberFormatException e) {
-                            throw new IllegalArgumentException(
-                                String.format("Invalid max_transitions value at line %d: '%s'", lineNumber, line));
-                        }
-                        continue;
-                    } else {
-                        // Other comments are ignored
-                        continue;
-                    }
+                if (buffer[start] == '#') {
+                    parseHeader(decode(start, end));
+                    continue;
                 }
 
                 // Parse CSV line
-                String[] parts = line.split(",", 2);
-                if (parts.length != 2) {
+                int comma = start;
+                while (comma < end && buffer[comma] != ',') {
+                    comma++;
+                }
+                if (comma == end) {
                     throw new IllegalArgumentException(
                         String.format("Invalid format at line %d: '%s'. Expected: inputString,expectedResult",
-                                    lineNumber, line));
+                                    lineNumber, decode(start, end)));
                 }
 
-                String input = parts[0].trim();
-                String expectedStr = parts[1].trim();
-
                 // Convert expected result to boolean
-                boolean shouldAccept;
-                if ("1".equals(expectedStr)) {
+                int expectedStart = trimStart(comma + 1, end);
+                byte expected = end - expectedStart == 1 ? buffer[expectedStart] : 0;
+                if (expected == '1') {
                     shouldAccept = true;
-                } else if ("0".equals(expectedStr)) {
+                } else if (expected == '0') {
                     shouldAccept = false;
                 } else {
                     throw new IllegalArgumentException(
                         String.format("Invalid expected result at line %d: '%s'. Must be 1 (accept) or 0 (reject)",
-                                    lineNumber, expectedStr));
+                                    lineNumber, decode(expectedStart, end)));
+                }
+
+                readInput(start, trimEnd(start, comma));
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Copies the input bytes [from, to) into the current input buffer; ASCII is copied
+         * directly and anything else is decoded as UTF-8.
+         */
+        private void readInput(int from, int to) {
+            int length = to - from;
+            if (input.length < length) {
+                input = Arrays.copyOf(input, Math.max(input.length * 2, length));
+            }
+            for (int i = 0; i < length; i++) {
+                byte b = buffer[from + i];
+                if (b < 0) {
+                    String decoded = decode(from, to);
+                    if (input.length < decoded.length()) {
+                        input = new char[decoded.length()];
+                    }
+                    decoded.getChars(0, decoded.length(), input, 0);
+                    inputLength = decoded.length();
+                    return;
                 }
+                input[i] = (char) b;
+            }
+            inputLength = length;
+        }
+
+        private String decode(int from, int to) {
+            return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+        }
+
+        private int trimStart(int from, int to) {
+            while (from < to && isBlank(buffer[from])) {
+                from++;
+            }
+            return from;
+        }
+
+        private int trimEnd(int from, int to) {
+            while (to > from && isBlank(buffer[to - 1])) {
+                to--;
+            }
+            return to;
+        }
+
+        /** Same whitespace rule as {@link String#trim()}; UTF-8 continuation bytes are negative. */
+        private static boolean isBlank(byte b) {
+            return b >= 0 && b <= ' ';
+        }
 
-                testCases.add(new TestCase(input, shouldAccept));
+        private void parseHeader(String line) {
+            if (line.startsWith("#min_points=")) {
+                try {
+                    minPoints = Integer.parseInt(line.substring("#min_points=".length()).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(
+                        String.format("Invalid min_points value at line %d: '%s'", lineNumber, line));
+                }
+            } else if (line.startsWith("#max_points=")) {
+                try {
+                    maxPoints = Integer.parseInt(line.substring("#max_points=".length()).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(
+                        String.format("Invalid max_points value at line %d: '%s'", lineNumber, line));
+                }
+            } else if (line.startsWith("#max_regex_length=")) {
+                try {
+                    maxRegexLength = Integer.valueOf(line.substring("#max_regex_length=".length()).trim());
+                    if (maxRegexLength < 1) {
+                        throw new IllegalArgumentException(
+                            String.format("Invalid max_regex_length value at line %d: must be positive", lineNumber));
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(
+                        String.format("Invalid max_regex_length value at line %d: '%s'", lineNumber, line));
+                }
+            } else if (line.startsWith("#timeout=")) {
+                try {
+                    timeout = Integer.valueOf(line.substring("#timeout=".length()).trim());
+                    if (timeout < 1) {
+                        throw new IllegalArgumentException(
+                            String.format("Invalid timeout value at line %d: must be positive", lineNumber));
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(
+                        String.format("Invalid timeout value at line %d: '%s'", lineNumber, line));
+                }
+            } else if (line.startsWith("#max_rules=")) {
+                try {
+                    maxRules = Integer.valueOf(line.substring("#max_rules=".length()).trim());
+                    if (maxRules < 1) {
+                        throw new IllegalArgumentException(
+                            String.format("Invalid max_rules value at line %d: must be positive", lineNumber));
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(
+                        String.format("Invalid max_rules value at line %d: '%s'", lineNumber, line));
+                }
+            } else if (line.startsWith("#max_transitions=")) {
+                try {
+                    maxTransitions = Integer.valueOf(line.substring("#max_transitions=".length()).trim());
+                    if (maxTransitions < 1) {
+                        throw new IllegalArgumentException(
+                            String.format("Invalid max_transitions value at line %d: must be positive", lineNumber));
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(
+                        String.format("Invalid max_transitions value at line %d: '%s'", lineNumber, line));
+                }
+            } else if (line.startsWith("#max_steps=")) {
+                try {
+                    maxSteps = Long.valueOf(line.substring("#max_steps=".length()).trim());
+                    if (maxSteps < 1) {
+                        throw new IllegalArgumentException(
+                            String.format("Invalid max_steps value at line %d: must be positive", lineNumber));
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(
+                        String.format("Invalid max_steps value at line %d: '%s'", lineNumber, line));
+                }
             }
+            // Other comments are ignored
+        }
+
+        public int getMinPoints() {
+            return minPoints;
+        }
+
+        public int getMaxPoints() {
+            return maxPoints;
+        }
+
+        public Integer getMaxRegexLength() {
+            return maxRegexLength;
         }
 
-        return new TestFileResult(testCases, minPoints, maxPoints, maxRegexLength, timeout, maxRules, maxTransitions);
+        public Integer getTimeout() {
+            return timeout;
+        }
+
+        public Integer getMaxRules() {
+            return maxRules;
+        }
+
+        public Integer getMaxTransitions() {
+            return maxTransitions;
+        }
+
+        public Long getMaxSteps() {
+            return maxSteps;
+        }
+
+        /**
+         * Releases nothing; the file is closed once it has been read. Kept so callers can use
+         * try-with-resources.
+         */
+        @Override
+        public void close() {
+        }
     }
-}
\ No newline at end of file
+}
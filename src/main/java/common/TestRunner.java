@@ -2,13 +2,17 @@ package common;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Executes test cases against automaton implementations.
@@ -78,6 +82,55 @@ public class TestRunner {
      */
     private static final ExecutorService executor = Executors.newCachedThreadPool();
 
+    /**
+     * Minimum number of test cases for a suite to be split across the parallel pool
+     */
+    static final int PARALLEL_MIN_TESTS = 256;
+
+    /**
+     * Number of worker threads used for large test suites (1 = sequential)
+     */
+    private static volatile int parallelism = 1;
+
+    /**
+     * Fork-join pool for parallel test execution, created on first use
+     */
+    private static ForkJoinPool parallelPool;
+
+    /**
+     * Sets the number of worker threads used to run large test suites.
+     * With more than one thread, suites of at least {@value #PARALLEL_MIN_TESTS} cases are
+     * partitioned across a fork-join pool. Results, failures and counters are identical to a
+     * sequential run; progress callbacks are then invoked from worker threads in completion order.
+     *
+     * @param threads number of worker threads, 1 for sequential execution
+     * @throws IllegalArgumentException if threads is less than 1
+     */
+    public static synchronized void setParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + threads);
+        }
+        if (threads != parallelism && parallelPool != null) {
+            parallelPool.shutdown();
+            parallelPool = null;
+        }
+        parallelism = threads;
+    }
+
+    /**
+     * @return number of worker threads used to run large test suites
+     */
+    public static int getParallelism() {
+        return parallelism;
+    }
+
+    private static synchronized ForkJoinPool parallelPool() {
+        if (parallelPool == null) {
+            parallelPool = new ForkJoinPool(parallelism);
+        }
+        return parallelPool;
+    }
+
     /**
      * Result of running a test suite against an automaton.
      */
@@ -387,29 +440,33 @@ public class TestRunner {
      * @return test results
      */
     public static TestResult runTests(Automaton automaton, String testFilePath, long totalTimeoutMs, TestProgressCallback progressCallback) {
-        // Execute entire test suite with timeout
-        Future<TestResult> future = executor.submit(() -> runTestsWithoutTimeout(automaton, testFilePath, progressCallback));
+        // Execute entire test suite with timeout; engines poll the token and deadline so timed-out work stops
+        CancellationToken token = new CancellationToken();
+        Automaton.ExecutionOptions options = Automaton.ExecutionOptions.NO_TRACE
+            .withCancellationToken(token)
+            .withTimeout(totalTimeoutMs);
+        Future<TestResult> future = executor.submit(() -> runTestsWithoutTimeout(automaton, testFilePath, progressCallback, options));
         
         try {
             return future.get(totalTimeoutMs, TimeUnit.MILLISECONDS);
         } catch (TimeoutException e) {
+            token.cancel();
             future.cancel(true);
             // Create a result indicating the entire test suite timed out
             TestResult result = new TestResult();
             try {
-                TestFileParser.TestFileResult fileResult = TestFileParser.parseTestFile(testFilePath);
-                List<TestCase> testCases = fileResult.getTestCases();
-                result.setTotalTests(testCases.size());
-                result.setMinPoints(fileResult.getMinPoints());
-                result.setMaxPoints(fileResult.getMaxPoints());
-                result.setMaxRegexLength(fileResult.getMaxRegexLength());
-                result.setMaxRules(fileResult.getMaxRules());
-                result.setMaxTransitions(fileResult.getMaxTransitions());
+                TestSuite suite = TestSuiteCache.get(testFilePath);
+                result.setTotalTests(suite.size());
+                result.setMinPoints(suite.getMinPoints());
+                result.setMaxPoints(suite.getMaxPoints());
+                result.setMaxRegexLength(suite.getMaxRegexLength());
+                result.setMaxRules(suite.getMaxRules());
+                result.setMaxTransitions(suite.getMaxTransitions());
                 result.incrementTimeoutCount();
                 result.addFailure("TIMEOUT: Entire test suite exceeded " + totalTimeoutMs + "ms");
                 
                 // Add a timeout result for each test case
-                for (TestCase testCase : testCases) {
+                for (TestCase testCase : suite) {
                     TestCaseResult testResult = new TestCaseResult(
                         testCase.getInput(), 
                         testCase.shouldAccept(), 
@@ -423,6 +480,7 @@ public class TestRunner {
             }
             return result;
         } catch (InterruptedException e) {
+            token.cancel();
             Thread.currentThread().interrupt();
             TestResult result = new TestResult();
             result.addFailure("Test execution was interrupted");
@@ -438,128 +496,349 @@ public class TestRunner {
      * Runs tests without timeout (used internally by the timeout wrapper)
      */
     private static TestResult runTestsWithoutTimeout(Automaton automaton, String testFilePath) {
-        return runTestsWithoutTimeout(automaton, testFilePath, null);
+        return runTestsWithoutTimeout(automaton, testFilePath, null, Automaton.ExecutionOptions.NO_TRACE);
     }
     
     /**
-     * Runs tests without timeout with progress callback (used internally by the timeout wrapper)
+     * Runs tests without timeout with progress callback (used internally by the timeout wrapper).
+     * The options carry the cancellation token and deadline that stop the engines on timeout.
      */
-    private static TestResult runTestsWithoutTimeout(Automaton automaton, String testFilePath, TestProgressCallback progressCallback) {
+    private static TestResult runTestsWithoutTimeout(Automaton automaton, String testFilePath, TestProgressCallback progressCallback,
+                                                     Automaton.ExecutionOptions options) {
         TestResult result = new TestResult();
 
         try {
-            TestFileParser.TestFileResult fileResult = TestFileParser.parseTestFile(testFilePath);
-            List<TestCase> testCases = fileResult.getTestCases();
-            result.setTotalTests(testCases.size());
-            result.setMinPoints(fileResult.getMinPoints());
-            result.setMaxPoints(fileResult.getMaxPoints());
-            result.setMaxRegexLength(fileResult.getMaxRegexLength());
-            result.setMaxRules(fileResult.getMaxRules());
-            result.setMaxTransitions(fileResult.getMaxTransitions());
-
-            if (testCases.isEmpty()) {
+            TestSuiteCache.Key key = TestSuiteCache.keyOf(testFilePath);
+            TestSuite suite = TestSuiteCache.getIfPresent(key);
+            ChunkResult outcome = null;
+
+            TestSuiteCache.Load load = suite == null && parallelism == 1 ? TestSuiteCache.claim(key) : null;
+
+            if (load != null) {
+                // First sequential run on this version of the file: execute cases as they are read, then publish the
+                // suite. Runs of the same file that start meanwhile wait for it in the cache instead of reading the file
+                try (TestFileParser.TestCaseStream stream = TestFileParser.openTestStream(testFilePath)) {
+                    TestSuite.Builder builder = new TestSuite.Builder();
+                    Iterator<TestCase> recorded = new Iterator<TestCase>() {
+                        @Override
+                        public boolean hasNext() {
+                            return stream.hasNext();
+                        }
+
+                        @Override
+                        public TestCase next() {
+                            TestCase testCase = stream.next();
+                            builder.add(testCase);
+                            return testCase;
+                        }
+                    };
+                    int total = stream.countTestCases();
+                    if (total > 0) {
+                        // Reaching the first case applies the header lines above it, including #max_steps
+                        stream.hasNext();
+                        outcome = runRange(automaton, recorded, 0, total, total, progressCallback,
+                                withStepLimit(options, stream.getMaxSteps()), new AtomicInteger(Integer.MAX_VALUE));
+                    }
+                    // Header values are final once the whole file has been read
+                    while (recorded.hasNext()) {
+                        recorded.next();
+                    }
+                    suite = builder.build(stream.getMinPoints(), stream.getMaxPoints(), stream.getMaxRegexLength(),
+                            stream.getTimeout(), stream.getMaxRules(), stream.getMaxTransitions(), stream.getMaxSteps());
+                } catch (Throwable t) {
+                    load.fail(t);
+                    throw t;
+                }
+                load.complete(suite);
+            } else if (suite == null) {
+                suite = TestSuiteCache.get(testFilePath);
+            }
+
+            result.setTotalTests(suite.size());
+            result.setMinPoints(suite.getMinPoints());
+            result.setMaxPoints(suite.getMaxPoints());
+            result.setMaxRegexLength(suite.getMaxRegexLength());
+            result.setMaxRules(suite.getMaxRules());
+            result.setMaxTransitions(suite.getMaxTransitions());
+
+            if (suite.isEmpty()) {
                 result.addFailure("No test cases found in file: " + testFilePath);
                 return result;
             }
 
-            int passed = 0;
-            
-            for (int i = 0; i < testCases.size(); i++) {
-                TestCase testCase = testCases.get(i);
-                
-                // Report test started
-                if (progressCallback != null) {
-                    progressCallback.onTestStarted(i + 1, testCases.size(), testCase.getInput());
+            if (outcome == null) {
+                options = withStepLimit(options, suite.getMaxSteps());
+                if (parallelism > 1 && suite.size() >= PARALLEL_MIN_TESTS) {
+                    outcome = runParallel(automaton, suite, progressCallback, options);
+                } else {
+                    outcome = runRange(automaton, suite.iterator(), 0, suite.size(), suite.size(), progressCallback, options,
+                            new AtomicInteger(Integer.MAX_VALUE));
                 }
-                
-                try {
-                    Automaton.ExecutionResult execResult = automaton.execute(testCase.getInput());
+            }
+            outcome.mergeInto(result);
+            
+        } catch (IOException e) {
+            result = new TestResult();
+            result.addFailure("Failed to read test file: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // A malformed line invalidates the whole file, including cases already run
+            result = new TestResult();
+            result.addFailure("Invalid test file format: " + e.getMessage());
+        }
+        
+        return result;
+    }
 
-                    // Check for validation errors FIRST - invalid automaton should fail all tests
-                    boolean hasValidationError = execResult.getRuntimeMessages().stream()
-                        .anyMatch(msg -> msg.getType() == Automaton.ValidationMessage.ValidationMessageType.ERROR);
+    /**
+     * Applies a test file's {@code #max_steps} header to every execution of the suite.
+     *
+     * @param maxSteps step limit per input, or null to keep the options' limit
+     */
+    private static Automaton.ExecutionOptions withStepLimit(Automaton.ExecutionOptions options, Long maxSteps) {
+        return maxSteps != null ? options.withMaxSteps(maxSteps) : options;
+    }
 
-                    if (hasValidationError) {
-                        // Automaton is invalid - stop processing and fail with clear message
-                        String errorMessage = execResult.getRuntimeMessages().stream()
-                            .filter(msg -> msg.getType() == Automaton.ValidationMessage.ValidationMessageType.ERROR)
-                            .map(Automaton.ValidationMessage::getMessage)
-                            .collect(java.util.stream.Collectors.joining(", "));
+    /**
+     * Results of running a contiguous range of test cases, merged into a {@link TestResult} in order
+     */
+    private static final class ChunkResult {
+        private final List<String> failures = new ArrayList<>();
+        private final List<TestCaseResult> detailedResults = new ArrayList<>();
+        private int passed;
+        private int truePositives;
+        private int trueNegatives;
+        private int falsePositives;
+        private int falseNegatives;
+        private int timeouts;
+        /** True if the range stopped at an automaton validation error */
+        private boolean stopped;
+
+        private void add(ChunkResult other) {
+            failures.addAll(other.failures);
+            detailedResults.addAll(other.detailedResults);
+            passed += other.passed;
+            truePositives += other.truePositives;
+            trueNegatives += other.trueNegatives;
+            falsePositives += other.falsePositives;
+            falseNegatives += other.falseNegatives;
+            timeouts += other.timeouts;
+            stopped = other.stopped;
+        }
 
-                        result.addFailure("Automaton validation failed: " + errorMessage);
+        private void mergeInto(TestResult result) {
+            result.failures.addAll(failures);
+            result.detailedResults.addAll(detailedResults);
+            result.truePositives += truePositives;
+            result.trueNegatives += trueNegatives;
+            result.falsePositives += falsePositives;
+            result.falseNegatives += falseNegatives;
+            result.timeoutCount += timeouts;
+            result.setPassedTests(passed);
+        }
+    }
 
-                        // Report test completion with failure
-                        if (progressCallback != null) {
-                            progressCallback.onTestCompleted(i + 1, testCases.size(), testCase.getInput(), false);
-                        }
+    /**
+     * Runs test cases [from, to), read in order from the iterator. Stops at the first automaton validation error,
+     * and skips cases after {@code firstError} once another range has found one.
+     */
+    private static ChunkResult runRange(Automaton automaton, Iterator<TestCase> testCases, int from, int to, int total,
+                                        TestProgressCallback progressCallback, Automaton.ExecutionOptions options,
+                                        AtomicInteger firstError) {
+        ChunkResult chunk = new ChunkResult();
+        CancellationToken token = options.getCancellationToken();
+        Automaton.ExecutionOptions traceOptions = options.withTraceLevel(Automaton.TraceLevel.FULL);
+
+        for (int i = from; i < to && i < firstError.get() && testCases.hasNext(); i++) {
+            if ((token != null && token.isCancelled()) || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            TestCase testCase = testCases.next();
+            
+            // Report test started
+            if (progressCallback != null) {
+                progressCallback.onTestStarted(i + 1, total, testCase.getInput());
+            }
+            
+            try {
+                // Bulk runs skip trace construction; failing inputs are re-run with a full trace below
+                Automaton.ExecutionResult execResult = automaton.execute(testCase.getInput(), options);
 
-                        // Stop processing tests - invalid automaton gets no credit
-                        break;
-                    }
+                // Check for validation errors FIRST - invalid automaton should fail all tests
+                boolean hasValidationError = execResult.getRuntimeMessages().stream()
+                    .anyMatch(msg -> msg.getType() == Automaton.ValidationMessage.ValidationMessageType.ERROR);
 
-                    boolean actualAccept = execResult.isAccepted();
-                    boolean expectedAccept = testCase.shouldAccept();
-                    
-                    TestCaseResult testResult = new TestCaseResult(
-                        testCase.getInput(), 
-                        expectedAccept, 
-                        actualAccept, 
-                        execResult.getTrace()
-                    );
-                    
-                    result.addResult(testResult);
-                    
-                    // Count classification metrics
-                    if (expectedAccept && actualAccept) {
-                        result.incrementTruePositives(); // TP: Expected ACCEPT, Got ACCEPT
-                    } else if (!expectedAccept && !actualAccept) {
-                        result.incrementTrueNegatives(); // TN: Expected REJECT, Got REJECT
-                    } else if (!expectedAccept && actualAccept) {
-                        result.incrementFalsePositives(); // FP: Expected REJECT, Got ACCEPT
-                    } else if (expectedAccept && !actualAccept) {
-                        result.incrementFalseNegatives(); // FN: Expected ACCEPT, Got REJECT
-                    }
-                    
-                    if (testResult.isPassed()) {
-                        passed++;
-                    } else {
-                        result.addFailure(String.format("Test %d failed: %s", i + 1, testResult.toString()));
-                    }
-                    
-                    // Report test completed
+                if (hasValidationError) {
+                    // Automaton is invalid - stop processing and fail with clear message
+                    String errorMessage = execResult.getRuntimeMessages().stream()
+                        .filter(msg -> msg.getType() == Automaton.ValidationMessage.ValidationMessageType.ERROR)
+                        .map(Automaton.ValidationMessage::getMessage)
+                        .collect(java.util.stream.Collectors.joining(", "));
+
+                    chunk.failures.add("Automaton validation failed: " + errorMessage);
+                    chunk.stopped = true;
+                    firstError.accumulateAndGet(i, Math::min);
+
+                    // Report test completion with failure
                     if (progressCallback != null) {
-                        progressCallback.onTestCompleted(i + 1, testCases.size(), testCase.getInput(), testResult.isPassed());
+                        progressCallback.onTestCompleted(i + 1, total, testCase.getInput(), false);
                     }
-                    
-                } catch (Exception e) {
-                    String failure = String.format("Test %d error: %s with input '%s': %s", 
-                                                 i + 1, e.getClass().getSimpleName(), testCase.getInput(), e.getMessage());
-                    result.addFailure(failure);
-                    
-                    TestCaseResult testResult = new TestCaseResult(
-                        testCase.getInput(), 
-                        testCase.shouldAccept(), 
-                        false, 
-                        "Error: " + e.getMessage()
-                    );
-                    result.addResult(testResult);
-                    
-                    // Report test completed with error
+
+                    // Stop processing tests - invalid automaton gets no credit
+                    break;
+                }
+
+                if (!execResult.isAccepted() && outOfTime(options)) {
+                    // The budget may have cut this run short, so its rejection is not a verdict
+                    TestCaseResult testResult = new TestCaseResult(testCase.getInput(), testCase.shouldAccept(), false,
+                        "TIMEOUT: Test suite deadline reached before this test finished");
+                    chunk.detailedResults.add(testResult);
+                    chunk.timeouts++;
+                    chunk.failures.add(String.format("Test %d failed: %s", i + 1, testResult.toString()));
                     if (progressCallback != null) {
-                        progressCallback.onTestCompleted(i + 1, testCases.size(), testCase.getInput(), false);
+                        progressCallback.onTestCompleted(i + 1, total, testCase.getInput(), false);
                     }
+                    continue;
+                }
+
+                boolean actualAccept = execResult.isAccepted();
+                boolean expectedAccept = testCase.shouldAccept();
+                String trace = execResult.getTrace();
+                if (actualAccept != expectedAccept) {
+                    trace = automaton.execute(testCase.getInput(), traceOptions).getTrace();
+                }
+                
+                TestCaseResult testResult = new TestCaseResult(
+                    testCase.getInput(), 
+                    expectedAccept, 
+                    actualAccept, 
+                    trace
+                );
+                
+                chunk.detailedResults.add(testResult);
+                
+                // Count classification metrics
+                if (expectedAccept && actualAccept) {
+                    chunk.truePositives++; // TP: Expected ACCEPT, Got ACCEPT
+                } else if (!expectedAccept && !actualAccept) {
+                    chunk.trueNegatives++; // TN: Expected REJECT, Got REJECT
+                } else if (!expectedAccept && actualAccept) {
+                    chunk.falsePositives++; // FP: Expected REJECT, Got ACCEPT
+                } else if (expectedAccept && !actualAccept) {
+                    chunk.falseNegatives++; // FN: Expected ACCEPT, Got REJECT
+                }
+                
+                if (testResult.isPassed()) {
+                    chunk.passed++;
+                } else {
+                    chunk.failures.add(String.format("Test %d failed: %s", i + 1, testResult.toString()));
+                }
+                
+                // Report test completed
+                if (progressCallback != null) {
+                    progressCallback.onTestCompleted(i + 1, total, testCase.getInput(), testResult.isPassed());
+                }
+                
+            } catch (Exception e) {
+                String failure = String.format("Test %d error: %s with input '%s': %s", 
+                                             i + 1, e.getClass().getSimpleName(), testCase.getInput(), e.getMessage());
+                chunk.failures.add(failure);
+                
+                TestCaseResult testResult = new TestCaseResult(
+                    testCase.getInput(), 
+                    testCase.shouldAccept(), 
+                    false, 
+                    "Error: " + e.getMessage()
+                );
+                chunk.detailedResults.add(testResult);
+                
+                // Report test completed with error
+                if (progressCallback != null) {
+                    progressCallback.onTestCompleted(i + 1, total, testCase.getInput(), false);
                 }
             }
-            
-            result.setPassedTests(passed);
-            
-        } catch (IOException e) {
-            result.addFailure("Failed to read test file: " + e.getMessage());
-        } catch (IllegalArgumentException e) {
-            result.addFailure("Invalid test file format: " + e.getMessage());
         }
-        
-        return result;
+        return chunk;
+    }
+
+    /**
+     * @return true once the suite's deadline has passed or its run was cancelled, after which engines stop
+     *         with a WARNING and reject whatever input they are on
+     */
+    private static boolean outOfTime(Automaton.ExecutionOptions options) {
+        CancellationToken token = options.getCancellationToken();
+        return (token != null && token.isCancelled()) || Thread.currentThread().isInterrupted()
+            || (options.hasDeadline() && System.nanoTime() - options.getDeadlineNanos() > 0);
+    }
+
+    /**
+     * Runs the test cases on the parallel pool. Each leaf range gets its own automaton instance
+     * from {@link Automaton#forConcurrentExecution()} and its own counters; ranges are merged
+     * left to right so the result matches a sequential run.
+     */
+    private static ChunkResult runParallel(Automaton automaton, TestSuite testCases, TestProgressCallback progressCallback,
+                                           Automaton.ExecutionOptions options) {
+        int workers = parallelism;
+        int leafSize = Math.max(64, testCases.size() / (workers * 8));
+        AtomicInteger firstError = new AtomicInteger(Integer.MAX_VALUE);
+        TestProgressCallback callback = progressCallback == null ? null : new TestProgressCallback() {
+            private int started;
+            private int completed;
+
+            @Override
+            public synchronized void onTestStarted(int currentTest, int totalTests, String input) {
+                progressCallback.onTestStarted(++started, totalTests, input);
+            }
+
+            @Override
+            public synchronized void onTestCompleted(int currentTest, int totalTests, String input, boolean passed) {
+                progressCallback.onTestCompleted(++completed, totalTests, input, passed);
+            }
+        };
+        return parallelPool().invoke(new RangeTask(automaton, testCases, 0, testCases.size(), leafSize, callback, options, firstError));
+    }
+
+    /**
+     * Fork-join task splitting a range of test cases in halves down to the leaf size
+     */
+    private static final class RangeTask extends RecursiveTask<ChunkResult> {
+        private final Automaton automaton;
+        private final TestSuite testCases;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final TestProgressCallback progressCallback;
+        private final Automaton.ExecutionOptions options;
+        private final AtomicInteger firstError;
+
+        RangeTask(Automaton automaton, TestSuite testCases, int from, int to, int leafSize,
+                  TestProgressCallback progressCallback, Automaton.ExecutionOptions options, AtomicInteger firstError) {
+            this.automaton = automaton;
+            this.testCases = testCases;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.progressCallback = progressCallback;
+            this.options = options;
+            this.firstError = firstError;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            if (to - from <= leafSize) {
+                return runRange(automaton.forConcurrentExecution(), testCases.iterator(from, to), from, to, testCases.size(),
+                        progressCallback, options, firstError);
+            }
+            int mid = (from + to) >>> 1;
+            RangeTask left = new RangeTask(automaton, testCases, from, mid, leafSize, progressCallback, options, firstError);
+            RangeTask right = new RangeTask(automaton, testCases, mid, to, leafSize, progressCallback, options, firstError);
+            right.fork();
+            ChunkResult merged = left.compute();
+            ChunkResult rightResult = right.join();
+            if (!merged.stopped) {
+                merged.add(rightResult);
+            }
+            return merged;
+        }
     }
 
     /**
@@ -585,14 +864,19 @@ public class TestRunner {
      */
     public static TestCaseResult runSingleTest(Automaton automaton, String input, boolean expectedAccept, long timeoutMs) {
         try {
+            CancellationToken token = new CancellationToken();
+            Automaton.ExecutionOptions options = Automaton.ExecutionOptions.FULL_TRACE
+                .withCancellationToken(token)
+                .withTimeout(timeoutMs);
             Future<Automaton.ExecutionResult> future = executor.submit(() -> 
-                automaton.execute(input)
+                automaton.execute(input, options)
             );
             
             Automaton.ExecutionResult execResult;
             try {
                 execResult = future.get(timeoutMs, TimeUnit.MILLISECONDS);
             } catch (TimeoutException e) {
+                token.cancel();
                 future.cancel(true);
                 return new TestCaseResult(input, expectedAccept, false, 
                     "TIMEOUT: Execution exceeded " + timeoutMs + "ms");
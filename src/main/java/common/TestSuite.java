@@ -0,0 +1,248 @@
+package common;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact in-memory form of a test file.
+ * <p>
+ * All input strings are stored back to back in a single {@code char[]} arena with an
+ * offset per test case, and the expected results are bits in a {@link BitSet}. A suite of
+ * several hundred thousand cases costs a few bytes per case instead of a {@link TestCase}
+ * and a {@link String} each; {@link TestCase} objects are only created on access.
+ * </p>
+ * <p>
+ * Instances are created by {@link TestFileParser#loadTestSuite(String)} and are immutable,
+ * so one suite can be shared by any number of threads; {@link TestSuiteCache} keeps loaded
+ * suites for reuse.
+ * </p>
+ */
+public final class TestSuite implements Iterable<TestCase> {
+
+    /** Characters of all inputs, concatenated in file order. */
+    private final char[] arena;
+    /** [i, i + 1): range of test case i in the arena; length is size + 1. */
+    private final int[] offsets;
+    /** Bit i is set if test case i should be accepted. */
+    private final BitSet accepts;
+    private final int size;
+
+    private final int minPoints;
+    private final int maxPoints;
+    private final Integer maxRegexLength; // null means no limit
+    private final Integer timeout; // null means use default, value is in seconds
+    private final Integer maxRules; // null means no limit (for CFG)
+    private final Integer maxTransitions; // null means no limit (for PDA)
+    private final Long maxSteps; // null means no step limit per input
+
+    private TestSuite(Builder builder, int minPoints, int maxPoints, Integer maxRegexLength, Integer timeout,
+                      Integer maxRules, Integer maxTransitions, Long maxSteps) {
+        this.size = builder.size;
+        this.arena = Arrays.copyOf(builder.arena, builder.offsets[size]);
+        this.offsets = Arrays.copyOf(builder.offsets, size + 1);
+        this.accepts = builder.accepts;
+        this.minPoints = minPoints;
+        this.maxPoints = maxPoints;
+        this.maxRegexLength = maxRegexLength;
+        this.timeout = timeout;
+        this.maxRules = maxRules;
+        this.maxTransitions = maxTransitions;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * @return number of test cases
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the input string of a test case.
+     *
+     * @param index test case index
+     * @return the input string, freshly created from the arena
+     */
+    public String getInput(int index) {
+        checkIndex(index);
+        return new String(arena, offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    /**
+     * @param index test case index
+     * @return true if the test case expects the input to be accepted
+     */
+    public boolean shouldAccept(int index) {
+        checkIndex(index);
+        return accepts.get(index);
+    }
+
+    /**
+     * @param index test case index
+     * @return the test case at the given index
+     */
+    public TestCase get(int index) {
+        return new TestCase(getInput(index), shouldAccept(index));
+    }
+
+    /**
+     * @return a read-only list view of the test cases, creating each element on access
+     */
+    public List<TestCase> asList() {
+        return new AbstractList<TestCase>() {
+            @Override
+            public TestCase get(int index) {
+                return TestSuite.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Iterator<TestCase> iterator() {
+        return iterator(0, size);
+    }
+
+    /**
+     * Iterates over test cases [from, to).
+     *
+     * @param from first index, inclusive
+     * @param to   last index, exclusive
+     * @return an iterator over the range
+     */
+    public Iterator<TestCase> iterator(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for size " + size);
+        }
+        return new Iterator<TestCase>() {
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < to;
+            }
+
+            @Override
+            public TestCase next() {
+                if (next >= to) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    public int getMinPoints() {
+        return minPoints;
+    }
+
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    public Integer getMaxRegexLength() {
+        return maxRegexLength;
+    }
+
+    public boolean hasRegexLengthLimit() {
+        return maxRegexLength != null;
+    }
+
+    public Integer getTimeout() {
+        return timeout;
+    }
+
+    public boolean hasTimeout() {
+        return timeout != null;
+    }
+
+    public Integer getMaxRules() {
+        return maxRules;
+    }
+
+    public boolean hasMaxRules() {
+        return maxRules != null;
+    }
+
+    public Integer getMaxTransitions() {
+        return maxTransitions;
+    }
+
+    public boolean hasMaxTransitions() {
+        return maxTransitions != null;
+    }
+
+    public Long getMaxSteps() {
+        return maxSteps;
+    }
+
+    public boolean hasMaxSteps() {
+        return maxSteps != null;
+    }
+
+    /**
+     * Accumulates test cases into growing arrays while a file is being read.
+     */
+    static final class Builder {
+        private char[] arena = new char[1024];
+        private int[] offsets = new int[65];
+        private final BitSet accepts = new BitSet();
+        private int size;
+
+        void add(char[] input, int length, boolean shouldAccept) {
+            int start = reserve(length);
+            System.arraycopy(input, 0, arena, start, length);
+            commit(length, shouldAccept);
+        }
+
+        void add(TestCase testCase) {
+            String input = testCase.getInput();
+            int start = reserve(input.length());
+            input.getChars(0, input.length(), arena, start);
+            commit(input.length(), testCase.shouldAccept());
+        }
+
+        /** Makes room for the next input and returns its start offset in the arena. */
+        private int reserve(int length) {
+            int start = offsets[size];
+            if (start + length > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, start + length));
+            }
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            return start;
+        }
+
+        private void commit(int length, boolean shouldAccept) {
+            if (shouldAccept) {
+                accepts.set(size);
+            }
+            offsets[size + 1] = offsets[size] + length;
+            size++;
+        }
+
+        TestSuite build(int minPoints, int maxPoints, Integer maxRegexLength, Integer timeout,
+                        Integer maxRules, Integer maxTransitions, Long maxSteps) {
+            return new TestSuite(this, minPoints, maxPoints, maxRegexLength, timeout, maxRules, maxTransitions, maxSteps);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Process-wide cache of loaded {@link TestSuite}s, keyed by file path, modification time and size.
+ * <p>
+ * Batch grading runs the same reference test file against hundreds of submissions; with the cache
+ * each file is parsed once and re-read only after it changes on disk. Concurrent callers asking for
+ * the same file wait for a single load. The least recently used suites are dropped beyond
+ * {@value #MAX_ENTRIES} files.
+ * </p>
+ */
+public final class TestSuiteCache {
+
+    /** Maximum number of test files kept in memory */
+    public static final int MAX_ENTRIES = 16;
+
+    private static final Map<String, CachedSuite> entries = new LinkedHashMap<String, CachedSuite>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedSuite> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private TestSuiteCache() {
+    }
+
+    /**
+     * Identifies one version of a test file on disk.
+     */
+    static final class Key {
+        private final String path;
+        private final long modified;
+        private final long length;
+
+        private Key(String path, long modified, long length) {
+            this.path = path;
+            this.modified = modified;
+            this.length = length;
+        }
+
+        private boolean sameVersion(CachedSuite entry) {
+            return entry.modified == modified && entry.length == length;
+        }
+    }
+
+    private static final class CachedSuite {
+        private final long modified;
+        private final long length;
+        private final FutureTask<TestSuite> task;
+
+        CachedSuite(Key key, FutureTask<TestSuite> task) {
+            this.modified = key.modified;
+            this.length = key.length;
+            this.task = task;
+        }
+    }
+
+    /**
+     * Returns the test suite of a file, loading it on first use or after the file has changed.
+     *
+     * @param filePath path to the test file
+     * @return the shared, immutable test suite
+     * @throws IOException if file cannot be read
+     * @throws IllegalArgumentException if file format is invalid
+     */
+    public static TestSuite get(String filePath) throws IOException {
+        Key key = keyOf(filePath);
+        FutureTask<TestSuite> task;
+        boolean owner = false;
+        synchronized (entries) {
+            CachedSuite entry = entries.get(key.path);
+            if (entry == null || !key.sameVersion(entry)) {
+                entry = new CachedSuite(key, new FutureTask<>(() -> TestFileParser.loadTestSuite(filePath)));
+                entries.put(key.path, entry);
+                owner = true;
+            }
+            task = entry.task;
+        }
+        if (owner) {
+            task.run();
+        }
+        return await(key, task);
+    }
+
+    /**
+     * Drops all cached suites.
+     */
+    public static void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return number of cached test files
+     */
+    public static int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Captures the current version of a file, before it is read.
+     */
+    static Key keyOf(String filePath) {
+        File file = new File(filePath);
+        return new Key(file.getAbsolutePath(), file.lastModified(), file.length());
+    }
+
+    /**
+     * Returns the cached suite for exactly this version of the file, or null if it is not cached.
+     */
+    static TestSuite getIfPresent(Key key) throws IOException {
+        FutureTask<TestSuite> task;
+        synchronized (entries) {
+            CachedSuite entry = entries.get(key.path);
+            if (entry == null || !key.sameVersion(entry)) {
+                return null;
+            }
+            task = entry.task;
+        }
+        return await(key, task);
+    }
+
+    /**
+     * Registers the caller as the loader of this version of a file, unless it is already cached or being
+     * loaded. The caller reads the file itself, e.g. while running its test cases, and must finish the
+     * returned load; meanwhile {@link #get(String)} and {@link #getIfPresent(Key)} wait for it.
+     *
+     * @return the load to finish, or null if another caller has already loaded or claimed the file
+     */
+    static Load claim(Key key) {
+        synchronized (entries) {
+            CachedSuite entry = entries.get(key.path);
+            if (entry != null && key.sameVersion(entry)) {
+                return null;
+            }
+            Load load = new Load(key);
+            entries.put(key.path, new CachedSuite(key, load));
+            return load;
+        }
+    }
+
+    /**
+     * A load of one file version claimed through {@link #claim(Key)} and finished by its owner.
+     */
+    static final class Load extends FutureTask<TestSuite> {
+        private final Key key;
+
+        private Load(Key key) {
+            super(() -> {
+                throw new IllegalStateException("Claimed loads are finished by their owner");
+            });
+            this.key = key;
+        }
+
+        /**
+         * Publishes the suite read from the file to everyone waiting for it.
+         */
+        void complete(TestSuite suite) {
+            set(suite);
+        }
+
+        /**
+         * Passes the error to everyone waiting and drops the load, so the next caller reads the file again.
+         */
+        void fail(Throwable cause) {
+            setException(cause);
+            synchronized (entries) {
+                CachedSuite entry = entries.get(key.path);
+                if (entry != null && entry.task == this) {
+                    entries.remove(key.path);
+                }
+            }
+        }
+    }
+
+    private static TestSuite await(Key key, FutureTask<TestSuite> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading test file: " + key.path);
+        } catch (ExecutionException e) {
+            // Failed loads are not cached, so the next call reads the file again
+            synchronized (entries) {
+                CachedSuite entry = entries.get(key.path);
+                if (entry != null && entry.task == task) {
+                    entries.remove(key.path);
+                }
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
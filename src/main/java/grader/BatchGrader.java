@@ -4,6 +4,12 @@ import java.io.*;
 import java.nio.file.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -12,27 +18,52 @@ import java.util.zip.ZipInputStream;
  * Complete exam grading system in pure Java.
  * Extracts ZIPs, grades all students using reference test cases, generates CSV and HTML reports.
  *
- * Usage: java -cp CS410-Exam.jar grader.BatchGrader <exam_folder> <test_cases_folder> <output_folder>
+ * Usage: java -cp CS410-Exam.jar grader.BatchGrader [--threads N] <exam_folder> <test_cases_folder> <output_folder>
  */
 public class BatchGrader {
 
     private static final String[] QUESTION_IDS = {"Q1a", "Q1b", "Q2a", "Q2b", "Q3a", "Q3b"};
 
     public static void main(String[] args) {
-        if (args.length != 3) {
-            System.err.println("Usage: java grader.BatchGrader <exam_folder> <test_cases_folder> <output_folder>");
-            System.err.println("Example: java grader.BatchGrader \"exams/CS410 Mock Exam\" \"reference_tests\" \"grading_results\"");
+        List<String> positional = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if ("--threads".equals(args[i]) || "-t".equals(args[i])) {
+                if (i + 1 >= args.length) {
+                    positional.clear();
+                    break;
+                }
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    System.err.println("Invalid thread count: " + args[i]);
+                    System.exit(1);
+                }
+            } else {
+                positional.add(args[i]);
+            }
+        }
+
+        if (positional.size() != 3) {
+            System.err.println("Usage: java grader.BatchGrader [--threads N] <exam_folder> <test_cases_folder> <output_folder>");
+            System.err.println("Example: java grader.BatchGrader --threads 8 \"exams/CS410 Mock Exam\" \"reference_tests\" \"grading_results\"");
             System.err.println();
             System.err.println("Arguments:");
             System.err.println("  exam_folder       - Folder containing student submissions");
             System.err.println("  test_cases_folder - Folder containing reference test cases (*.test files)");
             System.err.println("  output_folder     - Folder where results will be saved");
+            System.err.println();
+            System.err.println("Options:");
+            System.err.println("  --threads N, -t N - Number of submissions graded concurrently (default: number of CPUs)");
             System.exit(1);
         }
 
-        String examFolder = args[0];
-        String testCasesFolder = args[1];
-        String outputFolder = args[2];
+        String examFolder = positional.get(0);
+        String testCasesFolder = positional.get(1);
+        String outputFolder = positional.get(2);
 
         System.out.println("======================================================================");
         System.out.println("CS410 Exam Batch Grader (Pure Java)");
@@ -51,9 +82,9 @@ public class BatchGrader {
             }
 
             // Step 3: Grade all students
-            System.out.println("Starting batch grading...");
+            System.out.println("Starting batch grading with " + threads + " worker thread(s)...");
             System.out.println();
-            List<StudentResult> results = gradeAllStudents(examFolder, testCasesFolder);
+            List<StudentResult> results = gradeAllStudents(examFolder, testCasesFolder, threads);
 
             // Step 4: Generate reports
             System.out.println("\nGenerating reports...");
@@ -174,9 +205,16 @@ public class BatchGrader {
     }
 
     /**
-     * Grade all students
+     * Grade all students on a pool of worker threads.
+     * <p>
+     * Every (student, question) pair is a separate task, so one slow submission holds a single
+     * worker while the rest of the queue keeps moving. At most twice as many tasks as workers are
+     * in flight at a time, which bounds the memory held by test results that are still being
+     * produced. Results are stored by index, so report order does not depend on completion order.
+     * </p>
      */
-    private static List<StudentResult> gradeAllStudents(String examFolder, String testCasesFolder) {
+    private static List<StudentResult> gradeAllStudents(String examFolder, String testCasesFolder, int threads)
+            throws InterruptedException {
         File examDir = new File(examFolder);
         File[] studentFolders = examDir.listFiles(File::isDirectory);
 
@@ -192,24 +230,62 @@ public class BatchGrader {
         System.out.println("Found " + folders.size() + " student folders");
         System.out.println();
 
-        List<StudentResult> results = new ArrayList<>();
+        ExamGrader.GradingResult[][] graded = new ExamGrader.GradingResult[folders.size()][QUESTION_IDS.length];
+        int[] remainingQuestions = new int[folders.size()];
+        Arrays.fill(remainingQuestions, QUESTION_IDS.length);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CompletionService<int[]> completion = new ExecutorCompletionService<>(pool);
+        int totalTasks = folders.size() * QUESTION_IDS.length;
+        int maxInFlight = threads * 2;
+        int submitted = 0;
+        int inFlight = 0;
+
         long startTime = System.currentTimeMillis();
         int completed = 0;
 
-        for (File studentFolder : folders) {
-            StudentResult result = gradeStudent(studentFolder, testCasesFolder);
-            results.add(result);
+        try {
+            while (completed < folders.size()) {
+                while (inFlight < maxInFlight && submitted < totalTasks) {
+                    int student = submitted / QUESTION_IDS.length;
+                    int question = submitted % QUESTION_IDS.length;
+                    String folder = folders.get(student).getPath();
+                    completion.submit(() -> {
+                        graded[student][question] = gradeQuestion(folder, QUESTION_IDS[question], testCasesFolder);
+                        return new int[] {student, question};
+                    });
+                    submitted++;
+                    inFlight++;
+                }
+
+                int[] done = getTask(completion.take());
+                inFlight--;
 
-            completed++;
-            if (completed % 5 == 0 || completed == folders.size()) {
-                long elapsed = System.currentTimeMillis() - startTime;
-                double avgTime = elapsed / (double) completed;
-                long remaining = (long) (avgTime * (folders.size() - completed));
-                System.out.printf("Progress: %d/%d students (%.1f%%) - Est. remaining: %d seconds%n",
-                        completed, folders.size(),
-                        100.0 * completed / folders.size(),
-                        remaining / 1000);
+                if (--remainingQuestions[done[0]] > 0) {
+                    continue;
+                }
+                completed++;
+                if (completed % 5 == 0 || completed == folders.size()) {
+                    long elapsed = System.currentTimeMillis() - startTime;
+                    double avgTime = elapsed / (double) completed;
+                    long remaining = (long) (avgTime * (folders.size() - completed));
+                    System.out.printf("Progress: %d/%d students (%.1f%%) - Est. remaining: %d seconds%n",
+                            completed, folders.size(),
+                            100.0 * completed / folders.size(),
+                            remaining / 1000);
+                }
             }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<StudentResult> results = new ArrayList<>();
+        for (int i = 0; i < folders.size(); i++) {
+            StudentResult result = new StudentResult();
+            result.studentName = folders.get(i).getName();
+            result.studentFolder = folders.get(i).getPath();
+            result.questions.addAll(Arrays.asList(graded[i]));
+            results.add(result);
         }
 
         long totalTime = System.currentTimeMillis() - startTime;
@@ -219,23 +295,26 @@ public class BatchGrader {
     }
 
     /**
-     * Grade a single student
+     * Grade one question, turning unexpected failures into an error result so a broken
+     * submission cannot stop the batch.
      */
-    private static StudentResult gradeStudent(File studentFolder, String testCasesFolder) {
-        StudentResult result = new StudentResult();
-        result.studentName = studentFolder.getName();
-        result.studentFolder = studentFolder.getPath();
-
-        for (String questionId : QUESTION_IDS) {
-            ExamGrader.GradingResult gradingResult = ExamGrader.gradeQuestion(
-                    studentFolder.getPath(),
-                    questionId,
-                    testCasesFolder
-            );
-            result.questions.add(gradingResult);
+    private static ExamGrader.GradingResult gradeQuestion(String studentFolder, String questionId, String testCasesFolder) {
+        try {
+            return ExamGrader.gradeQuestion(studentFolder, questionId, testCasesFolder);
+        } catch (RuntimeException | StackOverflowError e) {
+            ExamGrader.GradingResult result = new ExamGrader.GradingResult(studentFolder, questionId);
+            result.errorMessage = "Grading error: " + e;
+            return result;
         }
+    }
 
-        return result;
+    private static int[] getTask(Future<int[]> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // gradeQuestion never throws; anything else is a bug in the grader itself
+            throw new IllegalStateException("Grading task failed", e.getCause());
+        }
     }
 
     /**
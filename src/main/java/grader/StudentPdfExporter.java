@@ -1,8 +1,5 @@
 package grader;
 
-import guru.nidi.graphviz.engine.Format;
-import guru.nidi.graphviz.engine.Graphviz;
-import guru.nidi.graphviz.engine.GraphvizJdkEngine;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -10,6 +7,7 @@ import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import common.Automaton;
+import common.GraphvizRenderer;
 import ContextFreeGrammar.CFG;
 import DeterministicFiniteAutomaton.DFA;
 import NondeterministicFiniteAutomaton.NFA;
@@ -17,7 +15,6 @@ import PushDownAutomaton.PDA;
 import RegularExpression.SyntaxTree.SyntaxTree;
 import TuringMachine.TM;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -117,14 +114,6 @@ public class StudentPdfExporter {
         File pdfDir = new File(outputFolder, "question_pdfs");
         pdfDir.mkdirs();
 
-        // Initialize GraphViz engine once
-        try {
-            GraphvizJdkEngine jdkEngine = new GraphvizJdkEngine();
-            Graphviz.useEngine(jdkEngine);
-        } catch (Exception e) {
-            System.err.println("Warning: Could not initialize GraphViz engine: " + e.getMessage());
-        }
-
         int count = 0;
         for (String questionId : QUESTION_IDS) {
             File pdfFile = new File(pdfDir, questionId + ".pdf");
@@ -379,14 +368,8 @@ public class StudentPdfExporter {
             // Generate DOT code
             String dotCode = parseResult.getAutomaton().toDotCode(answerContent);
 
-            // Render to PNG
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            Graphviz.fromString(dotCode)
-                    .width(600)
-                    .render(Format.PNG)
-                    .toOutputStream(outputStream);
-
-            return outputStream.toByteArray();
+            // Render to PNG with the shared engine; identical answers are rendered once
+            return GraphvizRenderer.renderPng(dotCode, 600);
 
         } catch (Exception e) {
             System.err.println("Warning: Could not generate diagram for " + questionId + ": " + e.getMessage());
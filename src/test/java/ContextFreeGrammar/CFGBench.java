@@ -4,60 +4,105 @@ import common.Automaton;
 import common.TestCase;
 import common.TestFileParser;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Compares the CYK and Earley engines, and the engine AUTO selects, on every CFG exercise
+ * under src/test/manual-testing that has a .test file next to it.
+ */
 public class CFGBench {
     private static final double THRESHOLD_SECONDS = 1.0;
     private static final int    MAX_REPEATS       = 1 << 14; // safety
+    private static final String EXERCISES         = "src/test/manual-testing";
 
-    // {name, cfgPath, testPath}
-    private static final String[][] CASES = new String[][]{
-            {"palindrome",
-                    "src/test/manual-testing/examples/cfg/cfg-basic.cfg",
-                    "src/test/manual-testing/examples/cfg/cfg-basic.test"},
-    };
+    private static final CFG.ExecutionMode[] MODES =
+            {CFG.ExecutionMode.CYK, CFG.ExecutionMode.EARLEY, CFG.ExecutionMode.AUTO};
 
     public static void main(String[] args) throws Exception {
-        System.out.println("scenario   tests  repeats    total(s)   avg(ms)");
-        System.out.println("-----------------------------------------------");
-        for (String[] sc : CASES) runScenario(sc[0], sc[1], sc[2]);
+        System.out.println("scenario       tests  maxlen    cyk(ms)  earley(ms)  auto(ms)  auto parser");
+        System.out.println("------------------------------------------------------------------------");
+        for (Path cfgPath : exercises()) {
+            String testPath = cfgPath.toString().replaceAll("\\.cfg$", ".test");
+            runScenario(cfgPath.getFileName().toString(), cfgPath.toString(), testPath);
+        }
+    }
+
+    private static List<Path> exercises() throws IOException {
+        try (Stream<Path> files = Files.walk(Paths.get(EXERCISES))) {
+            return files.filter(p -> p.toString().endsWith(".cfg"))
+                    .filter(p -> Files.exists(Paths.get(p.toString().replaceAll("\\.cfg$", ".test"))))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
     }
 
     private static void runScenario(String name, String cfgPath, String testPath) throws Exception {
         String cfgText = new String(Files.readAllBytes(Paths.get(cfgPath)), StandardCharsets.UTF_8);
         CFG cfg = new CFG();
         Automaton.ParseResult pr = cfg.parse(cfgText);
-        if (!pr.isSuccess()) throw new IllegalStateException("CFG parse failed: " + name);
+        if (!pr.isSuccess()) {
+            System.out.printf("%-14s skipped: %s%n", name, pr.getValidationMessages());
+            return;
+        }
 
         List<TestCase> tests = TestFileParser.parseTestFile(testPath).getTestCases();
         if (tests.isEmpty()) throw new IllegalStateException("Empty test file: " + testPath);
+        int maxLength = tests.stream().mapToInt(tc -> tc.getInput().length()).max().getAsInt();
 
+        double[] avgMs = new double[MODES.length];
+        for (int m = 0; m < MODES.length; m++) {
+            cfg.setExecutionMode(MODES[m]);
+            avgMs[m] = averageMillis(cfg, tests);
+        }
+
+        System.out.printf("%-14s %5d %7d %10.4f %11.4f %9.4f  %s%n",
+                name, tests.size(), maxLength, avgMs[0], avgMs[1], avgMs[2], parserName(cfg, tests));
+    }
+
+    /**
+     * @return the engine named by the "Parser:" message of the first non-empty input
+     */
+    private static String parserName(CFG cfg, List<TestCase> tests) {
+        for (TestCase tc : tests) {
+            if (tc.getInput().isEmpty()) continue;
+            for (Automaton.ValidationMessage m : cfg.execute(tc.getInput()).getRuntimeMessages()) {
+                if (m.getMessage().startsWith("Parser: ")) {
+                    return m.getMessage().substring("Parser: ".length(), m.getMessage().length() - 1);
+                }
+            }
+        }
+        return "-";
+    }
+
+    /**
+     * Runs the suite with doubling repeats until a round takes over {@link #THRESHOLD_SECONDS}.
+     *
+     * @return the average time per test case of the last round
+     */
+    private static double averageMillis(CFG cfg, List<TestCase> tests) {
         // warm-up
         for (int i = 0; i < Math.min(50, tests.size()); i++) cfg.execute(tests.get(i).getInput());
 
         int repeats = 1;
         while (true) {
             long t0 = System.nanoTime();
-            int total = tests.size() * repeats;
-
             for (int r = 0; r < repeats; r++) {
                 for (TestCase tc : tests) {
-                    cfg.execute(tc.getInput());
+                    cfg.execute(tc.getInput(), Automaton.ExecutionOptions.NO_TRACE);
                 }
             }
-            long t1 = System.nanoTime();
-
-            double totalSec = (t1 - t0) / 1e9;
-            double avgMs = (totalSec * 1000.0) / total;
-
-            System.out.printf("%-10s %5d %8d %10.3f %8.3f%n",
-                    name, tests.size(), repeats, totalSec, avgMs);
-
-            if (totalSec > THRESHOLD_SECONDS || repeats >= MAX_REPEATS) break;
+            double totalSec = (System.nanoTime() - t0) / 1e9;
+            if (totalSec > THRESHOLD_SECONDS || repeats >= MAX_REPEATS) {
+                return (totalSec * 1000.0) / (tests.size() * (long) repeats);
+            }
             repeats <<= 1;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,308 @@
+package ContextFreeGrammar;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import common.Automaton;
+import common.Symbol;
+import common.TestCase;
+import common.TestFileParser;
+
+/**
+ * JUnit 5 test class for CFG execution and normal form conversion.
+ */
+@DisplayName("CFG Execution Tests")
+public class CFGExecuteTest {
+
+    private static final String EXERCISES = "src/test/manual-testing";
+    /** Upper bound on the number of strings enumerated per grammar. */
+    private static final int MAX_ENUMERATED = 4000;
+
+    private static CFG parse(String text) {
+        CFG cfg = new CFG();
+        Automaton.ParseResult result = cfg.parse(text);
+        assertTrue(result.isSuccess(), () -> "Grammar should parse: " + result.getValidationMessages());
+        return cfg;
+    }
+
+    private static boolean accepts(CFG cfg, CFG.ExecutionMode mode, String input) {
+        cfg.setExecutionMode(mode);
+        return cfg.execute(input, Automaton.ExecutionOptions.NO_TRACE).isAccepted();
+    }
+
+    @Nested
+    @DisplayName("Chomsky Normal Form")
+    class NormalFormTests {
+
+        @Test
+        @DisplayName("CNF productions are A -> a or A -> B C")
+        void testNormalFormShape() throws IOException {
+            for (Path file : exercises()) {
+                CFG cnf = parse(read(file)).toChomskyNormalForm();
+                for (Production p : cnf.getProductions()) {
+                    List<Symbol> right = p.getRight();
+                    boolean terminal = right.size() == 1 && right.get(0) instanceof Terminal;
+                    boolean binary = right.size() == 2
+                            && right.get(0) instanceof NonTerminal && right.get(1) instanceof NonTerminal;
+                    assertTrue(terminal || binary, file.getFileName() + ": not in CNF: " + p);
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("CNF derives the same language as each exercise grammar")
+        void testLanguageEquivalenceOnExercises() throws IOException {
+            for (Path file : exercises()) {
+                CFG cfg = parse(read(file));
+                List<String> inputs = enumerate(cfg);
+                Path tests = Paths.get(file.toString().replaceAll("\\.cfg$", ".test"));
+                if (Files.exists(tests)) {
+                    for (TestCase tc : TestFileParser.parseTestFile(tests.toString()).getTestCases()) {
+                        inputs.add(tc.getInput());
+                    }
+                }
+                for (String input : inputs) {
+                    // CYK runs on the CNF, Earley on the grammar as written
+                    assertEquals(accepts(cfg, CFG.ExecutionMode.EARLEY, input),
+                            accepts(cfg, CFG.ExecutionMode.CYK, input),
+                            file.getFileName() + ": engines disagree on '" + input + "'");
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Many nullable symbols in one production keep the CNF small")
+        void testNullableProductionStaysLinear() {
+            StringBuilder grammar = new StringBuilder("Variables = S A B C D E F G H I J K L\n"
+                    + "Terminals = a b c d e f g h i j k l\n"
+                    + "Start = S\n"
+                    + "S -> A B C D E F G H I J K L\n");
+            for (char v = 'A'; v <= 'L'; v++) {
+                grammar.append(v).append(" -> ").append(Character.toLowerCase(v)).append(" | eps\n");
+            }
+            CFG cfg = parse(grammar.toString());
+
+            assertTrue(cfg.toChomskyNormalForm().getProductions().size() < 300,
+                    "CNF size should be linear, was " + cfg.toChomskyNormalForm().getProductions().size());
+            cfg.setExecutionMode(CFG.ExecutionMode.CYK);
+            assertTrue(cfg.execute("abcdefghijkl").isAccepted());
+            assertTrue(cfg.execute("acegik").isAccepted());
+            assertTrue(cfg.execute("l").isAccepted());
+            assertTrue(cfg.execute("").isAccepted());
+            assertFalse(cfg.execute("ba").isAccepted());
+            assertFalse(cfg.execute("aa").isAccepted());
+        }
+
+        @Test
+        @DisplayName("Non-generating and unreachable variables are removed from the CNF")
+        void testUselessVariablesRemoved() {
+            CFG cfg = parse("Variables = S A B C\n"
+                    + "Terminals = a b c\n"
+                    + "Start = S\n"
+                    + "S -> a S b | a b | A B\n"
+                    + "A -> a A\n"
+                    + "B -> b\n"
+                    + "C -> c\n");
+
+            CFG cnf = cfg.toChomskyNormalForm();
+            Set<String> names = cnf.getVariables().stream().map(NonTerminal::getName).collect(Collectors.toSet());
+            assertFalse(names.contains("A"), "A derives no terminal string");
+            assertFalse(names.contains("B"), "B is only used together with A");
+            assertFalse(names.contains("C"), "C is unreachable");
+            for (Production p : cnf.getProductions()) {
+                for (Symbol s : p.getRight()) {
+                    assertTrue(s instanceof Terminal || names.contains(s.getName()), "Dangling symbol in " + p);
+                }
+            }
+
+            cfg.setExecutionMode(CFG.ExecutionMode.CYK);
+            assertTrue(cfg.execute("aabb").isAccepted());
+            assertFalse(cfg.execute("abb").isAccepted());
+            assertFalse(cfg.execute("c").isAccepted());
+        }
+
+        @Test
+        @DisplayName("Productions whose symbol names concatenate alike are kept apart")
+        void testMultiCharacterVariableNames() {
+            CFG cfg = parse("Variables = S A AB B BB\n"
+                    + "Terminals = a b c d\n"
+                    + "Start = S\n"
+                    + "S -> A BB | AB B\n"
+                    + "A -> a\n"
+                    + "BB -> b\n"
+                    + "AB -> c\n"
+                    + "B -> d\n");
+
+            for (CFG.ExecutionMode mode : new CFG.ExecutionMode[]{CFG.ExecutionMode.CYK, CFG.ExecutionMode.EARLEY}) {
+                assertTrue(accepts(cfg, mode, "ab"), mode + " should accept 'ab'");
+                assertTrue(accepts(cfg, mode, "cd"), mode + " should accept 'cd'");
+                assertFalse(accepts(cfg, mode, "ad"), mode + " should reject 'ad'");
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("LL(1) and LR(1) parsers")
+    class DeterministicParserTests {
+
+        private static final String BALANCED = "Variables = S\n"
+                + "Terminals = a b\n"
+                + "Start = S\n"
+                + "S -> a S b S | eps\n";
+
+        private static final String LEFT_RECURSIVE = "Variables = E T F\n"
+                + "Terminals = a p m l r\n"
+                + "Start = E\n"
+                + "E -> E p T | T\n"
+                + "T -> T m F | F\n"
+                + "F -> l E r | a\n";
+
+        private String parserMessage(CFG cfg, String input) {
+            return cfg.execute(input).getRuntimeMessages().stream()
+                    .map(Automaton.ValidationMessage::getMessage)
+                    .filter(m -> m.startsWith("Parser: "))
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        @Test
+        @DisplayName("AUTO uses the LL(1) parser for an LL(1) grammar")
+        void testLL1GrammarSelectsLL1() {
+            CFG cfg = parse(BALANCED);
+
+            assertTrue(cfg.getLL1Conflicts().isEmpty(), () -> "Unexpected conflicts: " + cfg.getLL1Conflicts());
+            assertEquals("Parser: LL(1).", parserMessage(cfg, "aabbab"));
+            assertTrue(cfg.execute("aabbab").isAccepted());
+            assertFalse(cfg.execute("abba").isAccepted());
+            assertTrue(cfg.execute("").isAccepted());
+        }
+
+        @Test
+        @DisplayName("AUTO uses the LALR(1) parser for a left-recursive grammar")
+        void testLeftRecursiveGrammarSelectsLalr() {
+            CFG cfg = parse(LEFT_RECURSIVE);
+
+            assertFalse(cfg.getLL1Conflicts().isEmpty(), "Left recursion is not LL(1)");
+            assertTrue(cfg.getLR1Conflicts().isEmpty(), () -> "Unexpected conflicts: " + cfg.getLR1Conflicts());
+            assertEquals("Parser: LALR(1).", parserMessage(cfg, "apamlapar"));
+            assertTrue(cfg.execute("apamlapar").isAccepted());
+            assertFalse(cfg.execute("apm").isAccepted());
+            assertTrue(cfg.execute("lar").isAccepted());
+        }
+
+        @Test
+        @DisplayName("An LR(1) grammar that is not LALR(1) uses the canonical tables")
+        void testCanonicalTablesWhenLalrConflicts() {
+            CFG cfg = parse("Variables = S A B\n"
+                    + "Terminals = a b c d e\n"
+                    + "Start = S\n"
+                    + "S -> a A d | b B d | a B e | b A e\n"
+                    + "A -> c\n"
+                    + "B -> c\n");
+
+            assertEquals("Parser: LR(1).", parserMessage(cfg, "acd"));
+            for (String input : new String[]{"acd", "bcd", "ace", "bce"}) {
+                assertTrue(cfg.execute(input).isAccepted(), input);
+            }
+            assertFalse(cfg.execute("acc").isAccepted());
+        }
+
+        @Test
+        @DisplayName("An ambiguous grammar reports conflicts and falls back to a general parser")
+        void testAmbiguousGrammarFallsBack() {
+            CFG cfg = parse("Variables = S\n"
+                    + "Terminals = a\n"
+                    + "Start = S\n"
+                    + "S -> S S | a\n");
+
+            assertFalse(cfg.getLL1Conflicts().isEmpty());
+            assertFalse(cfg.getLR1Conflicts().isEmpty());
+            String parser = parserMessage(cfg, "aaa");
+            assertTrue("Parser: CYK.".equals(parser) || "Parser: Earley.".equals(parser), parser);
+            assertTrue(cfg.execute("aaa").isAccepted());
+
+            cfg.setExecutionMode(CFG.ExecutionMode.LR1);
+            for (String input : new String[] {"aaa", ""}) {
+                Automaton.ExecutionResult result = cfg.execute(input);
+                assertFalse(result.isAccepted(), input);
+                assertTrue(result.getRuntimeMessages().stream().anyMatch(m ->
+                        m.getType() == Automaton.ValidationMessage.ValidationMessageType.ERROR
+                                && m.getMessage().startsWith("Grammar is not LR(1): ")), input);
+            }
+        }
+
+        @Test
+        @DisplayName("The deterministic parsers agree with CYK on the exercises they accept")
+        void testDeterministicParsersMatchCyk() throws IOException {
+            for (Path file : exercises()) {
+                CFG cfg = parse(read(file));
+                List<CFG.ExecutionMode> modes = new ArrayList<>();
+                if (cfg.getLL1Conflicts().isEmpty()) {
+                    modes.add(CFG.ExecutionMode.LL1);
+                }
+                if (cfg.getLR1Conflicts().isEmpty()) {
+                    modes.add(CFG.ExecutionMode.LR1);
+                }
+                for (String input : enumerate(cfg)) {
+                    boolean expected = accepts(cfg, CFG.ExecutionMode.CYK, input);
+                    for (CFG.ExecutionMode mode : modes) {
+                        assertEquals(expected, accepts(cfg, mode, input),
+                                file.getFileName() + ": " + mode + " disagrees with CYK on '" + input + "'");
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<Path> exercises() throws IOException {
+        try (Stream<Path> files = Files.walk(Paths.get(EXERCISES))) {
+            List<Path> grammars = new ArrayList<>();
+            for (Path p : files.filter(f -> f.toString().endsWith(".cfg")).sorted().collect(Collectors.toList())) {
+                if (new CFG().parse(read(p)).isSuccess()) {
+                    grammars.add(p);
+                }
+            }
+            return grammars;
+        }
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return all strings over the grammar's one-character terminals, shortest first, up to
+     *         {@link #MAX_ENUMERATED} of them
+     */
+    private static List<String> enumerate(CFG cfg) {
+        List<Character> alphabet = cfg.getTerminals().stream()
+                .map(Terminal::getName)
+                .filter(name -> name.length() == 1)
+                .map(name -> name.charAt(0))
+                .sorted()
+                .collect(Collectors.toList());
+        List<String> strings = new ArrayList<>();
+        strings.add("");
+        for (int i = 0; i < strings.size() && strings.size() < MAX_ENUMERATED; i++) {
+            for (char c : alphabet) {
+                strings.add(strings.get(i) + c);
+            }
+        }
+        return strings;
+    }
+}
@@ -394,6 +394,21 @@ public class DFAExecuteTest {
             assertNotNull(trace, "Trace should not be null for empty string");
             // Trace might indicate starting state and immediate rejection/acceptance
         }
+
+        @Test
+        @DisplayName("Trace level controls how much trace is built")
+        void testTraceLevels() {
+            Automaton.ExecutionResult none = dfa.execute("aba", Automaton.ExecutionOptions.NO_TRACE);
+            Automaton.ExecutionResult summary = dfa.execute("aba", Automaton.ExecutionOptions.SUMMARY_TRACE);
+            Automaton.ExecutionResult full = dfa.execute("aba", Automaton.ExecutionOptions.FULL_TRACE);
+
+            assertTrue(none.isAccepted() && summary.isAccepted() && full.isAccepted(), "All levels should accept 'aba'");
+            assertEquals("", none.getTrace(), "NONE should not build a trace");
+            assertEquals("Final state: q1 (ACCEPTED)\n", summary.getTrace());
+            assertEquals(dfa.execute("aba").getTrace(), full.getTrace(), "FULL should match execute(String)");
+            assertFalse(dfa.execute("abc", Automaton.ExecutionOptions.NO_TRACE).getRuntimeMessages().isEmpty(),
+                    "NONE should still report runtime errors");
+        }
     }
 
     @Nested
@@ -470,5 +485,45 @@ public class DFAExecuteTest {
                 fail("DFA parsing failed, cannot test execution");
             }
         }
+
+        @Test
+        @DisplayName("Parsed DFA gives the same trace on repeated executions")
+        void testRepeatedExecutionOnParsedDFA() {
+            String dfaDefinition = "Start: q0\n" +
+                                  "Finals: q1\n" +
+                                  "Alphabet: a b\n" +
+                                  "States: q0 q1\n" +
+                                  "Transitions:\n" +
+                                  "q0 -> q1 (a)\n" +
+                                  "q0 -> q0 (b)\n" +
+                                  "q1 -> q1 (a)\n" +
+                                  "q1 -> q0 (b)\n";
+
+            DFA parsedDFA = new DFA();
+            assertTrue(parsedDFA.parse(dfaDefinition).isSuccess(), "DFA should parse");
+
+            Automaton.ExecutionResult first = parsedDFA.execute("bab");
+            Automaton.ExecutionResult second = parsedDFA.execute("bab");
+            assertFalse(first.isAccepted(), "Parsed DFA should reject 'bab'");
+            assertEquals("Initial state: q0\nRead 'b' -> state q0\nRead 'a' -> state q1\n" +
+                         "Read 'b' -> state q0\nFinal state: q0 (REJECTED)\n", first.getTrace());
+            assertEquals(first.getTrace(), second.getTrace(), "Repeated executions should match");
+        }
+
+        @Test
+        @DisplayName("Re-parsing replaces the compiled transition table")
+        void testReparseReplacesTable() {
+            DFA parsedDFA = new DFA();
+            assertTrue(parsedDFA.parse("Start: q0\nFinals: q1\nAlphabet: a\nStates: q0 q1\n" +
+                                       "Transitions:\nq0 -> q1 (a)\nq1 -> q1 (a)\n").isSuccess());
+            assertTrue(parsedDFA.execute("a").isAccepted(), "First DFA should accept 'a'");
+
+            assertTrue(parsedDFA.parse("Start: q0\nFinals: q0\nAlphabet: b\nStates: q0\n" +
+                                       "Transitions:\nq0 -> q0 (b)\n").isSuccess());
+            assertTrue(parsedDFA.execute("bb").isAccepted(), "Second DFA should accept 'bb'");
+            Automaton.ExecutionResult result = parsedDFA.execute("a");
+            assertFalse(result.isAccepted(), "Symbol from the old alphabet should be rejected");
+            assertEquals("Symbol 'a' not in alphabet", result.getRuntimeMessages().get(0).getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,15 @@
 package NondeterministicFiniteAutomaton;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
@@ -836,4 +840,162 @@ public class ExecuteTest {
             }
         }
     }
+
+    @Nested
+    @DisplayName("Large NFA Tests")
+    class LargeNFATests {
+
+        /**
+         * Builds an NFA with more than 64 states that accepts strings over {a, b}
+         * whose n-th symbol from the end is 'a', with an epsilon chain in front.
+         */
+        private NFA createNthFromEndNFA(int n) {
+            Map<String, State> largeStates = new HashMap<>();
+            Map<State, List<Transition>> largeTransitions = new HashMap<>();
+            Symbol a = new Symbol('a');
+            Symbol b = new Symbol('b');
+            Symbol eps = new Symbol('_');
+
+            State pre = new State("q_pre");
+            pre.setStart(true);
+            State loop = new State("q0");
+            largeStates.put(pre.getName(), pre);
+            largeStates.put(loop.getName(), loop);
+            largeTransitions.put(pre, new ArrayList<>(Collections.singletonList(new Transition(pre, loop, eps))));
+
+            State previous = loop;
+            for (int i = 1; i <= n; i++) {
+                State next = new State("q" + i);
+                largeStates.put(next.getName(), next);
+                List<Transition> out = largeTransitions.computeIfAbsent(previous, k -> new ArrayList<>());
+                if (i == 1) {
+                    out.add(new Transition(loop, loop, a));
+                    out.add(new Transition(loop, loop, b));
+                    out.add(new Transition(loop, next, a));
+                } else {
+                    out.add(new Transition(previous, next, a));
+                    out.add(new Transition(previous, next, b));
+                }
+                previous = next;
+            }
+            previous.setAccept(true);
+
+            Set<Symbol> largeAlphabet = new HashSet<>(Arrays.asList(a, b));
+            return new NFA(largeStates, largeAlphabet, pre, new HashSet<>(Collections.singletonList(previous)), largeTransitions);
+        }
+
+        @Test
+        @DisplayName("NFA with more than 64 states")
+        void testMoreThan64States() {
+            NFA large = createNthFromEndNFA(100);
+            StringBuilder accepted = new StringBuilder("a");
+            StringBuilder rejected = new StringBuilder("b");
+            for (int i = 0; i < 99; i++) {
+                accepted.append(i % 3 == 0 ? 'a' : 'b');
+                rejected.append(i % 3 == 0 ? 'a' : 'b');
+            }
+
+            assertTrue(large.execute("bb" + accepted).isAccepted(), "100th symbol from the end is 'a'");
+            assertFalse(large.execute("aa" + rejected).isAccepted(), "100th symbol from the end is 'b'");
+            assertFalse(large.execute(accepted.substring(1)).isAccepted(), "Input shorter than 100 symbols");
+        }
+
+        @Test
+        @DisplayName("Repeated executions give the same result")
+        void testRepeatedExecution() {
+            NFA small = createNthFromEndNFA(3);
+            for (int i = 0; i < 3; i++) {
+                assertTrue(small.execute("babb").isAccepted(), "Third symbol from the end is 'a'");
+                assertFalse(small.execute("abbb").isAccepted(), "Third symbol from the end is 'b'");
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Subset Cache Tests")
+    class SubsetCacheTests {
+
+        private final String[] inputs = {"", "a", "b", "ba", "bab", "bba", "bcab", "abcabc", "bbbbbb", "cacbc"};
+
+        @Test
+        @DisplayName("Lazy DFA mode agrees with bitset mode")
+        void testModesAgree() {
+            NFA bitset = new NFA(states, nfa.getAlphabet(), startState, finalStates, transitions);
+            bitset.setExecutionMode(NFA.ExecutionMode.BITSET);
+            for (String input : inputs) {
+                assertEquals(bitset.execute(input).isAccepted(), nfa.execute(input).isAccepted(),
+                        "Modes should agree on '" + input + "'");
+            }
+            assertEquals(0, bitset.getSubsetCacheSize(), "Bitset mode should not fill the cache");
+        }
+
+        @Test
+        @DisplayName("Cache persists across executions")
+        void testCachePersists() {
+            for (String input : inputs) {
+                nfa.execute(input);
+            }
+            int size = nfa.getSubsetCacheSize();
+            assertTrue(size > 0, "Cache should hold the visited state sets");
+            for (String input : inputs) {
+                nfa.execute(input);
+            }
+            assertEquals(size, nfa.getSubsetCacheSize(), "Repeated inputs should not add state sets");
+        }
+
+        @Test
+        @DisplayName("Cache respects its limit under both eviction policies")
+        void testCacheLimit() {
+            NFA reference = new NFA(states, nfa.getAlphabet(), startState, finalStates, transitions);
+            reference.setExecutionMode(NFA.ExecutionMode.BITSET);
+            for (NFA.CacheEvictionPolicy policy : NFA.CacheEvictionPolicy.values()) {
+                nfa.setSubsetCacheLimit(1, policy);
+                for (String input : inputs) {
+                    assertEquals(reference.execute(input).isAccepted(), nfa.execute(input).isAccepted(),
+                            policy + " should not change the result for '" + input + "'");
+                    assertTrue(nfa.getSubsetCacheSize() <= 1, policy + " should keep at most one set");
+                }
+            }
+            assertThrows(IllegalArgumentException.class,
+                    () -> nfa.setSubsetCacheLimit(0, NFA.CacheEvictionPolicy.FLUSH));
+        }
+
+        @Test
+        @DisplayName("Threads sharing one cache get the same results as bitset mode")
+        void testConcurrentExecutions() throws Exception {
+            NFA reference = new NFA(states, nfa.getAlphabet(), startState, finalStates, transitions);
+            reference.setExecutionMode(NFA.ExecutionMode.BITSET);
+            Random random = new Random(42);
+            List<String> randomInputs = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                StringBuilder sb = new StringBuilder();
+                for (int j = random.nextInt(12); j > 0; j--) {
+                    sb.append("abc".charAt(random.nextInt(3)));
+                }
+                randomInputs.add(sb.toString());
+            }
+            for (int limit : new int[]{2, 1 << 16}) {
+                nfa.setSubsetCacheLimit(limit, NFA.CacheEvictionPolicy.FLUSH);
+                ExecutorService pool = Executors.newFixedThreadPool(4);
+                try {
+                    List<Future<String>> mismatches = new ArrayList<>();
+                    for (int t = 0; t < 4; t++) {
+                        mismatches.add(pool.submit(() -> {
+                            for (String input : randomInputs) {
+                                if (nfa.execute(input).isAccepted() != reference.execute(input).isAccepted()) {
+                                    return input;
+                                }
+                            }
+                            return null;
+                        }));
+                    }
+                    for (Future<String> mismatch : mismatches) {
+                        assertNull(mismatch.get(), "Limit " + limit + " should not change the result");
+                    }
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
 }
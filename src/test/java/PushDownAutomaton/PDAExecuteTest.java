@@ -5,6 +5,7 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -121,6 +122,302 @@ public class PDAExecuteTest {
             assertFalse(pda.execute("ba").isAccepted(), "'ba' should be rejected");
             assertFalse(pda.execute("aabbb").isAccepted(), "'aabbb' should be rejected");
         }
+
+        @Test
+        @DisplayName("Should abort the search at the configuration limit")
+        void testConfigurationLimit() {
+            // Pushes on epsilon forever, so the configuration space is unbounded
+            String growingPDA = "states: q0 q1\n" +
+                               "alphabet: a b\n" +
+                               "stack_alphabet: X Z\n" +
+                               "start: q0\n" +
+                               "stack_start: Z\n" +
+                               "finals: q1\n" +
+                               "transitions:\n" +
+                               "q0 eps eps -> q0 X\n" +
+                               "q0 eps X -> q0 eps\n" +
+                               "q0 b Z -> q1 eps\n";
+            pda.parse(growingPDA);
+            Automaton.ExecutionResult result = pda.execute("a",
+                Automaton.ExecutionOptions.NO_TRACE.withMaxConfigurations(1000));
+
+            assertFalse(result.isAccepted(), "Aborted search should be rejected");
+            assertTrue(result.getRuntimeMessages().stream()
+                .anyMatch(m -> m.getType() == Automaton.ValidationMessage.ValidationMessageType.WARNING),
+                "Aborted search should carry a warning");
+        }
+    }
+
+    @Nested
+    @DisplayName("Deterministic Execution Tests")
+    class DeterministicExecutionTests {
+
+        // Balanced parentheses without multi-character pushes: q0 means the stack is empty
+        private final String deterministicParenthesesPDA = "states: q0 q1\n" +
+                                                            "alphabet: ( )\n" +
+                                                            "stack_alphabet: B X\n" +
+                                                            "start: q0\n" +
+                                                            "stack_start: eps\n" +
+                                                            "finals: q0\n" +
+                                                            "transitions:\n" +
+                                                            "q0 ( eps -> q1 B\n" +
+                                                            "q1 ( eps -> q1 X\n" +
+                                                            "q1 ) X -> q1 eps\n" +
+                                                            "q1 ) B -> q0 eps\n";
+
+        @Test
+        @DisplayName("Should detect deterministic and nondeterministic machines")
+        void testDeterminismDetection() {
+            assertTrue(pda.parse(deterministicParenthesesPDA).isSuccess());
+            assertTrue(pda.isDeterministic());
+
+            String conflictingPDA = "states: q0 q1\n" +
+                                    "alphabet: a b\n" +
+                                    "stack_alphabet: X Z\n" +
+                                    "start: q0\n" +
+                                    "stack_start: Z\n" +
+                                    "finals: q1\n" +
+                                    "transitions:\n" +
+                                    "q0 eps eps -> q0 X\n" +
+                                    "q0 b Z -> q1 eps\n";
+            assertTrue(pda.parse(conflictingPDA).isSuccess());
+            assertFalse(pda.isDeterministic(), "Epsilon move competing with an input move is a conflict");
+        }
+
+        @ParameterizedTest
+        @CsvSource({
+            "'', true",
+            "(), true",
+            "(()()), true",
+            "((), false",
+            "()), false",
+            ")(, false"
+        })
+        @DisplayName("Deterministic run should decide balanced parentheses")
+        void testDeterministicRun(String input, boolean expected) {
+            pda.parse(deterministicParenthesesPDA);
+            assertEquals(expected, pda.execute(input).isAccepted(), "Input: " + input);
+        }
+
+        @Test
+        @DisplayName("Deterministic run should trace the single path")
+        void testDeterministicTrace() {
+            pda.parse(deterministicParenthesesPDA);
+
+            String accepted = pda.execute("(())").getTrace();
+            assertEquals("q0 -- ((, eps/B) --> q1 | q1 -- ((, eps/X) --> q1 | q1 -- (), X/eps) --> q1 | q1 -- (), B/eps) --> q0",
+                accepted);
+
+            String rejected = pda.execute("(()").getTrace();
+            assertEquals("q0 -- ((, eps/B) --> q1 | q1 -- ((, eps/X) --> q1 | q1 -- (), X/eps) --> q1", rejected);
+        }
+
+        @Test
+        @DisplayName("Epsilon loop should be rejected without exhausting the budget")
+        void testDeterministicEpsilonLoop() {
+            String loopingPDA = "states: q0 q1 q2\n" +
+                                "alphabet: a\n" +
+                                "stack_alphabet: Z\n" +
+                                "start: q0\n" +
+                                "stack_start: Z\n" +
+                                "finals: q2\n" +
+                                "transitions:\n" +
+                                "q0 eps Z -> q1 Z\n" +
+                                "q1 eps Z -> q0 Z\n";
+            pda.parse(loopingPDA);
+            assertTrue(pda.isDeterministic());
+
+            Automaton.ExecutionResult result = pda.execute("a");
+
+            assertFalse(result.isAccepted());
+            assertTrue(result.getRuntimeMessages().stream()
+                .noneMatch(m -> m.getType() == Automaton.ValidationMessage.ValidationMessageType.WARNING),
+                "Loop should be detected, not cut off by the configuration limit");
+        }
+    }
+
+    @Nested
+    @DisplayName("Search Strategy Tests")
+    class SearchStrategyTests {
+
+        // Even-length palindromes; guessing the middle makes it nondeterministic
+        private final String evenPalindromePDA = "states: q0 q1 q2\n" +
+                                                 "alphabet: a b\n" +
+                                                 "stack_alphabet: a b Z\n" +
+                                                 "start: q0\n" +
+                                                 "stack_start: Z\n" +
+                                                 "finals: q2\n" +
+                                                 "transitions:\n" +
+                                                 "q0 a eps -> q0 a\n" +
+                                                 "q0 b eps -> q0 b\n" +
+                                                 "q0 eps eps -> q1 eps\n" +
+                                                 "q1 a a -> q1 eps\n" +
+                                                 "q1 b b -> q1 eps\n" +
+                                                 "q1 eps Z -> q2 Z\n";
+
+        // Pushes X forever on epsilon; nothing it pushes can ever be popped
+        private final String pushOnlyLoopPDA = "states: q0 q1\n" +
+                                               "alphabet: a b\n" +
+                                               "stack_alphabet: X Z\n" +
+                                               "start: q0\n" +
+                                               "stack_start: Z\n" +
+                                               "finals: q1\n" +
+                                               "transitions:\n" +
+                                               "q0 eps eps -> q0 X\n" +
+                                               "q0 b Z -> q1 eps\n";
+
+        @ParameterizedTest
+        @CsvSource({
+            "BFS, '', true",
+            "BFS, abba, true",
+            "BFS, abab, false",
+            "BFS, aba, false",
+            "ITERATIVE_DEEPENING, '', true",
+            "ITERATIVE_DEEPENING, abba, true",
+            "ITERATIVE_DEEPENING, abab, false",
+            "ITERATIVE_DEEPENING, aba, false",
+            "BEST_FIRST, '', true",
+            "BEST_FIRST, abba, true",
+            "BEST_FIRST, abab, false",
+            "BEST_FIRST, aba, false",
+            "CYK, '', true",
+            "CYK, abba, true",
+            "CYK, abab, false",
+            "CYK, aba, false"
+        })
+        @DisplayName("All strategies should agree on acceptance")
+        void testStrategiesAgree(String strategy, String input, boolean expected) {
+            assertTrue(pda.parse(evenPalindromePDA).isSuccess());
+            assertFalse(pda.isDeterministic());
+            pda.setSearchStrategy(PDA.SearchStrategy.valueOf(strategy));
+
+            Automaton.ExecutionResult result = pda.execute(input);
+
+            assertEquals(expected, result.isAccepted(), strategy + " on '" + input + "'");
+            assertTrue(result.getRuntimeMessages().stream()
+                .anyMatch(m -> m.getMessage().startsWith("Search: " + strategy + ",")),
+                "Strategy and configuration count should be reported");
+        }
+
+        @Test
+        @DisplayName("Iterative deepening should trace the accepting path")
+        void testIterativeDeepeningTrace() {
+            pda.parse(evenPalindromePDA);
+            pda.setSearchStrategy(PDA.SearchStrategy.ITERATIVE_DEEPENING);
+
+            String trace = pda.execute("aa").getTrace();
+
+            assertEquals("q0 -- (a, eps/a) --> q0 | q0 -- (eps, eps/eps) --> q1 | " +
+                         "q1 -- (a, a/eps) --> q1 | q1 -- (eps, Z/Z) --> q2", trace);
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"BFS", "ITERATIVE_DEEPENING", "BEST_FIRST"})
+        @DisplayName("Push-only epsilon loop should be pruned to an exact verdict")
+        void testPushOnlyLoopIsPruned(String strategy) {
+            pda.parse(pushOnlyLoopPDA);
+            pda.setSearchStrategy(PDA.SearchStrategy.valueOf(strategy));
+
+            Automaton.ExecutionResult rejected = pda.execute("a");
+            assertFalse(rejected.isAccepted());
+            assertTrue(rejected.getRuntimeMessages().stream()
+                .noneMatch(m -> m.getType() == Automaton.ValidationMessage.ValidationMessageType.WARNING),
+                "Search should finish without running into the configuration limit");
+
+            assertTrue(pda.execute("b").isAccepted());
+        }
+
+        @Test
+        @DisplayName("Exhausted search should name the stack-growing epsilon cycle")
+        void testGrowingCycleIsReported() {
+            pda.parse(pushOnlyLoopPDA + "q0 eps X -> q0 eps\n");
+
+            Automaton.ExecutionResult result = pda.execute("a",
+                Automaton.ExecutionOptions.NO_TRACE.withMaxConfigurations(1000));
+
+            assertFalse(result.isAccepted());
+            assertTrue(result.getRuntimeMessages().stream()
+                .anyMatch(m -> m.getMessage().contains("Epsilon cycle through state 'q0'")));
+        }
+    }
+
+    @Nested
+    @DisplayName("Grammar Conversion Tests")
+    class GrammarConversionTests {
+
+        @Test
+        @DisplayName("Equivalent grammar should drop useless variables")
+        void testToCFG() {
+            String pda2 = "states: q0 q1 q2 dead\n" +
+                          "alphabet: a b\n" +
+                          "stack_alphabet: A Z\n" +
+                          "start: q0\n" +
+                          "stack_start: Z\n" +
+                          "finals: q2\n" +
+                          "transitions:\n" +
+                          "q0 a eps -> q0 A\n" +
+                          "q0 eps eps -> q1 eps\n" +
+                          "q1 b A -> q1 eps\n" +
+                          "q1 eps Z -> q2 eps\n" +
+                          "dead a A -> dead A\n";
+            assertTrue(pda.parse(pda2).isSuccess());
+
+            ContextFreeGrammar.CFG cfg = pda.toCFG();
+
+            assertNotNull(cfg);
+            assertFalse(cfg.getProductions().isEmpty());
+            assertTrue(cfg.getVariables().stream().noneMatch(v -> v.getName().contains("dead")),
+                "Variables of the unreachable state should be removed");
+            assertTrue(cfg.execute("aabb").isAccepted());
+            assertFalse(cfg.execute("aab").isAccepted());
+            assertSame(cfg, pda.toCFG(), "Grammar should be cached until the next parse");
+            assertEquals(ContextFreeGrammar.CFG.ExecutionMode.CYK, cfg.getExecutionMode());
+            assertTrue(cfg.execute("aabb").getRuntimeMessages().stream()
+                    .anyMatch(m -> m.getMessage().equals("Parser: CYK.")), "The CYK strategy should run CYK");
+        }
+
+        @Test
+        @DisplayName("CYK should give exact verdicts where the search runs out of configurations")
+        void testCykAvoidsConfigurationLimit() {
+            String growingPDA = "states: q0 q1\n" +
+                               "alphabet: a b\n" +
+                               "stack_alphabet: X Z\n" +
+                               "start: q0\n" +
+                               "stack_start: Z\n" +
+                               "finals: q1\n" +
+                               "transitions:\n" +
+                               "q0 eps eps -> q0 X\n" +
+                               "q0 eps X -> q0 eps\n" +
+                               "q0 b Z -> q1 eps\n";
+            pda.parse(growingPDA);
+            pda.setSearchStrategy(PDA.SearchStrategy.CYK);
+
+            Automaton.ExecutionResult rejected = pda.execute("ab");
+            assertFalse(rejected.isAccepted());
+            assertTrue(rejected.getRuntimeMessages().stream()
+                .noneMatch(m -> m.getType() == Automaton.ValidationMessage.ValidationMessageType.WARNING));
+            assertTrue(pda.execute("b").isAccepted());
+            assertFalse(pda.execute("c").isAccepted(), "Symbols outside the alphabet are rejected");
+        }
+
+        @Test
+        @DisplayName("PDA accepting nothing should convert to an empty grammar")
+        void testEmptyLanguage() {
+            String emptyPDA = "states: q0 q1\n" +
+                              "alphabet: a\n" +
+                              "stack_alphabet: Z\n" +
+                              "start: q0\n" +
+                              "stack_start: Z\n" +
+                              "finals: q1\n" +
+                              "transitions:\n" +
+                              "q0 a Z -> q0 Z\n";
+            pda.parse(emptyPDA);
+            pda.setSearchStrategy(PDA.SearchStrategy.CYK);
+
+            assertTrue(pda.toCFG().getProductions().isEmpty());
+            assertFalse(pda.execute("").isAccepted());
+            assertFalse(pda.execute("aa").isAccepted());
+        }
     }
 
     @Nested
@@ -471,5 +768,29 @@ public class PDAExecuteTest {
             assertTrue(result.isAccepted(), "500 a's followed by 500 b's should be accepted");
             assertTrue((endTime - startTime) < 1000, "Execution should complete within 1 second");
         }
+
+        @Test
+        @DisplayName("Configuration limit should be reached quickly on a growing stack")
+        void testDeepStackExpansion() {
+            String growingPDA = "states: q0 q1\n" +
+                               "alphabet: a b\n" +
+                               "stack_alphabet: X Z\n" +
+                               "start: q0\n" +
+                               "stack_start: Z\n" +
+                               "finals: q1\n" +
+                               "transitions:\n" +
+                               "q0 eps eps -> q0 X\n" +
+                               "q0 eps X -> q0 eps\n" +
+                               "q0 b Z -> q1 eps\n";
+            pda.parse(growingPDA);
+
+            long startTime = System.currentTimeMillis();
+            Automaton.ExecutionResult result = pda.execute("a",
+                Automaton.ExecutionOptions.NO_TRACE.withMaxConfigurations(PDA.DEFAULT_MAX_CONFIGURATIONS));
+            long endTime = System.currentTimeMillis();
+
+            assertFalse(result.isAccepted(), "Aborted search should be rejected");
+            assertTrue((endTime - startTime) < 2000, "Stack depth should not slow down expansion");
+        }
     }
 }
\ No newline at end of file
@@ -1,6 +1,11 @@
 package TuringMachine;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -16,6 +21,7 @@ import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import common.Automaton;
+import common.CancellationToken;
 
 /**
  * Comprehensive JUnit 5 test class for Turing Machine execution functionality.
@@ -238,6 +244,44 @@ public class TMExecuteTest {
                 // Should be "110" (6 in binary)
             }
         }
+
+        @Test
+        @DisplayName("Tape should grow with blanks and stay bounded on the left")
+        void testTapeGrowthAndLeftBound() {
+            Tape tape = new Tape();
+            tape.initialize("ab");
+            tape.move(Direction.LEFT);
+            assertEquals(0, tape.getHeadPosition(), "Head should not move left of the first cell");
+
+            for (int i = 0; i < 100; i++) {
+                tape.move(Direction.RIGHT);
+            }
+            assertEquals('_', tape.read());
+            tape.write('x');
+            assertEquals(101, tape.size());
+            assertEquals("ab" + new String(new char[98]).replace('\0', '_') + "x", tape.getTapeContents());
+
+            tape.initialize("c");
+            assertEquals("c", tape.getTapeContents(), "Re-initializing should drop the old contents");
+        }
+
+        @Test
+        @DisplayName("Window should show only the cells around the head")
+        void testTapeWindow() {
+            Tape tape = new Tape();
+            tape.initialize("abcdefgh");
+            assertEquals("[a]bc...", tape.getWindow(2));
+
+            for (int i = 0; i < 4; i++) {
+                tape.move(Direction.RIGHT);
+            }
+            assertEquals("...cd[e]fg...", tape.getWindow(2));
+            assertEquals("abcd[e]fgh", tape.getWindow(10));
+
+            StringBuilder full = new StringBuilder();
+            tape.appendTapeTo(full);
+            assertEquals(full.toString(), tape.getWindow(10), "A window covering the tape should match the full view");
+        }
     }
 
     @Nested
@@ -560,4 +604,354 @@ public class TMExecuteTest {
             assertTrue((endTime - startTime) < 2000, "Complex computation should complete within 2 seconds");
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Execution Budget Tests")
+    class ExecutionBudgetTests {
+
+        // Moves right forever over blanks and never halts
+        private final String loopingTM = "states: q0 q_accept q_reject\n" +
+                "input_alphabet: 0 1\n" +
+                "tape_alphabet: 0 1 _\n" +
+                "start: q0\n" +
+                "accept: q_accept\n" +
+                "reject: q_reject\n" +
+                "transitions:\n" +
+                "q0 0 -> q0 0 R\n" +
+                "q0 1 -> q0 1 R\n" +
+                "q0 _ -> q0 _ R\n";
+
+        private TM parseLooping() {
+            tm = new TM(null, null, null, null, null, null, null);
+            return (TM) tm.parse(loopingTM).getAutomaton();
+        }
+
+        private boolean hasWarning(Automaton.ExecutionResult result) {
+            return result.getRuntimeMessages().stream()
+                    .anyMatch(m -> m.getType() == Automaton.ValidationMessage.ValidationMessageType.WARNING);
+        }
+
+        @Test
+        @DisplayName("Should stop a non-halting machine at the step limit")
+        void testStepLimit() {
+            TM looping = parseLooping();
+            Automaton.ExecutionResult result = looping.execute("01",
+                    Automaton.ExecutionOptions.NO_TRACE.withMaxSteps(10_000));
+
+            assertFalse(result.isAccepted(), "Stopped run should be rejected");
+            assertTrue(hasWarning(result), "Stopped run should carry a warning");
+        }
+
+        @Test
+        @DisplayName("Should stop a non-halting machine at the deadline")
+        void testTimeout() {
+            TM looping = parseLooping();
+            long startTime = System.currentTimeMillis();
+            Automaton.ExecutionResult result = looping.execute("01",
+                    Automaton.ExecutionOptions.NO_TRACE.withTimeout(100));
+            long elapsed = System.currentTimeMillis() - startTime;
+
+            assertFalse(result.isAccepted(), "Timed-out run should be rejected");
+            assertTrue(hasWarning(result), "Timed-out run should carry a warning");
+            assertTrue(elapsed < 2000, "Run should stop shortly after the deadline");
+        }
+
+        @Test
+        @DisplayName("Should stop when the cancellation token is cancelled")
+        void testCancellation() {
+            TM looping = parseLooping();
+            CancellationToken token = new CancellationToken();
+            token.cancel();
+            Automaton.ExecutionResult result = looping.execute("01",
+                    Automaton.ExecutionOptions.NO_TRACE.withCancellationToken(token));
+
+            assertFalse(result.isAccepted(), "Cancelled run should be rejected");
+            assertTrue(hasWarning(result), "Cancelled run should carry a warning");
+        }
+
+        @Test
+        @DisplayName("Should detect a machine that revisits a configuration")
+        void testCycleDetection() {
+            // Walks back and forth between the two input cells
+            String zigZagTM = "states: q0 q1 q_accept q_reject\n" +
+                    "input_alphabet: 0 1\n" +
+                    "tape_alphabet: 0 1 _\n" +
+                    "start: q0\n" +
+                    "accept: q_accept\n" +
+                    "reject: q_reject\n" +
+                    "transitions:\n" +
+                    "q0 0 -> q1 0 R\n" +
+                    "q1 1 -> q0 1 L\n";
+            tm = new TM(null, null, null, null, null, null, null);
+            TM zigZag = (TM) tm.parse(zigZagTM).getAutomaton();
+            Automaton.ExecutionResult result = zigZag.execute("01", Automaton.ExecutionOptions.NO_TRACE);
+
+            assertFalse(result.isAccepted(), "Looping run should be rejected");
+            assertTrue(hasWarning(result), "Looping run should carry a warning");
+            String message = result.getRuntimeMessages().get(0).getMessage();
+            assertTrue(message.startsWith("Cycle detected at step 4: the configuration repeats the one after step 2"), message);
+        }
+
+        @Test
+        @DisplayName("Should detect a loop against the left end of the tape")
+        void testCycleAtLeftEnd() {
+            tm = new TM(null, null, null, null, null, null, null);
+            TM stuck = (TM) tm.parse(binaryIncrementTM).getAutomaton();
+            // "0" becomes "1" and the head then keeps moving left from the first cell
+            Automaton.ExecutionResult result = stuck.execute("0", Automaton.ExecutionOptions.SUMMARY_TRACE);
+
+            assertFalse(result.isAccepted(), "Looping run should be rejected");
+            assertTrue(result.getRuntimeMessages().get(0).getMessage().startsWith("Cycle detected"));
+        }
+
+        @Test
+        @DisplayName("Should apply the default step limit to machines using new cells forever")
+        void testDefaultStepLimit() {
+            TM looping = parseLooping();
+            Automaton.ExecutionResult result = looping.execute("01", Automaton.ExecutionOptions.NO_TRACE);
+
+            assertFalse(result.isAccepted(), "Stopped run should be rejected");
+            assertEquals("Execution stopped after " + TM.DEFAULT_MAX_STEPS + " steps (step limit reached).",
+                    result.getRuntimeMessages().get(0).getMessage());
+        }
+
+        @Test
+        @DisplayName("Should accept long halting runs under a raised step limit")
+        void testRaisedStepLimit() {
+            String scanTM = "states: q0 q_accept q_reject\n" +
+                    "input_alphabet: 0\n" +
+                    "tape_alphabet: 0 _\n" +
+                    "start: q0\n" +
+                    "accept: q_accept\n" +
+                    "reject: q_reject\n" +
+                    "transitions:\n" +
+                    "q0 0 -> q0 0 R\n" +
+                    "q0 _ -> q_accept _ R\n";
+            tm = new TM(null, null, null, null, null, null, null);
+            TM scan = (TM) tm.parse(scanTM).getAutomaton();
+            char[] zeros = new char[1_500_000];
+            Arrays.fill(zeros, '0');
+            String input = new String(zeros);
+
+            assertFalse(scan.execute(input, Automaton.ExecutionOptions.NO_TRACE).isAccepted(),
+                    "1,500,001 steps should exceed the default limit");
+            Automaton.ExecutionResult result = scan.execute(input, Automaton.ExecutionOptions.NO_TRACE.withMaxSteps(2_000_000));
+            assertTrue(result.isAccepted(), "A machine halting after 1,500,001 steps should be accepted under a 2,000,000 step limit");
+            assertFalse(hasWarning(result), "Halting run should not carry a warning");
+        }
+
+        @Test
+        @DisplayName("Should not affect machines that halt within the budget")
+        void testHaltingWithinBudget() {
+            tm = new TM(null, null, null, null, null, null, null);
+            tm = (TM) tm.parse(simpleTM).getAutomaton();
+            Automaton.ExecutionResult result = tm.execute("0011",
+                    Automaton.ExecutionOptions.FULL_TRACE.withMaxSteps(100));
+
+            assertTrue(result.isAccepted(), "Halting machine should still be accepted");
+            assertFalse(hasWarning(result), "Halting run should not carry a warning");
+        }
+    }
+
+    @Nested
+    @DisplayName("Accelerated Execution Tests")
+    class AcceleratedExecutionTests {
+
+        // Accepts 0^n 1^n by crossing off one 0 and one 1 per pass
+        private final String equalCountTM = "states: q0 q1 q2 q3 q_accept q_reject\n" +
+                "input_alphabet: 0 1\n" +
+                "tape_alphabet: 0 1 X Y _\n" +
+                "start: q0\n" +
+                "accept: q_accept\n" +
+                "reject: q_reject\n" +
+                "transitions:\n" +
+                "q0 0 -> q1 X R\n" +
+                "q0 Y -> q3 Y R\n" +
+                "q0 _ -> q_accept _ R\n" +
+                "q1 0 -> q1 0 R\n" +
+                "q1 Y -> q1 Y R\n" +
+                "q1 1 -> q2 Y L\n" +
+                "q2 0 -> q2 0 L\n" +
+                "q2 Y -> q2 Y L\n" +
+                "q2 X -> q0 X R\n" +
+                "q3 Y -> q3 Y R\n" +
+                "q3 _ -> q_accept _ R\n";
+
+        private TM parse(String definition, TM.ExecutionMode mode) {
+            tm = new TM(null, null, null, null, null, null, null);
+            TM machine = (TM) tm.parse(definition).getAutomaton();
+            machine.setExecutionMode(mode);
+            return machine;
+        }
+
+        private String repeat(char c, int count) {
+            return new String(new char[count]).replace('\0', c);
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"", "01", "0011", "0101", "00111", "000111", "1", "0"})
+        @DisplayName("Should give the same result and tape as the standard engine")
+        void testSameResultAsStandard(String input) {
+            TM standard = parse(equalCountTM, TM.ExecutionMode.STANDARD);
+            TM accelerated = parse(equalCountTM, TM.ExecutionMode.ACCELERATED);
+
+            Automaton.ExecutionResult expected = standard.execute(input, Automaton.ExecutionOptions.SUMMARY_TRACE);
+            Automaton.ExecutionResult actual = accelerated.execute(input, Automaton.ExecutionOptions.SUMMARY_TRACE);
+
+            assertEquals(expected.isAccepted(), actual.isAccepted());
+            assertEquals(expected.getTrace(), actual.getTrace(), "Halting configuration should match");
+            assertEquals(standard.getTape().getTapeContents(), accelerated.getTape().getTapeContents());
+        }
+
+        @Test
+        @DisplayName("Should report the steps skipped by macro-steps")
+        void testSkippedStepsReported() {
+            TM accelerated = parse(equalCountTM, TM.ExecutionMode.ACCELERATED);
+            String input = repeat('0', 200) + repeat('1', 200);
+
+            Automaton.ExecutionResult result = accelerated.execute(input, Automaton.ExecutionOptions.NO_TRACE);
+
+            assertTrue(result.isAccepted());
+            List<Automaton.ValidationMessage> messages = result.getRuntimeMessages();
+            assertEquals(1, messages.size());
+            assertEquals(Automaton.ValidationMessage.ValidationMessageType.INFO, messages.get(0).getType());
+            assertTrue(messages.get(0).getMessage().matches("Accelerated: \\d+ of 80401 steps skipped.*"),
+                    messages.get(0).getMessage());
+        }
+
+        @Test
+        @DisplayName("Should stop at exactly the same step limit as the standard engine")
+        void testSameStepLimit() {
+            String input = repeat('0', 300) + repeat('1', 300);
+            Automaton.ExecutionOptions options = Automaton.ExecutionOptions.NO_TRACE.withMaxSteps(5000);
+
+            Automaton.ExecutionResult expected = parse(equalCountTM, TM.ExecutionMode.STANDARD).execute(input, options);
+            Automaton.ExecutionResult actual = parse(equalCountTM, TM.ExecutionMode.ACCELERATED).execute(input, options);
+
+            assertFalse(actual.isAccepted());
+            assertEquals(expected.getRuntimeMessages().get(0).getMessage(), actual.getRuntimeMessages().get(0).getMessage());
+        }
+
+        @Test
+        @DisplayName("Should cross blanks to the step limit in one macro-step")
+        void testEndlessBlankRun() {
+            String loopingTM = "states: q0 q_accept q_reject\n" +
+                    "input_alphabet: 0 1\n" +
+                    "tape_alphabet: 0 1 _\n" +
+                    "start: q0\n" +
+                    "accept: q_accept\n" +
+                    "reject: q_reject\n" +
+                    "transitions:\n" +
+                    "q0 0 -> q0 0 R\n" +
+                    "q0 1 -> q0 1 R\n" +
+                    "q0 _ -> q0 1 R\n";
+            TM accelerated = parse(loopingTM, TM.ExecutionMode.ACCELERATED);
+
+            Automaton.ExecutionResult result = accelerated.execute("01",
+                    Automaton.ExecutionOptions.NO_TRACE.withMaxSteps(1_000_000_000L));
+
+            assertFalse(result.isAccepted());
+            assertEquals("Execution stopped after 1000000000 steps (step limit reached).",
+                    result.getRuntimeMessages().get(0).getMessage());
+        }
+
+        @Test
+        @DisplayName("Should stop at the last tape cell instead of overflowing the head")
+        void testTapeEnd() {
+            String blankWalkTM = "states: q0 q_accept q_reject\n" +
+                    "input_alphabet: 0\n" +
+                    "tape_alphabet: 0 _\n" +
+                    "start: q0\n" +
+                    "accept: q_accept\n" +
+                    "reject: q_reject\n" +
+                    "transitions:\n" +
+                    "q0 _ -> q0 _ R\n";
+            TM accelerated = parse(blankWalkTM, TM.ExecutionMode.ACCELERATED);
+
+            Automaton.ExecutionResult result = accelerated.execute("",
+                    Automaton.ExecutionOptions.NO_TRACE.withMaxSteps(Long.MAX_VALUE));
+
+            assertFalse(result.isAccepted());
+            Automaton.ValidationMessage message = result.getRuntimeMessages().get(0);
+            assertEquals(Automaton.ValidationMessage.ValidationMessageType.WARNING, message.getType());
+            assertEquals("Execution stopped at step " + ((long) TM.LAST_CELL + 1) + ": the head would move past the last tape cell ("
+                    + TM.LAST_CELL + ") in state q0.", message.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should detect loops at the left end of the tape")
+        void testCycleAtLeftEnd() {
+            TM accelerated = parse(binaryIncrementTM, TM.ExecutionMode.ACCELERATED);
+
+            Automaton.ExecutionResult result = accelerated.execute("0", Automaton.ExecutionOptions.NO_TRACE);
+
+            assertFalse(result.isAccepted());
+            assertTrue(result.getRuntimeMessages().get(0).getMessage().startsWith("Cycle detected"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Concurrent Execution Tests")
+    class ConcurrentExecutionTests {
+
+        @Test
+        @DisplayName("Should give correct results when one machine runs on many threads")
+        void testParallelExecutions() throws Exception {
+            tm = new TM(null, null, null, null, null, null, null);
+            TM shared = (TM) tm.parse(simpleTM).getAutomaton();
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<Boolean>> futures = new ArrayList<>();
+                for (int i = 0; i < 2000; i++) {
+                    String input = Integer.toBinaryString(i);
+                    boolean evenZeros = input.replace("1", "").length() % 2 == 0;
+                    futures.add(pool.submit(() ->
+                            shared.execute(input, Automaton.ExecutionOptions.NO_TRACE).isAccepted() == evenZeros));
+                }
+                for (Future<Boolean> future : futures) {
+                    assertTrue(future.get(), "Every concurrent run should match the sequential result");
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        @Test
+        @DisplayName("Stepping should use its own run, unaffected by executions")
+        void testInteractiveRunIsSeparate() {
+            tm = new TM(null, null, null, null, null, null, null);
+            TM machine = (TM) tm.parse(simpleTM).getAutomaton();
+
+            machine.reset("00");
+            machine.step();
+            assertEquals("q1", machine.getCurrentState().getName());
+
+            machine.execute("0000");
+            assertEquals("q1", machine.getCurrentState().getName(), "execute should not move the interactive run");
+            assertEquals(1, machine.getTape().getHeadPosition());
+
+            machine.step();
+            machine.step();
+            assertTrue(machine.getCurrentState().isAccept());
+        }
+
+        @Test
+        @DisplayName("Runs started separately should not share a tape")
+        void testIndependentRuns() {
+            tm = new TM(null, null, null, null, null, null, null);
+            TM machine = (TM) tm.parse(simpleTM).getAutomaton();
+
+            TMRun first = machine.start("0101");
+            TMRun second = machine.start("0");
+            while (first.step()) {
+                // run to completion
+            }
+
+            assertTrue(first.isAccepted());
+            assertEquals(5, first.getSteps());
+            assertEquals("0101_", first.getTape().getTapeContents());
+            assertEquals("0", second.getTape().getTapeContents());
+            assertEquals(0, second.getSteps());
+        }
+    }
+}
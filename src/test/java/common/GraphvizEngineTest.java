@@ -145,4 +145,23 @@ class GraphvizEngineTest {
 
         System.out.println("✅ Error case handled correctly");
     }
+
+    @Test
+    @DisplayName("Render Cache - Unchanged DOT Is Rendered Once")
+    void testRenderCache() throws Exception {
+        GraphvizRenderer.clearCache();
+        String dot = "digraph { rankdir=LR; q0 -> q1 [label=\"a\"]; }";
+
+        String first = GraphvizRenderer.renderSvg(dot);
+        assertEquals(1, GraphvizRenderer.getCacheSize(), "First render should be cached");
+
+        String second = GraphvizRenderer.renderSvg(dot);
+        assertEquals(first, second, "Cached render should match the original");
+        assertEquals(1, GraphvizRenderer.getCacheSize(), "Same DOT should not add a cache entry");
+
+        GraphvizRenderer.renderPng(dot, 200);
+        assertEquals(2, GraphvizRenderer.getCacheSize(), "Other formats are cached separately");
+
+        System.out.println("✅ Render cache working");
+    }
 }
@@ -0,0 +1,128 @@
+package common;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the compact and streaming test file loaders.
+ */
+public class TestFileParserTest {
+
+    private File writeTestFile(String content) throws IOException {
+        File file = File.createTempFile("parser", ".test");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    @Test
+    void testLoadTestSuite() throws IOException {
+        File file = writeTestFile("#min_points=2\r\n" +
+                                  "#max_points=8\r\n" +
+                                  "# a comment\r\n" +
+                                  "\r\n" +
+                                  "  ab , 1 \r\n" +
+                                  ",0\r\n" +
+                                  "a\t,0\n" +
+                                  "çü,1");
+
+        TestSuite suite = TestFileParser.loadTestSuite(file.getAbsolutePath());
+
+        assertEquals(4, suite.size());
+        assertEquals(2, suite.getMinPoints());
+        assertEquals(8, suite.getMaxPoints());
+        assertEquals("ab", suite.getInput(0));
+        assertTrue(suite.shouldAccept(0));
+        assertEquals("", suite.getInput(1));
+        assertFalse(suite.shouldAccept(1));
+        assertEquals("a", suite.getInput(2), "Whitespace around the input is trimmed");
+        assertEquals("çü", suite.getInput(3));
+        assertTrue(suite.shouldAccept(3));
+    }
+
+    @Test
+    void testLoadTestSuiteMatchesParseTestFile() throws IOException {
+        StringBuilder content = new StringBuilder("#timeout=3\n");
+        for (int i = 0; i < 5000; i++) {
+            content.append(Integer.toBinaryString(i)).append(',').append(i % 3 == 0 ? 1 : 0).append('\n');
+        }
+        File file = writeTestFile(content.toString());
+
+        TestSuite suite = TestFileParser.loadTestSuite(file.getAbsolutePath());
+        List<TestCase> testCases = TestFileParser.parseTestFile(file.getAbsolutePath()).getTestCases();
+
+        assertEquals(5000, suite.size());
+        assertEquals(Integer.valueOf(3), suite.getTimeout());
+        assertEquals(testCases.size(), suite.size());
+        for (int i = 0; i < suite.size(); i++) {
+            assertEquals(testCases.get(i).getInput(), suite.getInput(i));
+            assertEquals(testCases.get(i).shouldAccept(), suite.shouldAccept(i));
+        }
+    }
+
+    @Test
+    void testStreamYieldsCasesInOrder() throws IOException {
+        File file = writeTestFile("0,1\n#max_rules=5\n1,0\n\n01,1\n#max_transitions=7\n");
+
+        List<String> inputs = new ArrayList<>();
+        try (TestFileParser.TestCaseStream stream = TestFileParser.openTestStream(file.getAbsolutePath())) {
+            assertEquals(3, stream.countTestCases());
+            while (stream.hasNext()) {
+                inputs.add(stream.next().getInput());
+            }
+            assertEquals(Integer.valueOf(5), stream.getMaxRules());
+            assertEquals(Integer.valueOf(7), stream.getMaxTransitions());
+        }
+
+        assertEquals(3, inputs.size());
+        assertEquals("0", inputs.get(0));
+        assertEquals("1", inputs.get(1));
+        assertEquals("01", inputs.get(2));
+    }
+
+    @Test
+    void testMaxStepsHeader() throws IOException {
+        File file = writeTestFile("#timeout=10\n#max_steps=5000000000\n0,1\n");
+
+        TestSuite suite = TestFileParser.loadTestSuite(file.getAbsolutePath());
+
+        assertTrue(suite.hasMaxSteps());
+        assertEquals(Long.valueOf(5_000_000_000L), suite.getMaxSteps());
+        assertFalse(TestFileParser.loadTestSuite(writeTestFile("0,1\n").getAbsolutePath()).hasMaxSteps());
+        File zero = writeTestFile("#max_steps=0\n0,1\n");
+        assertThrows(IllegalArgumentException.class, () -> TestFileParser.loadTestSuite(zero.getAbsolutePath()));
+    }
+
+    @Test
+    void testInvalidLinesReportLineNumber() throws IOException {
+        File missingComma = writeTestFile("0,1\n\nabc\n");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> TestFileParser.loadTestSuite(missingComma.getAbsolutePath()));
+        assertTrue(e.getMessage().contains("line 3"), e.getMessage());
+
+        File badResult = writeTestFile("0,1\n1,yes\n");
+        e = assertThrows(IllegalArgumentException.class,
+                () -> TestFileParser.loadTestSuite(badResult.getAbsolutePath()));
+        assertTrue(e.getMessage().contains("line 2") && e.getMessage().contains("'yes'"), e.getMessage());
+    }
+
+    @Test
+    void testEmptyFile() throws IOException {
+        File file = writeTestFile("");
+
+        TestSuite suite = TestFileParser.loadTestSuite(file.getAbsolutePath());
+
+        assertTrue(suite.isEmpty());
+        assertEquals(4, suite.getMinPoints());
+        assertEquals(10, suite.getMaxPoints());
+    }
+}
@@ -80,4 +80,170 @@ public class TestRunnerTest {
         // but the method should not crash
         assertNotNull(result.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testOnlyFailingTestsCarryTrace() {
+        // DFA over {0,1} accepting strings that start with '0'; the file expects "00" accepted
+        // and "1" rejected (both pass) but also expects "" to be rejected and "0" to be accepted.
+        DeterministicFiniteAutomaton.DFA dfa = new DeterministicFiniteAutomaton.DFA();
+        Automaton.ParseResult parse = dfa.parse("Start: q0\nFinals: q1\nAlphabet: 0 1\nStates: q0 q1 q2\n" +
+                "Transitions:\nq0 -> q1 (0)\nq0 -> q2 (1)\nq1 -> q1 (0 1)\nq2 -> q2 (0 1)\n");
+        assertTrue(parse.isSuccess(), "DFA should parse");
+
+        TestRunner.TestResult result = TestRunner.runTests(dfa, tempTestFile.getAbsolutePath());
+
+        assertEquals(4, result.getDetailedResults().size());
+        for (TestRunner.TestCaseResult caseResult : result.getDetailedResults()) {
+            assertTrue(caseResult.isPassed(), "All cases should pass: " + caseResult.getInput());
+            assertEquals("", caseResult.getTrace(), "Passing cases should not build a trace");
+        }
+
+        // Flip acceptance: every case now fails and must carry the full trace
+        dfa.parse("Start: q0\nFinals: q0 q2\nAlphabet: 0 1\nStates: q0 q1 q2\n" +
+                "Transitions:\nq0 -> q1 (0)\nq0 -> q2 (1)\nq1 -> q1 (0 1)\nq2 -> q2 (0 1)\n");
+        result = TestRunner.runTests(dfa, tempTestFile.getAbsolutePath());
+        for (TestRunner.TestCaseResult caseResult : result.getDetailedResults()) {
+            assertFalse(caseResult.isPassed(), "All cases should fail: " + caseResult.getInput());
+            assertTrue(caseResult.getTrace().startsWith("Initial state: q0"),
+                    "Failing cases should carry the full trace");
+        }
+    }
+
+    @Test
+    void testParallelRunMatchesSequentialRun() throws IOException {
+        // Accepts strings whose last symbol is '0'; expectations are wrong for every 7th case
+        DeterministicFiniteAutomaton.DFA dfa = new DeterministicFiniteAutomaton.DFA();
+        assertTrue(dfa.parse("Start: q0\nFinals: q1\nAlphabet: 0 1\nStates: q0 q1\n" +
+                "Transitions:\nq0 -> q1 (0)\nq0 -> q0 (1)\nq1 -> q1 (0)\nq1 -> q0 (1)\n").isSuccess());
+
+        File largeFile = File.createTempFile("parallel", ".test");
+        largeFile.deleteOnExit();
+        try (FileWriter writer = new FileWriter(largeFile)) {
+            for (int i = 0; i < 3 * TestRunner.PARALLEL_MIN_TESTS; i++) {
+                String input = Integer.toBinaryString(i);
+                boolean accept = input.endsWith("0") != (i % 7 == 0);
+                writer.write(input + "," + (accept ? 1 : 0) + "\n");
+            }
+        }
+
+        TestRunner.TestResult sequential = TestRunner.runTests(dfa, largeFile.getAbsolutePath());
+        TestRunner.TestResult parallel;
+        try {
+            TestRunner.setParallelism(4);
+            parallel = TestRunner.runTests(dfa, largeFile.getAbsolutePath());
+        } finally {
+            TestRunner.setParallelism(1);
+        }
+
+        assertEquals(sequential.getPassedTests(), parallel.getPassedTests());
+        assertEquals(sequential.getTruePositives(), parallel.getTruePositives());
+        assertEquals(sequential.getTrueNegatives(), parallel.getTrueNegatives());
+        assertEquals(sequential.getFalsePositives(), parallel.getFalsePositives());
+        assertEquals(sequential.getFalseNegatives(), parallel.getFalseNegatives());
+        assertEquals(sequential.getFailures(), parallel.getFailures(), "Failures should keep their order");
+        assertEquals(sequential.getDetailedResults().size(), parallel.getDetailedResults().size());
+        for (int i = 0; i < sequential.getDetailedResults().size(); i++) {
+            assertEquals(sequential.getDetailedResults().get(i).getInput(), parallel.getDetailedResults().get(i).getInput(),
+                    "Detailed results should keep their order");
+        }
+    }
+
+    @Test
+    void testParallelRunWithTuringMachine() throws IOException {
+        // Accepts strings over {a, b} that start with 'a'
+        TuringMachine.TM tm = new TuringMachine.TM();
+        Automaton.ParseResult parse = tm.parse("start: q0\naccept: q_accept\nreject: q_reject\n" +
+                "tape_alphabet: a b _\ninput_alphabet: a b\nstates: q0 q1 q_accept q_reject\n\n" +
+                "transitions:\nq0 a -> q1 a R\nq0 b -> q_reject b R\nq0 _ -> q_reject _ R\n" +
+                "q1 a -> q1 a R\nq1 b -> q1 b R\nq1 _ -> q_accept _ R\n");
+        assertTrue(parse.isSuccess(), "TM should parse");
+        Automaton machine = parse.getAutomaton();
+
+        File largeFile = File.createTempFile("parallel_tm", ".test");
+        largeFile.deleteOnExit();
+        int cases = 2 * TestRunner.PARALLEL_MIN_TESTS;
+        try (FileWriter writer = new FileWriter(largeFile)) {
+            for (int i = 0; i < cases; i++) {
+                StringBuilder input = new StringBuilder(i % 2 == 0 ? "b" : "a");
+                for (int j = 0; j < 200 + i % 100; j++) {
+                    input.append((i + j) % 3 == 0 ? 'a' : 'b');
+                }
+                String padded = input.toString();
+                writer.write(padded + "," + (padded.startsWith("a") ? 1 : 0) + "\n");
+            }
+        }
+
+        TestRunner.TestResult result;
+        try {
+            TestRunner.setParallelism(4);
+            result = TestRunner.runTests(machine, largeFile.getAbsolutePath(), 60_000);
+        } finally {
+            TestRunner.setParallelism(1);
+        }
+        assertEquals(cases, result.getPassedTests(), "Per-worker TM copies should not share a tape: " + result.getFailures());
+    }
+
+    @Test
+    void testMaxStepsHeaderLimitsEachInput() throws IOException {
+        TestRunner.TestResult result = runRunawayTM("#max_steps=10000\n");
+
+        assertEquals(3, result.getTotalTests());
+        assertEquals(2, result.getPassedTests(), "Only the looping input expected to accept should fail");
+        assertEquals(0, result.getTimeoutCount(), "The step limit should stop each input before the suite times out");
+    }
+
+    @Test
+    void testDefaultStepLimitKeepsOtherResults() throws IOException {
+        TestRunner.TestResult result = runRunawayTM("");
+
+        assertEquals(3, result.getTotalTests());
+        assertEquals(2, result.getPassedTests(), "The default step limit should reject only the looping inputs");
+        assertEquals(3, result.getDetailedResults().size(), "Every input should have its own result");
+    }
+
+    @Test
+    void testDeadlineStopIsNotARejection() throws IOException {
+        // The runaway input is expected to be rejected, so recording the deadline stop as a rejection would pass it
+        TuringMachine.TM tm = new TuringMachine.TM();
+        Automaton.ParseResult parse = tm.parse("start: q0\naccept: q_accept\nreject: q_reject\n" +
+                "tape_alphabet: a b _\ninput_alphabet: a b\nstates: q0 q1 q_accept q_reject\n\n" +
+                "transitions:\nq0 a -> q_accept a R\nq0 b -> q1 b R\nq1 _ -> q1 _ R\n");
+        assertTrue(parse.isSuccess(), "TM should parse");
+
+        File deadlineFile = File.createTempFile("deadline", ".test");
+        deadlineFile.deleteOnExit();
+        try (FileWriter writer = new FileWriter(deadlineFile)) {
+            writer.write("#max_steps=1000000000000\n");
+            writer.write("b,0\n");
+        }
+
+        TestRunner.TestResult result = TestRunner.runTests(parse.getAutomaton(), deadlineFile.getAbsolutePath(), 200);
+
+        assertEquals(0, result.getPassedTests(), "A run stopped by the deadline should not count as a rejection");
+        assertTrue(result.getTimeoutCount() > 0);
+        assertTrue(result.getDetailedResults().get(0).isTimedOut());
+    }
+
+    /**
+     * Runs a TM that accepts on 'a' and, on 'b', moves right over blanks forever without repeating a
+     * configuration, against a three-case test file starting with the given header lines.
+     */
+    private TestRunner.TestResult runRunawayTM(String header) throws IOException {
+        TuringMachine.TM tm = new TuringMachine.TM();
+        Automaton.ParseResult parse = tm.parse("start: q0\naccept: q_accept\nreject: q_reject\n" +
+                "tape_alphabet: a b _\ninput_alphabet: a b\nstates: q0 q1 q_accept q_reject\n\n" +
+                "transitions:\nq0 a -> q_accept a R\nq0 b -> q1 b R\nq1 _ -> q1 _ R\n");
+        assertTrue(parse.isSuccess(), "TM should parse");
+
+        File stepFile = File.createTempFile("max_steps", ".test");
+        stepFile.deleteOnExit();
+        try (FileWriter writer = new FileWriter(stepFile)) {
+            writer.write(header);
+            writer.write("b,0\n");
+            writer.write("a,1\n");
+            writer.write("b,1\n");
+        }
+
+        return TestRunner.runTests(parse.getAutomaton(), stepFile.getAbsolutePath(), 60_000);
+    }
+}
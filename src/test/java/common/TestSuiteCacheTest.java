@@ -0,0 +1,131 @@
+package common;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import DeterministicFiniteAutomaton.DFA;
+
+/**
+ * Test class for the shared test suite cache.
+ */
+public class TestSuiteCacheTest {
+
+    private File tempTestFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        TestSuiteCache.clear();
+        tempTestFile = File.createTempFile("cache", ".test");
+        tempTestFile.deleteOnExit();
+        try (FileWriter writer = new FileWriter(tempTestFile)) {
+            writer.write("#max_points=12\n");
+            writer.write("0,1\n");
+            writer.write("1,0\n");
+        }
+    }
+
+    @Test
+    void testSuiteIsLoadedOnce() throws IOException {
+        TestSuite first = TestSuiteCache.get(tempTestFile.getAbsolutePath());
+        TestSuite second = TestSuiteCache.get(tempTestFile.getAbsolutePath());
+
+        assertSame(first, second, "Unchanged file should not be parsed again");
+        assertEquals(2, first.size());
+        assertEquals(12, first.getMaxPoints());
+    }
+
+    @Test
+    void testModifiedFileIsReloaded() throws IOException {
+        TestSuite first = TestSuiteCache.get(tempTestFile.getAbsolutePath());
+
+        try (FileWriter writer = new FileWriter(tempTestFile, true)) {
+            writer.write("00,1\n");
+        }
+        assertTrue(tempTestFile.setLastModified(tempTestFile.lastModified() + 2000));
+        TestSuite second = TestSuiteCache.get(tempTestFile.getAbsolutePath());
+
+        assertNotSame(first, second, "Modified file should be parsed again");
+        assertEquals(3, second.size());
+    }
+
+    @Test
+    void testConcurrentCallersShareOneSuite() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<TestSuite>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(pool.submit(() -> TestSuiteCache.get(tempTestFile.getAbsolutePath())));
+            }
+            TestSuite expected = futures.get(0).get();
+            for (Future<TestSuite> future : futures) {
+                assertSame(expected, future.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testInvalidFileIsNotCached() throws IOException {
+        try (FileWriter writer = new FileWriter(tempTestFile, true)) {
+            writer.write("not a test case\n");
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> TestSuiteCache.get(tempTestFile.getAbsolutePath()));
+        assertEquals(0, TestSuiteCache.size());
+    }
+
+    @Test
+    void testClaimedLoadIsShared() throws Exception {
+        TestSuiteCache.Key key = TestSuiteCache.keyOf(tempTestFile.getAbsolutePath());
+        TestSuiteCache.Load load = TestSuiteCache.claim(key);
+        assertNotNull(load);
+        assertNull(TestSuiteCache.claim(key), "A file being loaded should not be claimed twice");
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<TestSuite> waiting = pool.submit(() -> TestSuiteCache.get(tempTestFile.getAbsolutePath()));
+            TestSuite suite = TestFileParser.loadTestSuite(tempTestFile.getAbsolutePath());
+            load.complete(suite);
+
+            assertSame(suite, waiting.get(), "Callers should wait for the claimed load instead of parsing again");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testFailedClaimIsNotCached() {
+        TestSuiteCache.Key key = TestSuiteCache.keyOf(tempTestFile.getAbsolutePath());
+        TestSuiteCache.Load load = TestSuiteCache.claim(key);
+        load.fail(new IllegalArgumentException("Invalid test case"));
+
+        assertEquals(0, TestSuiteCache.size());
+        assertNotNull(TestSuiteCache.claim(key), "The next caller should read the file again");
+    }
+
+    @Test
+    void testRunTestsPopulatesCache() throws IOException {
+        DFA dfa = new DFA();
+        Automaton.ParseResult parseResult = dfa.parse("Start: q0\nFinals: q1\nAlphabet: 0 1\nStates: q0 q1 q2\n" +
+                "Transitions:\nq0 -> q1 (0)\nq0 -> q2 (1)\nq1 -> q1 (0 1)\nq2 -> q2 (0 1)\n");
+        assertTrue(parseResult.isSuccess());
+
+        TestRunner.TestResult result = TestRunner.runTests(parseResult.getAutomaton(), tempTestFile.getAbsolutePath());
+
+        assertEquals(2, result.getPassedTests());
+        assertNotNull(TestSuiteCache.getIfPresent(TestSuiteCache.keyOf(tempTestFile.getAbsolutePath())),
+                "First run should leave the suite in the cache");
+        assertEquals(2, TestRunner.runTests(parseResult.getAutomaton(), tempTestFile.getAbsolutePath()).getPassedTests());
+    }
+}